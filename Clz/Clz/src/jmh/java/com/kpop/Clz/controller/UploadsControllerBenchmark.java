@@ -0,0 +1,153 @@
+package com.kpop.Clz.controller;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput phục vụ 1 file trong /uploads: UploadsController so với resource handler mặc định trước đây
+ * (ResourceHttpRequestHandler trỏ vào thư mục upload, không cache period, không ETag).
+ * Chạy với request/response mock nên không có sendfile của Tomcat: đo chi phí của handler, không đo mạng.
+ * Lợi ích lớn nhất (Cache-Control immutable: trình duyệt không gửi lại request) nằm ngoài phạm vi đo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UploadsControllerBenchmark {
+
+	private static final String FILE_NAME = "bench.jpg";
+
+	// ảnh đại diện nhỏ và ảnh gallery lớn
+	@Param({"20480", "2097152"})
+	private int fileSize;
+
+	private Path uploadDir;
+	private UploadsController uploadsController;
+	private ResourceHttpRequestHandler legacyHandler;
+	private String etag;
+	private long lastModified;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		uploadDir = Files.createTempDirectory("uploads-bench");
+		byte[] content = new byte[fileSize];
+		new Random(42).nextBytes(content);
+		Files.write(uploadDir.resolve(FILE_NAME), content);
+
+		uploadsController = new UploadsController(uploadDir.toString(), 49152);
+		legacyHandler = new ResourceHttpRequestHandler();
+		legacyHandler.setLocations(List.of(new FileSystemResource(uploadDir.toString() + "/")));
+		legacyHandler.setServletContext(new MockServletContext());
+		legacyHandler.afterPropertiesSet();
+
+		MockHttpServletResponse first = new MockHttpServletResponse();
+		uploadsController.serve(request(), first);
+		etag = first.getHeader(HttpHeaders.ETAG);
+		lastModified = first.getDateHeader(HttpHeaders.LAST_MODIFIED);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		FileSystemUtils.deleteRecursively(uploadDir);
+	}
+
+	@Benchmark
+	public long legacyFullGet() throws Exception {
+		DiscardingResponse response = new DiscardingResponse();
+		legacyHandler.handleRequest(legacyRequest(), response);
+		return response.written;
+	}
+
+	@Benchmark
+	public long uploadsControllerFullGet() throws Exception {
+		DiscardingResponse response = new DiscardingResponse();
+		uploadsController.serve(request(), response);
+		return response.written;
+	}
+
+	@Benchmark
+	public int legacyRevalidate() throws Exception {
+		MockHttpServletRequest request = legacyRequest();
+		request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		legacyHandler.handleRequest(request, response);
+		return response.getStatus();
+	}
+
+	@Benchmark
+	public int uploadsControllerRevalidate() throws Exception {
+		MockHttpServletRequest request = request();
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		uploadsController.serve(request, response);
+		return response.getStatus();
+	}
+
+	// output stream của MockHttpServletResponse ghi từng byte vào buffer: đếm rồi bỏ để không đo chính mock
+	private static final class DiscardingResponse extends MockHttpServletResponse {
+		long written;
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			return new ServletOutputStream() {
+				@Override
+				public void write(int b) {
+					written++;
+				}
+
+				@Override
+				public void write(byte[] buffer, int offset, int length) {
+					written += length;
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setWriteListener(WriteListener listener) {
+				}
+			};
+		}
+	}
+
+	private static MockHttpServletRequest request() {
+		return new MockHttpServletRequest("GET", "/uploads/" + FILE_NAME);
+	}
+
+	private static MockHttpServletRequest legacyRequest() {
+		MockHttpServletRequest request = request();
+		request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, FILE_NAME);
+		return request;
+	}
+}
@@ -0,0 +1,86 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.model.Order;
+import com.kpop.Clz.model.OrderItem;
+import com.kpop.Clz.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí cập nhật tổng giỏ hàng cho 1 thao tác đổi số lượng, theo số item trong giỏ.
+ * fullRecomputation tái hiện cách cũ (duyệt mọi item, tạo BigDecimal mới, cộng lại totalQuantity);
+ * incrementalDelta là CartService.applyTotalsDelta. Dựng CartDTO (O(n) ở cả 2 cách) không được đo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartTotalsBenchmark {
+
+	@Param({"10", "100", "1000", "10000"})
+	private int cartSize;
+
+	private Order cart;
+	private OrderItem item;
+	private int step;
+
+	@Setup
+	public void setUp() {
+		cart = new Order();
+		cart.setTotalAmount(BigDecimal.ZERO);
+		for (int i = 0; i < cartSize; i++) {
+			Product product = new Product();
+			product.setId((long) i);
+			product.setPrice(new BigDecimal("4.90"));
+			OrderItem line = new OrderItem();
+			line.setId(i);
+			line.setProduct(product);
+			line.setUnitPrice(product.getPrice());
+			line.setQuantity(1 + i % 3);
+			cart.getOrderItems().add(line);
+			CartService.applyTotalsDelta(cart, line.getUnitPrice(), line.getQuantity());
+		}
+		item = cart.getOrderItems().get(cartSize / 2);
+	}
+
+	@Benchmark
+	public Order fullRecomputation() {
+		setQuantity();
+		BigDecimal totalAmount = BigDecimal.ZERO;
+		for (OrderItem line : cart.getOrderItems()) {
+			if (line.getUnitPrice() != null && line.getQuantity() > 0) {
+				totalAmount = totalAmount.add(line.getUnitPrice().multiply(new BigDecimal(line.getQuantity())));
+			}
+		}
+		cart.setTotalAmount(totalAmount);
+		cart.setTotalQuantity(cart.getOrderItems().stream().mapToInt(OrderItem::getQuantity).sum());
+		return cart;
+	}
+
+	@Benchmark
+	public Order incrementalDelta() {
+		int previous = item.getQuantity();
+		setQuantity();
+		CartService.applyTotalsDelta(cart, item.getUnitPrice(), item.getQuantity() - previous);
+		return cart;
+	}
+
+	// +1 / -1 xen kẽ để giỏ không lớn dần qua các lần gọi
+	private void setQuantity() {
+		item.setQuantity(item.getQuantity() + ((step++ & 1) == 0 ? 1 : -1));
+	}
+}
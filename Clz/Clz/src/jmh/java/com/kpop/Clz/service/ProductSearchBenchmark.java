@@ -0,0 +1,139 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.ProductSearchResultDTO;
+import com.kpop.Clz.dto.ProductSummaryDTO;
+import com.kpop.Clz.model.Group;
+import com.kpop.Clz.repository.GroupRepository;
+import com.kpop.Clz.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Độ trễ 1 lần ProductSearchService.search trên index 3000 sản phẩm (prefix, fuzzy, nhiều từ, lọc facet group).
+ * SampleTime để JMH in p50 / p99. Sản phẩm nằm trong H2 nhúng; repository là proxy đọc bằng JdbcTemplate
+ * (chỉ findSummariesByIdIn và GroupRepository.findAll được gọi), nên không đo chi phí của Hibernate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+	private static final String[] MEMBERS = {"Karina", "Winter", "Giselle", "Ningning", "Jisoo", "Jennie", "Rose", "Lisa"};
+	private static final int PRODUCTS = 3000;
+
+	// gõ dở tên member, sai chính tả, nhiều từ, từ chỉ có trong description
+	@Param({"kar", "ningnig", "photocard comeback", "limited"})
+	private String query;
+
+	private EmbeddedDatabase database;
+	private ProductSearchService productSearchService;
+	private Group aespa;
+	private int page;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+		jdbcTemplate.execute("CREATE TABLE products (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255), group_id INT, " +
+				"member VARCHAR(100), description CLOB, price DECIMAL(10, 2), image_url VARCHAR(500), stock_quantity INT)");
+		aespa = group(1, "aespa");
+		Group blackpink = group(2, "BLACKPINK");
+		List<Object[]> rows = new ArrayList<>(PRODUCTS);
+		for (int i = 0; i < PRODUCTS; i++) {
+			String member = MEMBERS[i % MEMBERS.length];
+			rows.add(new Object[]{member + " photocard " + i, i % 3 == 0 ? aespa.getId() : blackpink.getId(),
+					member, "Comeback era " + (i % 12) + " limited pressing", new BigDecimal("9.90"), 10});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO products (name, group_id, member, description, price, stock_quantity) " +
+				"VALUES (?, ?, ?, ?, ?, ?)", rows);
+
+		productSearchService = new ProductSearchService(jdbcTemplate,
+				productRepository(jdbcTemplate), groupRepository(List.of(aespa, blackpink)));
+		ReflectionTestUtils.setField(productSearchService, "defaultSize", 20);
+		ReflectionTestUtils.setField(productSearchService, "maxSize", 100);
+		ReflectionTestUtils.setField(productSearchService, "maxWindow", 1000);
+		// index trống => openIndex tự rebuild từ bảng products
+		productSearchService.openIndex();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		productSearchService.closeIndex();
+		database.shutdown();
+	}
+
+	@Benchmark
+	public ProductSearchResultDTO search() {
+		return productSearchService.search(query, null, null, nextPage(), 20);
+	}
+
+	@Benchmark
+	public ProductSearchResultDTO searchWithinGroup() {
+		return productSearchService.search(query, aespa.getName(), null, nextPage(), 20);
+	}
+
+	// 4 trang đầu xoay vòng như người dùng lật trang
+	private int nextPage() {
+		return page++ & 3;
+	}
+
+	private static Group group(int id, String name) {
+		Group group = new Group();
+		group.setId(id);
+		group.setName(name);
+		return group;
+	}
+
+	private static ProductRepository productRepository(JdbcTemplate jdbcTemplate) {
+		return (ProductRepository) Proxy.newProxyInstance(ProductRepository.class.getClassLoader(),
+				new Class<?>[]{ProductRepository.class}, (proxy, method, args) -> {
+					if (!method.getName().equals("findSummariesByIdIn")) {
+						throw new UnsupportedOperationException(method.getName());
+					}
+					Collection<?> ids = (Collection<?>) args[0];
+					return jdbcTemplate.query("SELECT id, name, group_id, member, price, image_url, stock_quantity FROM products " +
+									"WHERE id IN (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ")",
+							(rs, row) -> new ProductSummaryDTO(rs.getLong("id"), rs.getString("name"), rs.getInt("group_id"),
+									rs.getString("member"), rs.getBigDecimal("price"), rs.getString("image_url"),
+									rs.getInt("stock_quantity")),
+							ids.toArray());
+				});
+	}
+
+	private static GroupRepository groupRepository(List<Group> groups) {
+		return (GroupRepository) Proxy.newProxyInstance(GroupRepository.class.getClassLoader(),
+				new Class<?>[]{GroupRepository.class}, (proxy, method, args) -> {
+					if (!method.getName().equals("findAll") || args != null) {
+						throw new UnsupportedOperationException(method.getName());
+					}
+					return groups;
+				});
+	}
+}
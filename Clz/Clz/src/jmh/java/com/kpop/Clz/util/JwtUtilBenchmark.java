@@ -0,0 +1,70 @@
+package com.kpop.Clz.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí xác thực JWT cho 1 request trong JwtRequestFilter.
+ * perRequestRebuild tái hiện cách cũ: dựng lại key + parser cho mỗi lần lấy claim, parse token 3 lần
+ * (subject, rồi expiration 2 lần). parseOnce là đường hiện tại: key/parser dựng 1 lần, parse 1 lần.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+	private static final String SECRET = "benchmark-secret-key-with-at-least-32-bytes";
+
+	private JwtUtil jwtUtil;
+	private UserDetails userDetails;
+	private String token;
+
+	@Setup
+	public void setUp() {
+		jwtUtil = new JwtUtil();
+		ReflectionTestUtils.setField(jwtUtil, "secretKeyString", SECRET);
+		jwtUtil.init();
+		userDetails = new User("fan@example.com", "x", List.of());
+		token = jwtUtil.generateToken(userDetails);
+	}
+
+	@Benchmark
+	public boolean perRequestRebuild() {
+		String username = legacyClaims(token).getSubject();
+		Date expiration = legacyClaims(token).getExpiration();
+		boolean notExpired = !legacyClaims(token).getExpiration().before(new Date());
+		return username.equals(userDetails.getUsername()) && notExpired && expiration != null;
+	}
+
+	@Benchmark
+	public boolean parseOnce() {
+		return jwtUtil.validateToken(jwtUtil.parseToken(token), userDetails);
+	}
+
+	private static Claims legacyClaims(String token) {
+		Key key = Keys.hmacShaKeyFor(SECRET.getBytes());
+		return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+	}
+}
@@ -1,13 +1,17 @@
 package com.kpop.Clz.config;
 
 import com.kpop.Clz.service.CustomUserDetailsService;
+import com.kpop.Clz.service.UserPrincipalCache;
 import com.kpop.Clz.util.JwtUtil;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -17,17 +21,22 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.security.SignatureException;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
+    // không đặt tên logger: GenericFilterBean đã có field logger (commons-logging)
+    private static final Logger log = LoggerFactory.getLogger(JwtRequestFilter.class);
+
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
@@ -35,43 +44,47 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         String username = null;
         String jwtToken = null;
+        JwtUtil.VerifiedToken verifiedToken = null;
 
-        System.out.println("JwtRequestFilter: Processing request for URI: " + request.getRequestURI());
+        log.debug("Processing request for URI: {}", request.getRequestURI());
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             jwtToken = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwtToken);
-                System.out.println("JwtRequestFilter: Extracted username: " + username + " from token.");
+                verifiedToken = jwtUtil.parseToken(jwtToken);
+                username = verifiedToken.subject();
+                log.debug("Extracted username {} from token.", username);
             } catch (IllegalArgumentException e) {
-                System.err.println("JwtRequestFilter: Unable to get JWT Token");
+                log.warn("Unable to get JWT Token for URI: {}", request.getRequestURI());
             } catch (ExpiredJwtException e) {
-                System.err.println("JwtRequestFilter: JWT Token has expired");
+                // token hết hạn là chuyện bình thường (client sẽ login lại), không cần warn
+                log.debug("JWT Token has expired for URI: {}", request.getRequestURI());
             } catch (MalformedJwtException e) {
-                System.err.println("JwtRequestFilter: Invalid JWT token.");
+                log.warn("Invalid JWT token for URI: {}", request.getRequestURI());
+            } catch (JwtException e) {
+                log.warn("JWT Token verification failed: {}", e.getMessage());
             }
         } else {
-            System.out.println("JwtRequestFilter: JWT Token does not begin with Bearer String for URI: " + request.getRequestURI());
+            log.debug("JWT Token does not begin with Bearer String for URI: {}", request.getRequestURI());
         }
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.customUserDetailsService.loadUserByUsername(username);
-            System.out.println("JwtRequestFilter: Loaded UserDetails for: " + userDetails.getUsername());
+            UserDetails userDetails = userPrincipalCache.get(username, customUserDetailsService::loadUserByUsername);
+            log.debug("Loaded UserDetails for: {}", userDetails.getUsername());
 
-            if (jwtUtil.validateToken(jwtToken, userDetails)) {
-                System.out.println("JwtRequestFilter: JWT Token is valid.");
+            if (jwtUtil.validateToken(verifiedToken, userDetails)) {
+                log.debug("JWT Token is valid.");
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 usernamePasswordAuthenticationToken
                         .setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
-                System.out.println("JwtRequestFilter: Authentication set in SecurityContext for user: " + username);
+                log.debug("Authentication set in SecurityContext for user: {}", username);
             } else {
-                System.err.println("JwtRequestFilter: JWT Token validation failed for user: " + username);
+                log.warn("JWT Token validation failed for user: {}", username);
             }
-        } else {
-            if (username == null) System.out.println("JwtRequestFilter: Username is null (or already authenticated and context has auth).");
-            // else if (SecurityContextHolder.getContext().getAuthentication() != null) System.out.println("JwtRequestFilter: Authentication already set in context.");
+        } else if (username == null) {
+            log.debug("Username is null (or already authenticated and context has auth).");
         }
         chain.doFilter(request, response);
     }
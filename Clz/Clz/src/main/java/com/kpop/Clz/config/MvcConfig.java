@@ -1,28 +1,12 @@
 package com.kpop.Clz.config;
 
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 
+// /uploads/** được phục vụ bởi UploadsController (cache immutable, ETag, Range, sendfile)
 @Configuration
 public class MvcConfig implements WebMvcConfigurer {
-    @Value("${file.upload-dir:./uploads}")
-    private String uploadDir;
-
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        Path uploadPathObject = Paths.get(uploadDir);
-        String absoluteUploadPath = uploadPathObject.toFile().getAbsolutePath();
-
-        System.out.println("Serving static resources from: " + "file:/" + absoluteUploadPath + "/");
-
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:" + absoluteUploadPath + "/");
-    }
 
     @Override
     public void addCorsMappings(CorsRegistry registry) {
@@ -33,4 +17,4 @@ public class MvcConfig implements WebMvcConfigurer {
                 .allowCredentials(true)
                 .maxAge(3600);
     }
-}
\ No newline at end of file
+}
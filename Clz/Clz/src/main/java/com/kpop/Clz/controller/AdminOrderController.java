@@ -0,0 +1,69 @@
+package com.kpop.Clz.controller;
+
+import com.kpop.Clz.dto.BulkOrderStatusRequestDTO;
+import com.kpop.Clz.service.OrderExportService;
+import com.kpop.Clz.service.OrderStatusService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/orders")
+@CrossOrigin(origins = "http://localhost:3000")
+public class AdminOrderController {
+
+    private final OrderStatusService orderStatusService;
+    private final OrderExportService orderExportService;
+
+    @Autowired
+    public AdminOrderController(OrderStatusService orderStatusService, OrderExportService orderExportService) {
+        this.orderStatusService = orderStatusService;
+        this.orderExportService = orderExportService;
+    }
+
+    // POST http://localhost:8080/api/admin/orders/status  {"orderIds": [1, 2, 3], "targetStatus": "SHIPPED"}
+    // Đơn không chuyển được nằm trong "failures", các đơn còn lại vẫn được cập nhật
+    @PostMapping("/status")
+    public ResponseEntity<?> transitionOrders(@Valid @RequestBody BulkOrderStatusRequestDTO request) {
+        try {
+            return ResponseEntity.ok(orderStatusService.transition(request.getOrderIds(), request.getTargetStatus()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // GET http://localhost:8080/api/admin/orders/export?from=2025-01-01&to=2025-01-31&format=csv|ndjson
+    // to tính cả ngày cuối; dữ liệu được ghi dần ra response trong lúc đọc cursor
+    @GetMapping("/export")
+    public ResponseEntity<?> exportOrders(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format) {
+        OrderExportService.Format exportFormat;
+        try {
+            exportFormat = OrderExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Unsupported export format: " + format));
+        }
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "'to' must not be before 'from'."));
+        }
+
+        StreamingResponseBody body = outputStream ->
+                orderExportService.export(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), exportFormat, outputStream);
+        String fileName = "orders-" + from + "-" + to + "." + exportFormat.getExtension();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .body(body);
+    }
+}
@@ -0,0 +1,70 @@
+package com.kpop.Clz.controller;
+
+import com.kpop.Clz.service.ProductImportService;
+import com.kpop.Clz.service.ProductSearchService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/products")
+@CrossOrigin(origins = "http://localhost:3000")
+public class AdminProductController {
+
+    private final ProductImportService productImportService;
+    private final ProductSearchService productSearchService;
+
+    @Autowired
+    public AdminProductController(ProductImportService productImportService, ProductSearchService productSearchService) {
+        this.productImportService = productImportService;
+        this.productSearchService = productSearchService;
+    }
+
+    // POST http://localhost:8080/api/admin/products/import?format=csv|json&dryRun=true   body: file CSV (có header) hoặc JSON
+    // Không truyền format thì đoán theo Content-Type; dòng lỗi nằm trong "errors", các dòng hợp lệ vẫn được thêm
+    @PostMapping("/import")
+    public ResponseEntity<?> importProducts(@RequestParam(required = false) String format,
+                                            @RequestParam(defaultValue = "false") boolean dryRun,
+                                            HttpServletRequest request) throws IOException {
+        ProductImportService.Format importFormat;
+        if (format != null) {
+            try {
+                importFormat = ProductImportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", "Unsupported import format: " + format));
+            }
+        } else {
+            String contentType = request.getContentType();
+            importFormat = contentType != null && contentType.toLowerCase(Locale.ROOT).contains("json")
+                    ? ProductImportService.Format.JSON
+                    : ProductImportService.Format.CSV;
+        }
+        try {
+            return ResponseEntity.ok(productImportService.importProducts(request.getInputStream(), importFormat, dryRun));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // POST http://localhost:8080/api/admin/products/search-index/rebuild
+    // Dựng lại index tìm kiếm từ DB (vd. sau khi sửa dữ liệu trực tiếp bằng SQL)
+    @PostMapping("/search-index/rebuild")
+    public ResponseEntity<?> rebuildSearchIndex() {
+        try {
+            return ResponseEntity.ok(Map.of("indexedProducts", productSearchService.rebuildIndex()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.internalServerError().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // GET http://localhost:8080/api/admin/products/search-index/stats  (số document, độ trễ truy vấn p50/p99)
+    @GetMapping("/search-index/stats")
+    public ResponseEntity<Map<String, Object>> getSearchIndexStats() {
+        return ResponseEntity.ok(productSearchService.getStats());
+    }
+}
@@ -0,0 +1,40 @@
+package com.kpop.Clz.controller;
+
+import com.kpop.Clz.service.StatsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping("/api/admin/stats")
+@CrossOrigin(origins = "http://localhost:3000")
+public class AdminStatsController {
+
+    // key = tên bean (vd. "stockReservationService")
+    private final Map<String, StatsSource> sources;
+
+    @Autowired
+    public AdminStatsController(Map<String, StatsSource> sources) {
+        this.sources = sources;
+    }
+
+    // GET http://localhost:8080/api/admin/stats              bộ đếm của mọi service
+    // GET http://localhost:8080/api/admin/stats?source=orderOutboxDispatcher
+    @GetMapping
+    public ResponseEntity<?> getStats(@RequestParam(required = false) String source) {
+        if (source != null) {
+            StatsSource stats = sources.get(source);
+            if (stats == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Unknown stats source: " + source));
+            }
+            return ResponseEntity.ok(stats.getStats());
+        }
+        Map<String, Map<String, Object>> all = new TreeMap<>();
+        sources.forEach((name, stats) -> all.put(name, stats.getStats()));
+        return ResponseEntity.ok(all);
+    }
+}
@@ -1,10 +1,14 @@
 package com.kpop.Clz.controller;
 
 import com.kpop.Clz.dto.AddItemToCartRequestDTO;
+import com.kpop.Clz.dto.CartBatchRequestDTO;
+import com.kpop.Clz.dto.CartBatchResultDTO;
 import com.kpop.Clz.dto.CartDTO;
 import com.kpop.Clz.dto.UpdateCartItemQuantityRequestDTO;
 import com.kpop.Clz.model.User;
+import com.kpop.Clz.service.AuthenticatedUser;
 import com.kpop.Clz.service.CartService;
+import com.kpop.Clz.service.InMemoryCartStore;
 import com.kpop.Clz.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +17,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/users/{userId}/cart")
 public class CartController {
@@ -23,10 +29,20 @@ public class CartController {
     @Autowired
     private UserService userService;
 
+    // Chỉ có khi app.cart.mode=memory: giỏ đọc/ghi trong bộ nhớ, flush xuống DB định kỳ
+    @Autowired(required = false)
+    private InMemoryCartStore inMemoryCartStore;
+
     private User getAuthenticatedUser(Integer userIdFromPath, org.springframework.security.core.userdetails.User springSecurityUser) {
         if (springSecurityUser == null) {
             throw new SecurityException("User not authenticated.");
         }
+        if (springSecurityUser instanceof AuthenticatedUser authenticatedUser) {
+            if (!authenticatedUser.getId().equals(userIdFromPath)) {
+                throw new SecurityException("User ID in path does not match authenticated user.");
+            }
+            return userService.getUserReference(authenticatedUser.getId());
+        }
         User applicationUser = userService.getUserByUsernameOrEmail(springSecurityUser.getUsername())
                 .orElseThrow(() -> new RuntimeException("Authenticated user not found in database"));
 
@@ -42,7 +58,9 @@ public class CartController {
             @AuthenticationPrincipal org.springframework.security.core.userdetails.User springSecurityUser) {
         try {
             User currentUser = getAuthenticatedUser(userId, springSecurityUser);
-            CartDTO cart = cartService.getCartByUserId(currentUser.getId());
+            CartDTO cart = inMemoryCartStore != null
+                    ? inMemoryCartStore.getCart(currentUser.getId())
+                    : cartService.getCartByUserId(currentUser.getId());
             return ResponseEntity.ok(cart);
         } catch (SecurityException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
@@ -59,7 +77,9 @@ public class CartController {
             @Valid @RequestBody AddItemToCartRequestDTO request) {
         try {
             User currentUser = getAuthenticatedUser(userId, springSecurityUser);
-            CartDTO updatedCart = cartService.addItemToCart(currentUser.getId(), request);
+            CartDTO updatedCart = inMemoryCartStore != null
+                    ? inMemoryCartStore.addItem(currentUser.getId(), request.getProductId(), request.getQuantity())
+                    : cartService.addItemToCart(currentUser.getId(), request);
             return ResponseEntity.ok(updatedCart);
         } catch (SecurityException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
@@ -76,7 +96,9 @@ public class CartController {
             @Valid @RequestBody UpdateCartItemQuantityRequestDTO request) {
         try {
             User currentUser = getAuthenticatedUser(userId, springSecurityUser);
-            CartDTO updatedCart = cartService.updateItemQuantityInCart(currentUser.getId(), itemId.intValue(), request.getQuantity());
+            CartDTO updatedCart = inMemoryCartStore != null
+                    ? inMemoryCartStore.updateItemQuantity(currentUser.getId(), itemId, request.getQuantity())
+                    : cartService.updateItemQuantityInCart(currentUser.getId(), itemId.intValue(), request.getQuantity());
             return ResponseEntity.ok(updatedCart);
         } catch (SecurityException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
@@ -92,7 +114,9 @@ public class CartController {
             @AuthenticationPrincipal org.springframework.security.core.userdetails.User springSecurityUser) {
         try {
             User currentUser = getAuthenticatedUser(userId, springSecurityUser);
-            CartDTO updatedCart = cartService.removeItemFromCart(currentUser.getId(), itemId.intValue());
+            CartDTO updatedCart = inMemoryCartStore != null
+                    ? inMemoryCartStore.removeItem(currentUser.getId(), itemId)
+                    : cartService.removeItemFromCart(currentUser.getId(), itemId.intValue());
             return ResponseEntity.ok(updatedCart);
         } catch (SecurityException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
@@ -101,6 +125,25 @@ public class CartController {
         }
     }
 
+    // Nhiều thao tác add/update/remove trong 1 request; lỗi từng thao tác nằm trong results, giỏ trả về 1 lần
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyCartBatch(
+            @PathVariable Integer userId,
+            @AuthenticationPrincipal org.springframework.security.core.userdetails.User springSecurityUser,
+            @Valid @RequestBody CartBatchRequestDTO request) {
+        try {
+            User currentUser = getAuthenticatedUser(userId, springSecurityUser);
+            CartBatchResultDTO result = inMemoryCartStore != null
+                    ? inMemoryCartStore.applyBatch(currentUser.getId(), request.getOperations())
+                    : cartService.applyBatch(currentUser.getId(), request.getOperations());
+            return ResponseEntity.ok(result);
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
     @DeleteMapping
     public ResponseEntity<Void> clearUserCart(
             @PathVariable Integer userId,
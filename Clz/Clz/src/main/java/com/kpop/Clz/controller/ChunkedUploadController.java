@@ -0,0 +1,115 @@
+package com.kpop.Clz.controller;
+
+import com.kpop.Clz.dto.InitUploadRequestDTO;
+import com.kpop.Clz.dto.UploadSessionDTO;
+import com.kpop.Clz.exception.ResourceNotFoundException;
+import com.kpop.Clz.service.AuthenticatedUser;
+import com.kpop.Clz.service.ChunkedUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Upload ảnh lớn theo chunk, resume được; URL trả về khi complete dùng cho POST /api/gallery-posts (JSON imageUrl)
+@RestController
+@RequestMapping("/api/uploads/sessions")
+@CrossOrigin(origins = "http://localhost:3000")
+public class ChunkedUploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    public ChunkedUploadController(ChunkedUploadService chunkedUploadService) {
+        this.chunkedUploadService = chunkedUploadService;
+    }
+
+    // POST http://localhost:8080/api/uploads/sessions  {"fileName": "...", "totalSize": 123, "sha256": "..."}
+    @PostMapping
+    public ResponseEntity<?> initUpload(@Valid @RequestBody InitUploadRequestDTO request, Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser currentUser)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "User not authenticated"));
+        }
+        try {
+            UploadSessionDTO session = chunkedUploadService.initSession(currentUser.getId(),
+                    request.getFileName(), request.getTotalSize(), request.getSha256());
+            return new ResponseEntity<>(session, HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // GET http://localhost:8080/api/uploads/sessions/{uploadId} -> receivedBytes để resume
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<?> getUpload(@PathVariable String uploadId, Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser currentUser)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "User not authenticated"));
+        }
+        try {
+            return ResponseEntity.ok(chunkedUploadService.getSession(uploadId, currentUser.getId()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // PUT http://localhost:8080/api/uploads/sessions/{uploadId}?offset=0   body: application/octet-stream
+    @PutMapping(value = "/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> appendChunk(@PathVariable String uploadId,
+                                         @RequestParam long offset,
+                                         HttpServletRequest request,
+                                         Authentication authentication) throws IOException {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser currentUser)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "User not authenticated"));
+        }
+        try {
+            return ResponseEntity.ok(chunkedUploadService.appendChunk(uploadId, currentUser.getId(), offset, request.getInputStream()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            // offset lệch: client gọi GET để lấy receivedBytes rồi gửi tiếp
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // POST http://localhost:8080/api/uploads/sessions/{uploadId}/complete?sha256=...
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable String uploadId,
+                                            @RequestParam(required = false) String sha256,
+                                            Authentication authentication) throws IOException {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser currentUser)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "User not authenticated"));
+        }
+        try {
+            String url = chunkedUploadService.completeSession(uploadId, currentUser.getId(), sha256);
+            return ResponseEntity.ok(Map.of("url", url));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // DELETE http://localhost:8080/api/uploads/sessions/{uploadId}
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<?> abortUpload(@PathVariable String uploadId, Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser currentUser)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "User not authenticated"));
+        }
+        try {
+            chunkedUploadService.abortSession(uploadId, currentUser.getId());
+            return ResponseEntity.noContent().build();
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        }
+    }
+}
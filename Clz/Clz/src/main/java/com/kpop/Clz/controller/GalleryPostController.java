@@ -1,8 +1,12 @@
 package com.kpop.Clz.controller;
 
+import com.kpop.Clz.dto.GalleryFeedPageDTO;
+import com.kpop.Clz.exception.ResourceNotFoundException;
 import com.kpop.Clz.model.GalleryPost;
 import com.kpop.Clz.model.User;
+import com.kpop.Clz.service.AuthenticatedUser;
 import com.kpop.Clz.service.FileStorageService;
+import com.kpop.Clz.service.GalleryLikeService;
 import com.kpop.Clz.service.GalleryPostService;
 import com.kpop.Clz.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +18,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/gallery-posts")
@@ -23,12 +28,15 @@ public class GalleryPostController {
     private final GalleryPostService galleryPostService;
     private final FileStorageService fileStorageService;
     private final UserService userService;
+    private final GalleryLikeService galleryLikeService;
 
     @Autowired
-    public GalleryPostController(GalleryPostService galleryPostService, FileStorageService fileStorageService, UserService userService) { // Inject UserService
+    public GalleryPostController(GalleryPostService galleryPostService, FileStorageService fileStorageService, UserService userService,
+                                 GalleryLikeService galleryLikeService) { // Inject UserService
         this.galleryPostService = galleryPostService;
         this.fileStorageService = fileStorageService;
         this.userService = userService;
+        this.galleryLikeService = galleryLikeService;
     }
 
     @GetMapping
@@ -37,6 +45,17 @@ public class GalleryPostController {
         return ResponseEntity.ok(posts);
     }
 
+    // GET /api/gallery-posts/feed?before=2025-05-20T10:15:30.123Z,42
+    @GetMapping("/feed")
+    public ResponseEntity<?> getGalleryFeed(@RequestParam(required = false) String before) {
+        try {
+            GalleryFeedPageDTO page = galleryPostService.getFeedPage(before);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
     // link URL
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<GalleryPost> createGalleryPostWithJson(
@@ -114,4 +133,30 @@ public class GalleryPostController {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
-}
\ No newline at end of file
+
+    // POST /api/gallery-posts/{postId}/like (idempotent)
+    @PostMapping("/{postId}/like")
+    public ResponseEntity<?> likePost(@PathVariable Integer postId, Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser currentUser)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "User not authenticated"));
+        }
+        try {
+            return ResponseEntity.ok(galleryLikeService.likePost(postId, currentUser.getId()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // DELETE /api/gallery-posts/{postId}/like (idempotent)
+    @DeleteMapping("/{postId}/like")
+    public ResponseEntity<?> unlikePost(@PathVariable Integer postId, Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser currentUser)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "User not authenticated"));
+        }
+        try {
+            return ResponseEntity.ok(galleryLikeService.unlikePost(postId, currentUser.getId()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        }
+    }
+}
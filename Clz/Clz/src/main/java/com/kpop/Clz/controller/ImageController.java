@@ -0,0 +1,42 @@
+package com.kpop.Clz.controller;
+
+import com.kpop.Clz.service.ImageVariantService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/images")
+@CrossOrigin(origins = "http://localhost:3000")
+public class ImageController {
+
+    private final ImageVariantService imageVariantService;
+
+    @Autowired
+    public ImageController(ImageVariantService imageVariantService) {
+        this.imageVariantService = imageVariantService;
+    }
+
+    // GET http://localhost:8080/api/images/variant?url=/uploads/abc.jpg&width=480
+    // Redirect tới variant phù hợp (imageUrl của GalleryPost, avatarUrl của User), chưa có variant thì về ảnh gốc.
+    // url là /uploads/... hoặc URL ảnh do app lưu (http://localhost:8080/uploads/...); domain khác trả về 400
+    @GetMapping("/variant")
+    public ResponseEntity<?> getVariant(@RequestParam String url, @RequestParam int width) {
+        if (width <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Width must be positive."));
+        }
+        String target;
+        try {
+            target = imageVariantService.resolveVariantUrl(url, width);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .header(HttpHeaders.LOCATION, target)
+                .build();
+    }
+}
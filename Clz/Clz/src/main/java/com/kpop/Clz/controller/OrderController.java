@@ -1,12 +1,17 @@
 package com.kpop.Clz.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kpop.Clz.dto.OrderDTO;
+import com.kpop.Clz.dto.OrderHistoryPageDTO;
 import com.kpop.Clz.exception.InsufficientStockException;
 import com.kpop.Clz.exception.ResourceNotFoundException;
 import com.kpop.Clz.service.OrderService;
 import com.kpop.Clz.dto.CreateOrderRequestDTO;
 import com.kpop.Clz.model.Order;
 import com.kpop.Clz.model.User;
+import com.kpop.Clz.service.AuthenticatedUser;
+import com.kpop.Clz.service.IdempotencyKeyStore;
 import com.kpop.Clz.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -14,10 +19,11 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -25,34 +31,69 @@ public class OrderController {
 
     @Autowired private OrderService orderService;
     @Autowired private UserService userService;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private IdempotencyKeyStore idempotencyKeyStore;
 
+    // GET /api/orders/my-orders?size=20&before={nextBefore}
+    // Trang có giới hạn size (keyset theo id), trả về bằng message converter như các API khác
     @GetMapping("/my-orders")
-    public ResponseEntity<List<OrderDTO>> getCurrentUserOrders() {
-        System.out.println("OrderController: Received request for /my-orders");
-        try {
-            List<OrderDTO> orders = orderService.getOrdersForCurrentUser();
-            if (orders == null || orders.isEmpty()) {
-                System.out.println("OrderController: No orders found, returning 204 No Content.");
-                return ResponseEntity.noContent().build();
+    public ResponseEntity<?> getCurrentUserOrders(
+            @RequestParam(required = false) Integer before,
+            @RequestParam(required = false) Integer size,
+            @AuthenticationPrincipal org.springframework.security.core.userdetails.User springSecurityUser) {
+        if (springSecurityUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "User not authenticated."));
+        }
+        Integer userId;
+        if (springSecurityUser instanceof AuthenticatedUser authenticatedUser) {
+            userId = authenticatedUser.getId();
+        } else {
+            Optional<User> user = userService.getUserByUsernameOrEmail(springSecurityUser.getUsername());
+            if (user.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "User not found."));
             }
-            System.out.println("OrderController: Found " + orders.size() + " orders, returning 200 OK.");
-            return ResponseEntity.ok(orders);
-        } catch (UsernameNotFoundException e) {
-            System.err.println("OrderController: User not found - " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-        } catch (Exception e) {
-            System.err.println("OrderController: Generic error fetching orders - " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+            userId = user.get().getId();
         }
+
+        OrderHistoryPageDTO page = orderService.getOrderHistoryPage(userId, before, size);
+        if (before == null && page.getItems().isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+
+        return ResponseEntity.ok(page);
     }
 
+    // Header Idempotency-Key (tùy chọn): gửi lại cùng key => trả lại đúng response cũ, không tạo đơn / trừ kho lần 2
     @PostMapping("/create")
     public ResponseEntity<?> createNewOrder(
             @Valid @RequestBody CreateOrderRequestDTO createOrderRequest,
+            @RequestHeader(value = IdempotencyKeyStore.HEADER, required = false) String idempotencyKey,
             @AuthenticationPrincipal org.springframework.security.core.userdetails.User springSecurityUser) {
+        if (springSecurityUser == null || idempotencyKey == null) {
+            return placeOrder(createOrderRequest, springSecurityUser);
+        }
+        String fingerprint;
+        try {
+            fingerprint = IdempotencyKeyStore.fingerprint(objectMapper.writeValueAsBytes(createOrderRequest));
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid order request."));
+        }
+        try {
+            return idempotencyKeyStore.execute(springSecurityUser.getUsername(), idempotencyKey, fingerprint,
+                    () -> placeOrder(createOrderRequest, springSecurityUser),
+                    body -> body instanceof OrderDTO order ? reloadOrder(order.getId()) : null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // đơn quá lớn để giữ nguyên response: chỉ giữ id, đọc lại đơn khi replay
+    private Supplier<OrderDTO> reloadOrder(Integer orderId) {
+        return () -> orderService.getOrderDTO(orderId);
+    }
 
+    private ResponseEntity<?> placeOrder(CreateOrderRequestDTO createOrderRequest,
+                                         org.springframework.security.core.userdetails.User springSecurityUser) {
         System.out.println("OrderController: Received request to /api/orders/create");
         if (springSecurityUser == null) {
             System.err.println("OrderController: User not authenticated for creating order.");
@@ -1,5 +1,6 @@
 package com.kpop.Clz.controller;
 
+import com.kpop.Clz.dto.ProductPageDTO;
 import com.kpop.Clz.model.Product;
 import com.kpop.Clz.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,6 +9,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -34,7 +36,39 @@ public class ProductController {
         }
         return ResponseEntity.ok(products);
     }
-    
+
+    // GET http://localhost:8080/api/products/catalog?sort=price&size=24&cursor={nextCursor}&groupId={id}
+    @GetMapping("/catalog")
+    public ResponseEntity<?> getProductCatalogPage(
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Integer groupId) {
+        try {
+            ProductService.CatalogSort catalogSort = ProductService.CatalogSort.valueOf(sort.toUpperCase());
+            ProductPageDTO page = productService.getProductPage(catalogSort, cursor, size, groupId);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid sort or cursor: " + e.getMessage()));
+        }
+    }
+
+    // GET http://localhost:8080/api/products/search?q=karina&group=aespa&member=Karina&page=0&size=20
+    // q có thể gõ dở (prefix) hoặc sai chính tả nhẹ (fuzzy); "facets" đếm số sản phẩm theo group / member
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String group,
+            @RequestParam(required = false) String member,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(productService.searchProducts(q, group, member, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
     // GET http://localhost:8080/api/products/{id}
     @GetMapping("/{id}")
     public ResponseEntity<Product> getProductById(@PathVariable Long id) {
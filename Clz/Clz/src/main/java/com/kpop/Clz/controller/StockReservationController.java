@@ -0,0 +1,60 @@
+package com.kpop.Clz.controller;
+
+import com.kpop.Clz.dto.ReserveStockRequestDTO;
+import com.kpop.Clz.dto.StockReservationDTO;
+import com.kpop.Clz.exception.InsufficientStockException;
+import com.kpop.Clz.exception.ResourceNotFoundException;
+import com.kpop.Clz.service.AuthenticatedUser;
+import com.kpop.Clz.service.StockReservationService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+// Giữ hàng khi vào bước checkout; gửi reservationId trong POST /api/orders/create để dùng phần hàng đã giữ
+@RestController
+@RequestMapping("/api/checkout/reservations")
+@CrossOrigin(origins = "http://localhost:3000")
+public class StockReservationController {
+
+    private final StockReservationService stockReservationService;
+
+    @Autowired
+    public StockReservationController(StockReservationService stockReservationService) {
+        this.stockReservationService = stockReservationService;
+    }
+
+    // POST http://localhost:8080/api/checkout/reservations  {"items": [{"productId": 1, "quantity": 2}]}
+    @PostMapping
+    public ResponseEntity<?> reserve(@Valid @RequestBody ReserveStockRequestDTO request, Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser currentUser)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "User not authenticated"));
+        }
+        try {
+            StockReservationDTO reservation = stockReservationService.reserve(currentUser.getId(), request.getItems());
+            return new ResponseEntity<>(reservation, HttpStatus.CREATED);
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // DELETE http://localhost:8080/api/checkout/reservations/{reservationId} -> trả hàng lại kho ngay
+    @DeleteMapping("/{reservationId}")
+    public ResponseEntity<?> release(@PathVariable String reservationId, Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser currentUser)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "User not authenticated"));
+        }
+        if (!stockReservationService.release(reservationId, currentUser.getId())) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Stock reservation not found or already expired."));
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,27 @@
+package com.kpop.Clz.controller;
+
+import com.kpop.Clz.service.FileStorageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/storage")
+@CrossOrigin(origins = "http://localhost:3000")
+public class StorageAdminController {
+
+    private final FileStorageService fileStorageService;
+
+    @Autowired
+    public StorageAdminController(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+    }
+
+    // GET http://localhost:8080/api/admin/storage/usage
+    @GetMapping("/usage")
+    public ResponseEntity<Map<String, Object>> getDiskUsage() {
+        return ResponseEntity.ok(fileStorageService.getDiskUsageReport());
+    }
+}
@@ -2,6 +2,7 @@ package com.kpop.Clz.controller;
 
 import com.kpop.Clz.dto.UserDto;
 import com.kpop.Clz.model.User;
+import com.kpop.Clz.service.AuthenticatedUser;
 import com.kpop.Clz.service.UserService;
 import com.kpop.Clz.dto.UserProfileUpdateRequestDto;
 import com.kpop.Clz.exception.ResourceNotFoundException;
@@ -37,6 +38,10 @@ public class UserController {
         String userIdentifier;
         Object principal = authentication.getPrincipal();
 
+        if (principal instanceof AuthenticatedUser authenticatedUser) {
+            return ResponseEntity.ok(authenticatedUser.toUserDto());
+        }
+
         if (principal instanceof UserDetails) {
             userIdentifier = ((UserDetails) principal).getUsername();
         } else if (principal instanceof String) {
@@ -77,6 +82,16 @@ public class UserController {
         Object principal = authentication.getPrincipal();
         String currentUsername;
 
+        if (principal instanceof AuthenticatedUser authenticatedUser) {
+            if (!authenticatedUser.getId().equals(userId)) {
+                logger.warn("User {} (ID: {}) attempted to update profile of user ID {} without permission.",
+                        authenticatedUser.getEmail(), authenticatedUser.getId(), userId);
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("message", "You do not have permission to update this profile."));
+            }
+            return doUpdateUserProfile(userId, requestDto);
+        }
+
         if (principal instanceof UserDetails) {
             currentUsername = ((UserDetails) principal).getUsername();
         } else if (principal instanceof String) {
@@ -99,6 +114,10 @@ public class UserController {
                     .body(Map.of("message", "You do not have permission to update this profile."));
         }
 
+        return doUpdateUserProfile(userId, requestDto);
+    }
+
+    private ResponseEntity<?> doUpdateUserProfile(Integer userId, UserProfileUpdateRequestDto requestDto) {
         try {
             User updatedUser = userService.updateUserProfile(userId, requestDto);
             UserDto updatedUserDto = UserDto.fromUser(updatedUser);
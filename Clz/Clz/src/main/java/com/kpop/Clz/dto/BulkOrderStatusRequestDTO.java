@@ -0,0 +1,23 @@
+package com.kpop.Clz.dto;
+
+import com.kpop.Clz.model.Order;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class BulkOrderStatusRequestDTO {
+    @NotEmpty(message = "Order IDs cannot be empty")
+    @Size(max = 20000, message = "At most 20000 orders per request")
+    private List<@NotNull Integer> orderIds;
+
+    @NotNull(message = "Target status is required")
+    private Order.OrderStatus targetStatus;
+}
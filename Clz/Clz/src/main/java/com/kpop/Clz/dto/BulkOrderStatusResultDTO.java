@@ -0,0 +1,21 @@
+package com.kpop.Clz.dto;
+
+import com.kpop.Clz.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOrderStatusResultDTO {
+    private Order.OrderStatus targetStatus;
+    private int requested;          // số id khác nhau trong request
+    private int updated;
+    private int restockedProducts;  // số sản phẩm được cộng lại kho (chỉ khi hủy đơn)
+    private List<OrderTransitionFailureDTO> failures;
+}
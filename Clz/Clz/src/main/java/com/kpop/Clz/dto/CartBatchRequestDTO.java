@@ -0,0 +1,20 @@
+package com.kpop.Clz.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class CartBatchRequestDTO {
+    @NotEmpty(message = "Operations cannot be empty")
+    @Size(max = 200, message = "At most 200 operations per batch")
+    private List<@Valid @NotNull CartOperationDTO> operations;
+}
@@ -0,0 +1,18 @@
+package com.kpop.Clz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+// Giỏ sau khi áp dụng batch + kết quả từng thao tác (thao tác lỗi bị bỏ qua, các thao tác khác vẫn được áp dụng)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartBatchResultDTO {
+    private CartDTO cart;
+    private List<CartOperationResultDTO> results;
+}
@@ -1,14 +1,12 @@
 package com.kpop.Clz.dto;
 
 import com.kpop.Clz.model.Order;
-import com.kpop.Clz.model.OrderItem;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -36,16 +34,14 @@ public class CartDTO {
             this.userId = order.getUser().getId();
         }
 
+        // orderItems đã theo thứ tự id (@OrderBy), item mới thêm nằm cuối
         this.items = (order.getOrderItems() != null)
                 ? order.getOrderItems().stream()
-                .sorted(Comparator.comparing(OrderItem::getId, Comparator.nullsLast(Comparator.naturalOrder())))
                 .map(CartItemDTO::new)
                 .collect(Collectors.toList())
                 : new ArrayList<>();
 
-        this.totalQuantity = (order.getOrderItems() != null)
-                ? order.getOrderItems().stream().mapToInt(OrderItem::getQuantity).sum()
-                : 0;
+        this.totalQuantity = order.getTotalQuantity();
         this.totalAmount = order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO;
         this.status = order.getStatus() != null ? order.getStatus().name() : Order.OrderStatus.PENDING.name();
     }
@@ -0,0 +1,23 @@
+package com.kpop.Clz.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Một thao tác trong batch giỏ hàng: ADD dùng productId, UPDATE/REMOVE dùng itemId
+@Getter
+@Setter
+@NoArgsConstructor
+public class CartOperationDTO {
+
+    public enum Type {
+        ADD, UPDATE, REMOVE
+    }
+
+    @NotNull(message = "Operation type cannot be null")
+    private Type type;
+    private Long productId;
+    private Integer itemId;
+    private Integer quantity;
+}
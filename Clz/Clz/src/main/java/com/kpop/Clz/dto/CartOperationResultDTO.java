@@ -0,0 +1,30 @@
+package com.kpop.Clz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperationResultDTO {
+
+    public static final String INSUFFICIENT_STOCK = "INSUFFICIENT_STOCK";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String INVALID = "INVALID";
+
+    private int index;              // vị trí trong danh sách operations
+    private boolean applied;
+    private String error;           // null nếu applied
+    private String message;
+
+    public static CartOperationResultDTO applied(int index) {
+        return new CartOperationResultDTO(index, true, null, null);
+    }
+
+    public static CartOperationResultDTO failed(int index, String error, String message) {
+        return new CartOperationResultDTO(index, false, error, message);
+    }
+}
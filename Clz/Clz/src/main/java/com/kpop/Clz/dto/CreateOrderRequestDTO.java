@@ -9,6 +9,7 @@ public class CreateOrderRequestDTO {
     private String selectedProvince;
     private String phoneNumber;
     private BigDecimal frontendCalculatedShippingFee;
+    private String reservationId; // tùy chọn: id từ POST /api/checkout/reservations
 
     public CreateOrderRequestDTO() {}
 
@@ -59,4 +60,12 @@ public class CreateOrderRequestDTO {
     public void setFrontendCalculatedShippingFee(BigDecimal frontendCalculatedShippingFee) {
         this.frontendCalculatedShippingFee = frontendCalculatedShippingFee;
     }
+
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(String reservationId) {
+        this.reservationId = reservationId;
+    }
 }
\ No newline at end of file
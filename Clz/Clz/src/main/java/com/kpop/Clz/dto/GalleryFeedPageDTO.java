@@ -0,0 +1,20 @@
+package com.kpop.Clz.dto;
+
+import com.kpop.Clz.model.GalleryPost;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class GalleryFeedPageDTO {
+    private List<GalleryPost> items;
+    // giá trị truyền vào ?before= để lấy trang kế tiếp (null nếu hết)
+    private String nextBefore;
+    private boolean hasMore;
+}
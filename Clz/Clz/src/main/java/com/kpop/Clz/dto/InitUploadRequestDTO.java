@@ -0,0 +1,22 @@
+package com.kpop.Clz.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+public class InitUploadRequestDTO {
+    @NotBlank(message = "File name cannot be blank")
+    private String fileName;
+
+    @Min(value = 1, message = "Total size must be at least 1 byte")
+    private long totalSize;
+
+    private String sha256; // không bắt buộc, có thể gửi lúc complete
+
+    // Getters and Setters
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public long getTotalSize() { return totalSize; }
+    public void setTotalSize(long totalSize) { this.totalSize = totalSize; }
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+}
@@ -0,0 +1,27 @@
+package com.kpop.Clz.dto;
+
+import com.kpop.Clz.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+// Phần đầu đơn hàng đọc thẳng bằng projection (không load entity Order/OrderItem)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHeaderRowDTO {
+    private Integer id;
+    private Timestamp orderDate;
+    private String orderCode;
+    private BigDecimal totalAmount;
+    private BigDecimal shippingFee;
+    private BigDecimal grandTotal;
+    private Order.OrderStatus status;
+    private String shippingAddress;
+    private String phoneNumber;
+}
@@ -0,0 +1,19 @@
+package com.kpop.Clz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHistoryPageDTO {
+    private List<OrderDTO> items;
+    // giá trị truyền vào ?before= để lấy trang kế tiếp (null nếu hết)
+    private Integer nextBefore;
+    private boolean hasMore;
+}
@@ -0,0 +1,26 @@
+package com.kpop.Clz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+// Một dòng item của đơn hàng kèm orderId để gom theo đơn
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderItemRowDTO {
+    private Integer orderId;
+    private Long productId;
+    private String productName;
+    private String imageUrl;
+    private int quantity;
+    private BigDecimal unitPrice;
+
+    public OrderItemDTO toOrderItemDTO() {
+        return new OrderItemDTO(productId, productId != null ? productName : "N/A", imageUrl, quantity, unitPrice);
+    }
+}
@@ -0,0 +1,22 @@
+package com.kpop.Clz.dto;
+
+import com.kpop.Clz.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderTransitionFailureDTO {
+
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String INVALID_TRANSITION = "INVALID_TRANSITION";
+
+    private Integer orderId;
+    private Order.OrderStatus currentStatus; // null nếu không tìm thấy đơn
+    private String error;
+    private String message;
+}
@@ -0,0 +1,21 @@
+package com.kpop.Clz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResultDTO {
+    private boolean dryRun;
+    private int totalRows;
+    private int validRows;
+    private int importedRows;       // luôn 0 khi dryRun
+    private int errorCount;
+    private List<ProductImportErrorDTO> errors; // tối đa app.products.import.max-reported-errors lỗi đầu tiên
+}
@@ -0,0 +1,22 @@
+package com.kpop.Clz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Một dòng import thô (CSV hoặc JSON), mọi field giữ dạng chuỗi để lỗi kiểu dữ liệu được báo theo từng dòng
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportRowDTO {
+    private int row;                // số thứ tự bản ghi trong file, bắt đầu từ 1 (không tính header CSV)
+    private String name;
+    private String groupName;
+    private String member;
+    private String description;
+    private String price;
+    private String imageUrl;
+    private String stockQuantity;
+}
@@ -0,0 +1,22 @@
+package com.kpop.Clz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResultDTO {
+    private String query;
+    private long totalHits;
+    private int page;
+    private int size;
+    private List<ProductSummaryDTO> items;          // theo thứ tự điểm liên quan
+    private Map<String, List<FacetCountDTO>> facets; // "group", "member": đếm như thể bộ lọc của chính chiều đó chưa áp dụng
+}
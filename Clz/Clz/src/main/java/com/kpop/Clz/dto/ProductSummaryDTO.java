@@ -0,0 +1,23 @@
+package com.kpop.Clz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+// Bản rút gọn của Product cho trang danh sách (không có description)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSummaryDTO {
+    private Long id;
+    private String name;
+    private Integer groupId;
+    private String member;
+    private BigDecimal price;
+    private String imageUrl;
+    private int stockQuantity;
+}
@@ -0,0 +1,17 @@
+package com.kpop.Clz.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ReserveStockRequestDTO {
+    @NotEmpty(message = "Items cannot be empty")
+    private List<@Valid CartItemInputDTO> items;
+}
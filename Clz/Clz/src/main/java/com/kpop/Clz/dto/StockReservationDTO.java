@@ -0,0 +1,19 @@
+package com.kpop.Clz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationDTO {
+    private String reservationId;   // gửi kèm trong CreateOrderRequestDTO.reservationId khi đặt hàng
+    private LocalDateTime expiresAt;
+    private Map<Long, Integer> quantities; // productId -> số lượng đang giữ
+}
@@ -9,7 +9,9 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.sql.Timestamp;
 
 @Entity
-@Table(name = "gallery_posts")
+@Table(name = "gallery_posts", indexes = {
+        @Index(name = "idx_gallery_posts_posted_at_id", columnList = "posted_at, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
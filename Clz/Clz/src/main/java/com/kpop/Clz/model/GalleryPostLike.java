@@ -0,0 +1,46 @@
+package com.kpop.Clz.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.util.Date;
+
+// Mỗi user chỉ like 1 post 1 lần (khóa chính post_id + user_id)
+@Entity
+@Table(name = "gallery_post_likes")
+@Getter
+@Setter
+@NoArgsConstructor
+public class GalleryPostLike implements Persistable<GalleryPostLikeId> {
+
+    @EmbeddedId
+    private GalleryPostLikeId id;
+
+    @CreationTimestamp
+    @Column(name = "liked_at", nullable = false, updatable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date likedAt;
+
+    // id tự gán => báo cho Spring Data dùng persist (INSERT) thay vì merge (SELECT rồi UPDATE)
+    @Transient
+    private boolean isNew = true;
+
+    public GalleryPostLike(Integer postId, Integer userId) {
+        this.id = new GalleryPostLikeId(postId, userId);
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
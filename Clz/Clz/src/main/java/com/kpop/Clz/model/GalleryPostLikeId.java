@@ -0,0 +1,26 @@
+package com.kpop.Clz.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class GalleryPostLikeId implements Serializable {
+
+    @Column(name = "post_id")
+    private Integer postId;
+
+    @Column(name = "user_id")
+    private Integer userId;
+}
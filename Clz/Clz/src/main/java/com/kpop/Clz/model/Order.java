@@ -16,11 +16,19 @@ import java.util.Set;
 
 @Entity
 @Table(name = "orders")
+// Mọi association đều LAZY; use case nào cần item + product thì dùng graph này hoặc fetch join trong OrderRepository
+@NamedEntityGraph(
+        name = Order.GRAPH_ITEMS_WITH_PRODUCTS,
+        attributeNodes = @NamedAttributeNode(value = "orderItems", subgraph = "items"),
+        subgraphs = @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode("product"))
+)
 @Getter
 @Setter
 @NoArgsConstructor
 public class Order {
 
+    public static final String GRAPH_ITEMS_WITH_PRODUCTS = "Order.itemsWithProducts";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
@@ -36,6 +44,11 @@ public class Order {
     @Column(name = "total_amount", precision = 10, scale = 2)
     private BigDecimal totalAmount = BigDecimal.ZERO;
 
+    // Tổng số lượng sp, giữ cùng total_amount (giỏ hàng cập nhật theo delta, CartTotalsReconciler sửa lệch)
+    @Column(name = "total_quantity", nullable = false)
+    @ColumnDefault("0")
+    private int totalQuantity = 0;
+
     @Enumerated(EnumType.STRING)
     @Column(length = 10, nullable = false)
     @ColumnDefault("'pending'")
@@ -58,7 +71,7 @@ public class Order {
 
 
     // Set for uncertain order
-    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @JsonManagedReference
     @OrderBy("id ASC")
     private List<OrderItem> orderItems = new ArrayList<>();
@@ -73,7 +86,17 @@ public class Order {
         PAID,
         SHIPPED,
         COMPLETED,
-        CANCELLED
+        CANCELLED;
+
+        // Luồng hợp lệ: PENDING -> PAID -> SHIPPED -> COMPLETED; hủy được khi chưa giao cho vận chuyển
+        public boolean canTransitionTo(OrderStatus next) {
+            return switch (this) {
+                case PENDING -> next == PAID || next == CANCELLED;
+                case PAID -> next == SHIPPED || next == CANCELLED;
+                case SHIPPED -> next == COMPLETED;
+                case CART, COMPLETED, CANCELLED -> false;
+            };
+        }
     }
 
     public void addOrderItem(OrderItem item) {
@@ -0,0 +1,73 @@
+package com.kpop.Clz.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Việc cần làm sau khi đặt hàng (mail xác nhận, thống kê); ghi cùng transaction với đơn hàng
+@Entity
+@Table(name = "order_outbox", indexes = {
+        @Index(name = "idx_order_outbox_status_next_attempt", columnList = "status, next_attempt_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 20, nullable = false)
+    private Type type;
+
+    @Column(name = "order_id", nullable = false)
+    private Integer orderId;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10, nullable = false)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    public static OrderOutboxEvent orderPlaced(Order order) {
+        OrderOutboxEvent event = new OrderOutboxEvent();
+        event.setType(Type.ORDER_PLACED);
+        event.setOrderId(order.getId());
+        event.setUserId(order.getUser().getId());
+        event.setNextAttemptAt(LocalDateTime.now());
+        return event;
+    }
+
+    public enum Type {
+        ORDER_PLACED
+    }
+
+    public enum Status {
+        PENDING,
+        DONE,
+        FAILED
+    }
+}
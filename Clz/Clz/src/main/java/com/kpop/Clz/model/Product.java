@@ -7,7 +7,11 @@ import lombok.*; // Import các annotation cần thiết
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_price_id", columnList = "price, id"),
+        @Index(name = "idx_products_name_id", columnList = "name, id"),
+        @Index(name = "idx_products_group_id_id", columnList = "group_id, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,41 @@
+package com.kpop.Clz.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Một dòng giữ hàng: reservationId gom các sp của cùng 1 lần bắt đầu checkout; kho đã được trừ sẵn trong products
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_stock_reservations_reservation_id", columnList = "reservation_id"),
+        // reserve() khóa các dòng của user (SELECT ... WHERE user_id = ? FOR UPDATE): không có index thì InnoDB khóa cả bảng
+        @Index(name = "idx_stock_reservations_user_id", columnList = "user_id"),
+        @Index(name = "idx_stock_reservations_expires_at", columnList = "expires_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "reservation_id", nullable = false, length = 36)
+    private String reservationId;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
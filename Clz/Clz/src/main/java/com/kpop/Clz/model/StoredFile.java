@@ -0,0 +1,42 @@
+package com.kpop.Clz.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Một blob trong store địa chỉ theo nội dung (SHA-256); refCount = số field ảnh (GalleryPost/User/Product) đang trỏ tới
+@Entity
+@Table(name = "stored_files", indexes = {
+        @Index(name = "idx_stored_files_ref_count_last_uploaded", columnList = "ref_count, last_uploaded_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class StoredFile {
+
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(name = "relative_path", nullable = false, length = 255)
+    private String relativePath;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    // số lần được upload (kể cả lần trùng), để tính dung lượng tiết kiệm được
+    @Column(name = "upload_count", nullable = false)
+    private int uploadCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_uploaded_at", nullable = false)
+    private LocalDateTime lastUploadedAt;
+}
@@ -0,0 +1,17 @@
+package com.kpop.Clz.repository;
+
+import com.kpop.Clz.model.GalleryPostLike;
+import com.kpop.Clz.model.GalleryPostLikeId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface GalleryPostLikeRepository extends JpaRepository<GalleryPostLike, GalleryPostLikeId> {
+
+    @Modifying
+    @Query("DELETE FROM GalleryPostLike l WHERE l.id.postId = :postId AND l.id.userId = :userId")
+    int deleteLike(@Param("postId") Integer postId, @Param("userId") Integer userId);
+}
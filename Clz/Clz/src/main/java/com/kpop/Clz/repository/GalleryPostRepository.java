@@ -1,11 +1,29 @@
 package com.kpop.Clz.repository;
 
 import com.kpop.Clz.model.GalleryPost;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
 import java.util.List;
 
 @Repository
 public interface GalleryPostRepository extends JpaRepository<GalleryPost, Integer> {
     List<GalleryPost> findAllByOrderByPostedAtDesc();
+
+    // Feed theo cursor (posted_at, id) giảm dần, dùng index idx_gallery_posts_posted_at_id.
+    // Trang đầu và trang sau là 2 query riêng: dạng "(:before IS NULL OR ...)" làm index không dùng được cho điều kiện cursor.
+    @Query("SELECT p FROM GalleryPost p ORDER BY p.postedAt DESC, p.id DESC")
+    List<GalleryPost> findFeedFirstPage(Pageable limit);
+
+    // "posted_at <= :beforePostedAt" mở range scan trên index từ vị trí cursor; phần OR chỉ loại các dòng cùng posted_at
+    @Query("SELECT p FROM GalleryPost p " +
+            "WHERE p.postedAt <= :beforePostedAt AND (p.postedAt < :beforePostedAt OR p.id < :beforeId) " +
+            "ORDER BY p.postedAt DESC, p.id DESC")
+    List<GalleryPost> findFeedPageBefore(@Param("beforePostedAt") Timestamp beforePostedAt,
+                                         @Param("beforeId") Integer beforeId,
+                                         Pageable limit);
 }
\ No newline at end of file
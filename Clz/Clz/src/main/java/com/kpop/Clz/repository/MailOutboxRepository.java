@@ -0,0 +1,18 @@
+package com.kpop.Clz.repository;
+
+import com.kpop.Clz.model.MailOutboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MailOutboxRepository extends JpaRepository<MailOutboxMessage, Long> {
+
+    List<MailOutboxMessage> findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+            MailOutboxMessage.Status status, LocalDateTime now, Pageable limit);
+
+    long countByStatus(MailOutboxMessage.Status status);
+}
@@ -0,0 +1,18 @@
+package com.kpop.Clz.repository;
+
+import com.kpop.Clz.model.OrderOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OrderOutboxRepository extends JpaRepository<OrderOutboxEvent, Long> {
+
+    List<OrderOutboxEvent> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+            OrderOutboxEvent.Status status, LocalDateTime now, Pageable limit);
+
+    long countByStatus(OrderOutboxEvent.Status status);
+}
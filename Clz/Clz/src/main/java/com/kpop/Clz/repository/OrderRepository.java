@@ -1,16 +1,58 @@
 package com.kpop.Clz.repository;
 
+import com.kpop.Clz.dto.OrderHeaderRowDTO;
+import com.kpop.Clz.dto.OrderItemRowDTO;
 import com.kpop.Clz.model.Order;
-import com.kpop.Clz.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Integer> {
-    Optional<Order> findByUserAndStatus(User user, Order.OrderStatus status);
-    List<Order> findByUserIdOrderByOrderDateDesc(Integer userId);
     boolean existsByOrderCode(String orderCode);
-}
\ No newline at end of file
+
+    // Giỏ hàng + item + product trong 1 câu SELECT (entity graph Order.itemsWithProducts), dùng cho mọi thao tác giỏ hàng.
+    // Viết JPQL để so sánh thẳng cột user_id, query suy ra từ tên method sẽ join sang bảng users.
+    @EntityGraph(Order.GRAPH_ITEMS_WITH_PRODUCTS)
+    Optional<Order> findWithItemsById(Integer id);
+
+    @EntityGraph(Order.GRAPH_ITEMS_WITH_PRODUCTS)
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId AND o.status = :status")
+    Optional<Order> findWithItemsByUserIdAndStatus(@Param("userId") Integer userId, @Param("status") Order.OrderStatus status);
+
+    // Lịch sử đơn hàng theo keyset trên id (mới nhất trước), bỏ giỏ hàng ngay trong câu query; dùng index (user_id, id)
+    @Query("SELECT new com.kpop.Clz.dto.OrderHeaderRowDTO(o.id, o.orderDate, o.orderCode, o.totalAmount, o.shippingFee, " +
+            "o.grandTotal, o.status, o.shippingAddress, o.phoneNumber) " +
+            "FROM Order o " +
+            "WHERE o.user.id = :userId AND o.status <> :excludedStatus " +
+            "AND (:beforeId IS NULL OR o.id < :beforeId) " +
+            "ORDER BY o.id DESC")
+    List<OrderHeaderRowDTO> findHeaderRowsByUserId(@Param("userId") Integer userId,
+                                                   @Param("excludedStatus") Order.OrderStatus excludedStatus,
+                                                   @Param("beforeId") Integer beforeId,
+                                                   Pageable limit);
+
+    // Item của nhiều đơn trong 1 câu SELECT, chỉ lấy các cột cần hiển thị của product (không có description)
+    @Query("SELECT new com.kpop.Clz.dto.OrderItemRowDTO(i.order.id, p.id, p.name, p.imageUrl, i.quantity, i.unitPrice) " +
+            "FROM OrderItem i LEFT JOIN i.product p " +
+            "WHERE i.order.id IN :orderIds " +
+            "ORDER BY i.id")
+    List<OrderItemRowDTO> findItemRowsByOrderIds(@Param("orderIds") Collection<Integer> orderIds);
+
+    // Xóa giỏ hàng bằng 2 câu DELETE, không load order/item vào bộ nhớ
+    @Modifying
+    @Query("DELETE FROM OrderItem i WHERE i.order.id IN (SELECT o.id FROM Order o WHERE o.user.id = :userId AND o.status = :status)")
+    int deleteItemsByUserIdAndStatus(@Param("userId") Integer userId, @Param("status") Order.OrderStatus status);
+
+    @Modifying
+    @Query("DELETE FROM Order o WHERE o.user.id = :userId AND o.status = :status")
+    int deleteByUserIdAndStatus(@Param("userId") Integer userId, @Param("status") Order.OrderStatus status);
+}
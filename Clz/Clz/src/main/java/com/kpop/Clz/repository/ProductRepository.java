@@ -1,13 +1,22 @@
 // src/main/java/com/kpop/Clz/repository/ProductRepository.java
 package com.kpop.Clz.repository;
 
+import com.kpop.Clz.dto.ProductSummaryDTO;
 import com.kpop.Clz.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
 import java.util.List; // Import List
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     List<Product> findByGroupId(Integer groupId); // tìm sp theo group
 
-}
\ No newline at end of file
+    // Kết quả tìm kiếm full-text: lấy summary theo id, thứ tự do service sắp lại theo điểm
+    @Query("SELECT new com.kpop.Clz.dto.ProductSummaryDTO(p.id, p.name, p.group.id, p.member, p.price, p.imageUrl, p.stockQuantity) " +
+            "FROM Product p WHERE p.id IN :ids")
+    List<ProductSummaryDTO> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+}
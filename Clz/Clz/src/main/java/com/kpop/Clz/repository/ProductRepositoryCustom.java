@@ -0,0 +1,22 @@
+package com.kpop.Clz.repository;
+
+import com.kpop.Clz.dto.ProductSummaryDTO;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+public interface ProductRepositoryCustom {
+
+    // Trừ (số dương) / trả lại (số âm) kho cho nhiều sản phẩm trong 1 JDBC batch, theo id tăng dần nên các transaction
+    // luôn khóa dòng products cùng một thứ tự. Trả về số dòng được update theo thứ tự của map
+    // (0 = không đủ hàng, UPDATE có điều kiện nên không bao giờ âm kho)
+    int[] applyStockDeltas(SortedMap<Long, Integer> takenByProductId);
+
+    // Cộng lại kho (giữ hàng hết hạn, hủy đơn...) trong 1 JDBC batch
+    int[] incrementStockBatch(Map<Long, Integer> quantitiesByProductId);
+
+    // Trang catalog theo keyset trên (sortProperty, id) tăng dần: "id", "price" hoặc "name".
+    // afterId null => trang đầu; groupId null => mọi group
+    List<ProductSummaryDTO> findSummaryPage(Integer groupId, String sortProperty, Object afterValue, Long afterId, int limit);
+}
@@ -0,0 +1,93 @@
+package com.kpop.Clz.repository;
+
+import com.kpop.Clz.dto.ProductSummaryDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    // delta âm (trả lại kho) luôn thỏa điều kiện vì stock_quantity >= 0
+    private static final String STOCK_DELTA_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+    private static final String INCREMENT_STOCK_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity + ? WHERE id = ?";
+
+    private static final Set<String> SORT_PROPERTIES = Set.of("id", "price", "name");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ProductRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int[] applyStockDeltas(SortedMap<Long, Integer> takenByProductId) {
+        if (takenByProductId.isEmpty()) {
+            return new int[0];
+        }
+        List<Object[]> args = new ArrayList<>(takenByProductId.size());
+        for (Map.Entry<Long, Integer> entry : takenByProductId.entrySet()) {
+            args.add(new Object[]{entry.getValue(), entry.getKey(), entry.getValue()});
+        }
+        return jdbcTemplate.batchUpdate(STOCK_DELTA_SQL, args);
+    }
+
+    @Override
+    public int[] incrementStockBatch(Map<Long, Integer> quantitiesByProductId) {
+        if (quantitiesByProductId.isEmpty()) {
+            return new int[0];
+        }
+        List<Object[]> args = new ArrayList<>(quantitiesByProductId.size());
+        for (Map.Entry<Long, Integer> entry : quantitiesByProductId.entrySet()) {
+            args.add(new Object[]{entry.getValue(), entry.getKey()});
+        }
+        return jdbcTemplate.batchUpdate(INCREMENT_STOCK_SQL, args);
+    }
+
+    // Chỉ thêm điều kiện thật sự có (group, cursor): trang đầu và trang sau là 2 câu SQL khác nhau,
+    // không dùng dạng "(:cursor IS NULL OR ...)" khiến optimizer không seek được theo index (sort, id)
+    @Override
+    public List<ProductSummaryDTO> findSummaryPage(Integer groupId, String sortProperty, Object afterValue, Long afterId, int limit) {
+        if (!SORT_PROPERTIES.contains(sortProperty)) {
+            throw new IllegalArgumentException("Unsupported sort property: " + sortProperty);
+        }
+        boolean byId = sortProperty.equals("id");
+        List<String> conditions = new ArrayList<>();
+        if (groupId != null) {
+            conditions.add("p.group.id = :groupId");
+        }
+        if (afterId != null) {
+            conditions.add(byId ? "p.id > :afterId"
+                    // ">=" mở range scan từ vị trí cursor, phần OR chỉ phân định các dòng cùng giá trị
+                    : "p." + sortProperty + " >= :afterValue AND (p." + sortProperty + " > :afterValue OR p.id > :afterId)");
+        }
+        String jpql = "SELECT new com.kpop.Clz.dto.ProductSummaryDTO(p.id, p.name, p.group.id, p.member, p.price, p.imageUrl, p.stockQuantity) " +
+                "FROM Product p" +
+                (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions)) +
+                (byId ? " ORDER BY p.id ASC" : " ORDER BY p." + sortProperty + " ASC, p.id ASC");
+
+        TypedQuery<ProductSummaryDTO> query = entityManager.createQuery(jpql, ProductSummaryDTO.class)
+                .setMaxResults(limit);
+        if (groupId != null) {
+            query.setParameter("groupId", groupId);
+        }
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+            if (!byId) {
+                query.setParameter("afterValue", afterValue);
+            }
+        }
+        return query.getResultList();
+    }
+}
@@ -48,6 +48,9 @@ public class AuthService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
 
     private final FileStorageService fileStorageService;
@@ -96,6 +99,7 @@ public class AuthService {
                 user.setResetToken(null); // Xóa token sau khi sd
                 user.setResetTokenExpiry(null);
                 userRepository.save(user);
+                userPrincipalCache.evict(user.getEmail());
                 logger.info("Mật khẩu đã được đặt lại thành công cho người dùng: {}", user.getUsername());
                 return true;
             } else {
@@ -0,0 +1,37 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.UserDto;
+import com.kpop.Clz.model.User;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+// Principal đặt vào SecurityContext, mang theo id + profile để controller khỏi query lại DB
+public class AuthenticatedUser extends org.springframework.security.core.userdetails.User {
+
+    private final Integer id;
+    private final String displayUsername;
+    private final String phoneNumber;
+    private final String avatarUrl;
+    private final User.Role role;
+
+    public AuthenticatedUser(User user, Collection<? extends GrantedAuthority> authorities) {
+        super(user.getEmail(), user.getPasswordHash(), authorities);
+        this.id = user.getId();
+        this.displayUsername = user.getUsername();
+        this.phoneNumber = user.getPhoneNumber();
+        this.avatarUrl = user.getAvatarUrl();
+        this.role = user.getRole();
+    }
+
+    public Integer getId() { return id; }
+    public String getEmail() { return getUsername(); }
+    public String getDisplayUsername() { return displayUsername; }
+    public String getPhoneNumber() { return phoneNumber; }
+    public String getAvatarUrl() { return avatarUrl; }
+    public User.Role getRole() { return role; }
+
+    public UserDto toUserDto() {
+        return new UserDto(id, displayUsername, getEmail(), phoneNumber, avatarUrl, role);
+    }
+}
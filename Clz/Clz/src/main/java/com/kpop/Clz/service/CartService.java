@@ -1,46 +1,64 @@
 package com.kpop.Clz.service;
 
 import com.kpop.Clz.dto.AddItemToCartRequestDTO;
+import com.kpop.Clz.dto.CartBatchResultDTO;
 import com.kpop.Clz.dto.CartDTO;
+import com.kpop.Clz.dto.CartOperationDTO;
+import com.kpop.Clz.dto.CartOperationResultDTO;
 import com.kpop.Clz.exception.InsufficientStockException;
 import com.kpop.Clz.exception.ResourceNotFoundException;
 import com.kpop.Clz.model.*;
 import com.kpop.Clz.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.UUID;
 
+// Mọi thao tác giỏ hàng: 1 SELECT (order + items + product theo user id), sửa tại chỗ, flush 1 lần.
+// Tổng tiền/tổng số lượng trên Order được cộng trừ theo delta của từng thao tác, không duyệt lại cả giỏ.
 @Service
 @RequiredArgsConstructor
 public class CartService {
 
+    private static final Logger logger = LoggerFactory.getLogger(CartService.class);
+
     private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
 
+    // app.cart.mode=memory: giỏ trong bộ nhớ phải bị bỏ cùng lúc với giỏ trong DB
+    @Autowired(required = false)
+    private InMemoryCartStore inMemoryCartStore;
+
     @Transactional(readOnly = true)
     public CartDTO getCartByUserId(Integer userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-
-        Optional<Order> pendingOrderOpt = orderRepository.findByUserAndStatus(user, Order.OrderStatus.CART);
-
-        if (pendingOrderOpt.isPresent()) {
-            Order pendingOrder = pendingOrderOpt.get();
-            return new CartDTO(pendingOrder);
-        } else {
-            return new CartDTO(userId);
-        }
+        return findCart(userId)
+                .map(CartDTO::new)
+                .orElseGet(() -> new CartDTO(userId));
     }
 
     @Transactional
     public CartDTO addItemToCart(Integer userId, AddItemToCartRequestDTO request) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+        Optional<Order> cartOpt = findCart(userId);
+
+        // sp đã có trong giỏ thì đã nằm trong persistence context, không query lại
         Product product = productRepository.findById(request.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + request.getProductId()));
 
@@ -48,8 +66,7 @@ public class CartService {
             throw new InsufficientStockException("Product " + product.getName() + " (ID: " + product.getId() + ") does not have enough stock. Requested: " + request.getQuantity() + ", Available: " + product.getStockQuantity());
         }
 
-        Order pendingOrder = orderRepository.findByUserAndStatus(user, Order.OrderStatus.CART)
-                .orElseGet(() -> createNewCartForUser(user));
+        Order pendingOrder = cartOpt.orElseGet(() -> createNewCartForUser(userId));
 
         Optional<OrderItem> existingItemOpt = pendingOrder.getOrderItems().stream()
                 .filter(item -> item.getProduct() != null && item.getProduct().getId().equals(product.getId()))
@@ -62,72 +79,83 @@ public class CartService {
                 throw new InsufficientStockException("Adding " + request.getQuantity() + " of " + product.getName() + " would exceed stock. Current in cart: " + existingItem.getQuantity() + ", Total requested: " + newQuantity + ", Available: " + product.getStockQuantity());
             }
             existingItem.setQuantity(newQuantity);
+            applyTotalsDelta(pendingOrder, existingItem.getUnitPrice(), request.getQuantity());
         } else {
             OrderItem newItem = new OrderItem();
-            newItem.setOrder(pendingOrder);
             newItem.setProduct(product);
             newItem.setQuantity(request.getQuantity());
             newItem.setUnitPrice(product.getPrice());
             pendingOrder.addOrderItem(newItem);
+            applyTotalsDelta(pendingOrder, newItem.getUnitPrice(), request.getQuantity());
         }
 
-        calculateOrderTotals(pendingOrder);
-        orderRepository.save(pendingOrder);
+        // flush ngay để item mới có id trong CartDTO
+        orderRepository.saveAndFlush(pendingOrder);
 
         return new CartDTO(pendingOrder);
     }
 
-    private Order createNewCartForUser(User user) {
+    // Chưa có giỏ: tạo mới, chỉ dùng reference của user (id lấy từ principal) nên không SELECT users
+    private Order createNewCartForUser(Integer userId) {
         Order newCart = new Order();
-        newCart.setUser(user);
+        newCart.setUser(userRepository.getReferenceById(userId));
         newCart.setStatus(Order.OrderStatus.CART);
+        newCart.setOrderCode("CART-" + UUID.randomUUID());
         newCart.setTotalAmount(BigDecimal.ZERO);
         newCart.setShippingFee(BigDecimal.ZERO);
         newCart.setGrandTotal(BigDecimal.ZERO);
         return orderRepository.save(newCart);
     }
 
-    private void calculateOrderTotals(Order order) {
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        if (order.getOrderItems() != null) {
-            for (OrderItem item : order.getOrderItems()) {
-                if (item.getUnitPrice() != null && item.getQuantity() > 0) {
-                    totalAmount = totalAmount.add(item.getUnitPrice().multiply(new BigDecimal(item.getQuantity())));
-                }
-            }
+    // Cộng dồn thay đổi số lượng của 1 item vào tổng của giỏ (quantityDelta âm khi giảm/xóa)
+    static void applyTotalsDelta(Order order, BigDecimal unitPrice, int quantityDelta) {
+        if (quantityDelta == 0) {
+            return;
+        }
+        order.setTotalQuantity(order.getTotalQuantity() + quantityDelta);
+        if (unitPrice != null) {
+            BigDecimal current = order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO;
+            order.setTotalAmount(current.add(unitPrice.multiply(BigDecimal.valueOf(quantityDelta))));
         }
-        order.setTotalAmount(totalAmount);
     }
 
     @Transactional
     public void clearCartAfterCheckout(User user) {
-        Optional<Order> cartOrderOpt = orderRepository.findByUserAndStatus(user, Order.OrderStatus.CART);
-        cartOrderOpt.ifPresent(cartOrder -> {
-            orderRepository.delete(cartOrder);
-            System.out.println("CartService: Cart (Order ID: " + cartOrder.getId() + ") cleared for user: " + user.getEmail());
-        });
+        clearCartAfterCheckout(user.getId());
     }
 
-
+    // Gọi trong transaction checkout của OrderService, trước khi ghi outbox
     @Transactional
-    public CartDTO updateItemQuantityInCart(Integer userId, Integer orderItemId, int newQuantity) {
-        // 1. Xác thực User
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+    public void clearCartAfterCheckout(Integer userId) {
+        if (inMemoryCartStore != null) {
+            inMemoryCartStore.discard(userId);
+            // request chen vào trước khi commit có thể đã load lại giỏ cũ: bỏ lần nữa sau commit
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        inMemoryCartStore.discard(userId);
+                    }
+                });
+            }
+        }
+        orderRepository.deleteItemsByUserIdAndStatus(userId, Order.OrderStatus.CART);
+        if (orderRepository.deleteByUserIdAndStatus(userId, Order.OrderStatus.CART) > 0) {
+            logger.debug("Cart cleared for user {}", userId);
+        }
+    }
 
-        // 2. Tìm OrderItem dựa trên orderItemId
-        OrderItem orderItem = orderItemRepository.findById(orderItemId)
-                .orElseThrow(() -> new ResourceNotFoundException("OrderItem not found with id: " + orderItemId));
 
-        // 3. Kiểm tra xem OrderItem này có thuộc về giỏ hàng (Order PENDING) của user không
-        Order pendingOrder = orderRepository.findByUserAndStatus(user, Order.OrderStatus.CART)
+    @Transactional
+    public CartDTO updateItemQuantityInCart(Integer userId, Integer orderItemId, int newQuantity) {
+        // 1. Lấy giỏ hàng (kèm item + product) của user
+        Order pendingOrder = findCart(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("No pending cart found for user: " + userId));
 
-        if (!orderItem.getOrder().getId().equals(pendingOrder.getId())) {
-            throw new SecurityException("OrderItem " + orderItemId + " does not belong to the current user's pending cart.");
-        }
+        // 2. Item phải thuộc giỏ của chính user này
+        OrderItem orderItem = findItemInCart(pendingOrder, orderItemId);
 
-        // 4. Kiểm tra Product và stock
+        // 3. Kiểm tra Product và stock
         Product product = orderItem.getProduct();
         if (product == null) {
             throw new ResourceNotFoundException("Product associated with this cart item no longer exists.");
@@ -137,37 +165,162 @@ public class CartService {
                     " exceeds available stock of " + product.getStockQuantity());
         }
 
-        // 5. Cập nhật số lượng
+        // 4. Cập nhật số lượng + tổng theo delta, dirty checking sẽ UPDATE khi commit
+        applyTotalsDelta(pendingOrder, orderItem.getUnitPrice(), newQuantity - orderItem.getQuantity());
         orderItem.setQuantity(newQuantity);
 
-        // 6. Tính toán lại tổng tiền cho Order
-        calculateOrderTotals(pendingOrder);
-        orderRepository.save(pendingOrder);
-
         return new CartDTO(pendingOrder);
     }
 
     @Transactional
     public CartDTO removeItemFromCart(Integer userId, Integer orderItemId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+        Order pendingOrder = findCart(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("No pending cart found for user: " + userId));
 
-        OrderItem orderItem = orderItemRepository.findById(orderItemId)
-                .orElseThrow(() -> new ResourceNotFoundException("OrderItem not found with id: " + orderItemId));
+        OrderItem orderItem = findItemInCart(pendingOrder, orderItemId);
 
-        Order pendingOrder = orderRepository.findByUserAndStatus(user, Order.OrderStatus.CART)
-                .orElseThrow(() -> new ResourceNotFoundException("No pending cart found for user: " + userId));
+        // orphanRemoval sẽ DELETE item khi flush
+        pendingOrder.getOrderItems().remove(orderItem);
+        applyTotalsDelta(pendingOrder, orderItem.getUnitPrice(), -orderItem.getQuantity());
 
-        if (!orderItem.getOrder().getId().equals(pendingOrder.getId())) {
-            throw new SecurityException("OrderItem " + orderItemId + " does not belong to the current user's pending cart.");
+        return new CartDTO(pendingOrder);
+    }
+
+    /**
+     * Áp dụng nhiều thao tác add/update/remove trong 1 transaction: 1 SELECT giỏ, 1 SELECT các sp mới,
+     * tồn kho mỗi sp chỉ đọc 1 lần rồi kiểm tra trong bộ nhớ, flush 1 lần.
+     * Thao tác lỗi (hết hàng, không tìm thấy, sai tham số) được báo theo từng vị trí và bỏ qua, không rollback cả batch.
+     */
+    @Transactional
+    public CartBatchResultDTO applyBatch(Integer userId, List<CartOperationDTO> operations) {
+        Optional<Order> cartOpt = findCart(userId);
+
+        Map<Long, Product> products = new HashMap<>();
+        cartOpt.ifPresent(cart -> cart.getOrderItems().stream()
+                .map(OrderItem::getProduct)
+                .filter(Objects::nonNull)
+                .forEach(product -> products.put(product.getId(), product)));
+        Set<Long> missing = new HashSet<>();
+        for (CartOperationDTO operation : operations) {
+            if (operation.getType() == CartOperationDTO.Type.ADD && operation.getProductId() != null
+                    && !products.containsKey(operation.getProductId())) {
+                missing.add(operation.getProductId());
+            }
+        }
+        if (!missing.isEmpty()) {
+            products.putAll(productRepository.findAllById(missing).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity())));
         }
 
-        pendingOrder.getOrderItems().remove(orderItem);
-        orderItemRepository.delete(orderItem);
+        Order cart = cartOpt.orElse(null);
+        List<CartOperationResultDTO> results = new ArrayList<>(operations.size());
+        boolean changed = false;
+        for (int i = 0; i < operations.size(); i++) {
+            CartOperationDTO operation = operations.get(i);
+            try {
+                validateOperation(operation);
+                switch (operation.getType()) {
+                    case ADD -> {
+                        Product product = products.get(operation.getProductId());
+                        if (product == null) {
+                            throw new ResourceNotFoundException("Product not found with id: " + operation.getProductId());
+                        }
+                        OrderItem existing = cart == null ? null : cart.getOrderItems().stream()
+                                .filter(item -> item.getProduct() != null && item.getProduct().getId().equals(product.getId()))
+                                .findFirst()
+                                .orElse(null);
+                        int newQuantity = (existing != null ? existing.getQuantity() : 0) + operation.getQuantity();
+                        if (newQuantity > product.getStockQuantity()) {
+                            throw new InsufficientStockException("Requested quantity " + newQuantity + " for product " + product.getName() +
+                                    " exceeds available stock of " + product.getStockQuantity());
+                        }
+                        if (existing != null) {
+                            existing.setQuantity(newQuantity);
+                            applyTotalsDelta(cart, existing.getUnitPrice(), operation.getQuantity());
+                        } else {
+                            if (cart == null) {
+                                cart = createNewCartForUser(userId);
+                            }
+                            OrderItem newItem = new OrderItem();
+                            newItem.setProduct(product);
+                            newItem.setQuantity(newQuantity);
+                            newItem.setUnitPrice(product.getPrice());
+                            cart.addOrderItem(newItem);
+                            applyTotalsDelta(cart, newItem.getUnitPrice(), newQuantity);
+                        }
+                    }
+                    case UPDATE -> {
+                        OrderItem item = findItemInCart(requireCart(cart, userId), operation.getItemId());
+                        Product product = item.getProduct();
+                        if (product == null) {
+                            throw new ResourceNotFoundException("Product associated with this cart item no longer exists.");
+                        }
+                        if (operation.getQuantity() > product.getStockQuantity()) {
+                            throw new InsufficientStockException("Requested quantity " + operation.getQuantity() + " for product " + product.getName() +
+                                    " exceeds available stock of " + product.getStockQuantity());
+                        }
+                        applyTotalsDelta(cart, item.getUnitPrice(), operation.getQuantity() - item.getQuantity());
+                        item.setQuantity(operation.getQuantity());
+                    }
+                    case REMOVE -> {
+                        Order current = requireCart(cart, userId);
+                        OrderItem item = findItemInCart(current, operation.getItemId());
+                        current.getOrderItems().remove(item);
+                        applyTotalsDelta(current, item.getUnitPrice(), -item.getQuantity());
+                    }
+                }
+                changed = true;
+                results.add(CartOperationResultDTO.applied(i));
+            } catch (InsufficientStockException | ResourceNotFoundException | IllegalArgumentException e) {
+                results.add(operationFailure(i, e));
+            }
+        }
 
-        calculateOrderTotals(pendingOrder);
-        orderRepository.save(pendingOrder);
+        if (cart == null) {
+            return new CartBatchResultDTO(new CartDTO(userId), results);
+        }
+        if (changed) {
+            // flush để item mới có id trong CartDTO
+            orderRepository.saveAndFlush(cart);
+        }
+        return new CartBatchResultDTO(new CartDTO(cart), results);
+    }
 
-        return new CartDTO(pendingOrder);
+    static void validateOperation(CartOperationDTO operation) {
+        if (operation.getType() == CartOperationDTO.Type.ADD && operation.getProductId() == null) {
+            throw new IllegalArgumentException("productId is required for ADD.");
+        }
+        if (operation.getType() != CartOperationDTO.Type.ADD && operation.getItemId() == null) {
+            throw new IllegalArgumentException("itemId is required for " + operation.getType() + ".");
+        }
+        if (operation.getType() != CartOperationDTO.Type.REMOVE
+                && (operation.getQuantity() == null || operation.getQuantity() < 1)) {
+            throw new IllegalArgumentException("Quantity must be at least 1.");
+        }
+    }
+
+    static CartOperationResultDTO operationFailure(int index, RuntimeException e) {
+        String error = e instanceof InsufficientStockException ? CartOperationResultDTO.INSUFFICIENT_STOCK
+                : e instanceof ResourceNotFoundException ? CartOperationResultDTO.NOT_FOUND
+                : CartOperationResultDTO.INVALID;
+        return CartOperationResultDTO.failed(index, error, e.getMessage());
+    }
+
+    private static Order requireCart(Order cart, Integer userId) {
+        if (cart == null) {
+            throw new ResourceNotFoundException("No pending cart found for user: " + userId);
+        }
+        return cart;
+    }
+
+    private Optional<Order> findCart(Integer userId) {
+        return orderRepository.findWithItemsByUserIdAndStatus(userId, Order.OrderStatus.CART);
+    }
+
+    private OrderItem findItemInCart(Order cart, Integer orderItemId) {
+        return cart.getOrderItems().stream()
+                .filter(item -> orderItemId.equals(item.getId()))
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("OrderItem " + orderItemId + " not found in the current user's cart."));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+package com.kpop.Clz.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Kiểm tra định kỳ total_amount/total_quantity của các giỏ (status CART) so với order_items.
+ * CartService chỉ cộng trừ delta nên lệch có thể xảy ra (sửa tay trong DB, dòng cũ trước khi có total_quantity, ...);
+ * giỏ lệch được tính lại bằng 1 câu UPDATE có subquery để không ghi đè bằng số liệu đã cũ.
+ */
+@Service
+public class CartTotalsReconciler implements StatsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartTotalsReconciler.class);
+
+    private static final String FIND_DRIFTED_CARTS =
+            "SELECT o.id FROM orders o LEFT JOIN order_items i ON i.order_id = o.id " +
+            "WHERE o.status = 'CART' " +
+            "GROUP BY o.id, o.total_amount, o.total_quantity " +
+            "HAVING COALESCE(o.total_amount, 0) <> COALESCE(SUM(i.unit_price * i.quantity), 0) " +
+            "OR o.total_quantity <> COALESCE(SUM(i.quantity), 0)";
+
+    private static final String RECOMPUTE_CART =
+            "UPDATE orders SET " +
+            "total_amount = (SELECT COALESCE(SUM(i.unit_price * i.quantity), 0) FROM order_items i WHERE i.order_id = ?), " +
+            "total_quantity = (SELECT COALESCE(SUM(i.quantity), 0) FROM order_items i WHERE i.order_id = ?) " +
+            "WHERE id = ? AND status = 'CART'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder repairedCarts = new LongAdder();
+
+    public CartTotalsReconciler(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.totals.reconcile-interval-ms:3600000}",
+            initialDelayString = "${app.cart.totals.reconcile-initial-delay-ms:60000}")
+    public int reconcileCartTotals() {
+        runs.increment();
+        List<Integer> drifted = jdbcTemplate.queryForList(FIND_DRIFTED_CARTS, Integer.class);
+        if (drifted.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(RECOMPUTE_CART, drifted.stream()
+                .map(id -> new Object[]{id, id, id})
+                .toList());
+        repairedCarts.add(drifted.size());
+        logger.warn("Recomputed totals of {} cart(s) that drifted from their items: {}", drifted.size(),
+                drifted.size() > 20 ? drifted.subList(0, 20) + "..." : drifted);
+        return drifted.size();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "runs", runs.sum(),
+                "repairedCarts", repairedCarts.sum()
+        );
+    }
+}
@@ -0,0 +1,254 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.UploadSessionDTO;
+import com.kpop.Clz.exception.ResourceNotFoundException;
+import com.kpop.Clz.model.UploadSession;
+import com.kpop.Clz.repository.UploadSessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Upload theo chunk, resume được: init -> append chunk (PUT theo offset) -> complete.
+ * Mỗi chunk được stream thẳng từ request vào file .part (FileChannel), không qua multipart buffer.
+ * SHA-256 được tính dần khi chunk đến đúng thứ tự; nếu mất trạng thái (restart, chunk lỗi giữa chừng) thì complete sẽ hash lại từ đĩa.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final FileStorageService fileStorageService;
+
+    @Value("${app.uploads.chunked.max-file-size-bytes:52428800}")
+    private long maxFileSize;
+
+    @Value("${app.uploads.chunked.max-chunk-bytes:8388608}")
+    private long maxChunkSize;
+
+    @Value("${app.uploads.chunked.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    // Trạng thái hash đang chạy theo session + khóa để các chunk của cùng session không ghi chồng nhau
+    private final Map<String, RunningDigest> digests = new ConcurrentHashMap<>();
+
+    public ChunkedUploadService(UploadSessionRepository uploadSessionRepository, FileStorageService fileStorageService) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.fileStorageService = fileStorageService;
+    }
+
+    public UploadSessionDTO initSession(Integer userId, String fileName, long totalSize, String expectedSha256) {
+        if (!StringUtils.hasText(fileName) || fileName.contains("..") || fileName.contains("/") || fileName.contains("\\")) {
+            throw new IllegalArgumentException("Invalid file name.");
+        }
+        if (totalSize <= 0 || totalSize > maxFileSize) {
+            throw new IllegalArgumentException("File size must be between 1 and " + maxFileSize + " bytes.");
+        }
+        if (expectedSha256 != null && !expectedSha256.matches("(?i)[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("sha256 must be 64 hex characters.");
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setUserId(userId);
+        session.setFileName(fileName);
+        session.setTotalSize(totalSize);
+        session.setExpectedSha256(expectedSha256 != null ? expectedSha256.toLowerCase(Locale.ROOT) : null);
+        try {
+            Files.createFile(partFile(session.getId()));
+        } catch (IOException e) {
+            throw new RuntimeException("Không thể tạo file tạm cho upload.", e);
+        }
+        uploadSessionRepository.save(session);
+        digests.put(session.getId(), new RunningDigest());
+        return toDto(session, 0);
+    }
+
+    public UploadSessionDTO getSession(String uploadId, Integer userId) {
+        UploadSession session = findSession(uploadId, userId);
+        return toDto(session, receivedBytes(uploadId));
+    }
+
+    /**
+     * Ghi chunk tại offset; offset phải bằng số byte đã nhận (append-only), sai thì IllegalStateException kèm offset đúng.
+     * Client mất kết nối giữa chừng thì phần đã ghi được giữ lại, lần sau resume từ receivedBytes.
+     */
+    public UploadSessionDTO appendChunk(String uploadId, Integer userId, long offset, InputStream body) throws IOException {
+        UploadSession session = findSession(uploadId, userId);
+        RunningDigest running = digests.computeIfAbsent(uploadId, id -> new RunningDigest());
+
+        synchronized (running) {
+            Path part = partFile(uploadId);
+            long received = receivedBytes(uploadId);
+            if (offset != received) {
+                throw new IllegalStateException("Expected offset " + received + " but got " + offset + ".");
+            }
+            long allowed = Math.min(maxChunkSize, session.getTotalSize() - received);
+            if (allowed <= 0) {
+                throw new IllegalStateException("Upload already has all " + session.getTotalSize() + " bytes.");
+            }
+
+            // chỉ hash tiếp được nếu digest đang đúng ở cuối file
+            boolean hashing = running.digest != null && running.hashedBytes == received;
+            if (!hashing) {
+                running.digest = null;
+            }
+            InputStream source = hashing ? new DigestInputStream(body, running.digest) : body;
+            long written = 0;
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE);
+                 ReadableByteChannel in = Channels.newChannel(source)) {
+                written = channel.transferFrom(in, received, allowed);
+                // còn dữ liệu sau giới hạn => chunk quá lớn
+                if (written == allowed && in.read(ByteBuffer.allocate(1)) > 0) {
+                    channel.truncate(received);
+                    written = 0;
+                    throw new IllegalArgumentException("Chunk exceeds " + allowed + " bytes allowed at offset " + received + ".");
+                }
+            } catch (IOException | RuntimeException e) {
+                // không chắc digest khớp với dữ liệu trên đĩa nữa: bỏ, complete sẽ hash lại
+                running.digest = null;
+                throw e;
+            } finally {
+                if (hashing && running.digest != null) {
+                    running.hashedBytes = received + written;
+                }
+            }
+            // chạm updated_at để phiên đang hoạt động không bị dọn
+            session.setUpdatedAt(LocalDateTime.now());
+            uploadSessionRepository.save(session);
+            return toDto(session, received + written);
+        }
+    }
+
+    // Kiểm tra đủ byte + checksum rồi move file .part vào store (không copy lại); trả về URL ảnh
+    public String completeSession(String uploadId, Integer userId, String sha256) throws IOException {
+        UploadSession session = findSession(uploadId, userId);
+        RunningDigest running = digests.computeIfAbsent(uploadId, id -> new RunningDigest());
+
+        synchronized (running) {
+            Path part = partFile(uploadId);
+            long received = receivedBytes(uploadId);
+            if (received != session.getTotalSize()) {
+                throw new IllegalStateException("Upload incomplete: received " + received + " of " + session.getTotalSize() + " bytes.");
+            }
+
+            String actual;
+            if (running.digest != null && running.hashedBytes == received) {
+                actual = HexFormat.of().formatHex(running.digest.digest());
+            } else {
+                actual = hashFile(part);
+            }
+            running.digest = null;
+
+            String expected = sha256 != null ? sha256.toLowerCase(Locale.ROOT) : session.getExpectedSha256();
+            if (expected != null && !expected.equals(actual)) {
+                // dữ liệu hỏng: hủy phiên để client upload lại từ đầu
+                discard(session);
+                throw new IllegalArgumentException("Checksum mismatch: expected " + expected + " but was " + actual + ".");
+            }
+
+            String url = fileStorageService.storeCompletedFile(part, session.getFileName(), actual, received);
+            uploadSessionRepository.delete(session);
+            digests.remove(uploadId);
+            logger.info("Chunked upload {} hoàn tất ({} bytes) -> {}", uploadId, received, url);
+            return url;
+        }
+    }
+
+    public void abortSession(String uploadId, Integer userId) {
+        discard(findSession(uploadId, userId));
+    }
+
+    // Dọn các phiên bỏ dở quá TTL
+    @Scheduled(fixedDelayString = "${app.uploads.chunked.cleanup-interval-ms:3600000}")
+    public void purgeStaleSessions() {
+        for (UploadSession session : uploadSessionRepository.findByUpdatedAtBefore(LocalDateTime.now().minusHours(sessionTtlHours))) {
+            discard(session);
+        }
+    }
+
+    private void discard(UploadSession session) {
+        digests.remove(session.getId());
+        try {
+            Files.deleteIfExists(partFile(session.getId()));
+        } catch (IOException e) {
+            logger.warn("Không xóa được file tạm của upload {}: {}", session.getId(), e.getMessage());
+        }
+        uploadSessionRepository.delete(session);
+    }
+
+    private UploadSession findSession(String uploadId, Integer userId) {
+        UploadSession session = uploadSessionRepository.findById(uploadId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload session not found: " + uploadId));
+        if (!session.getUserId().equals(userId)) {
+            // không lộ sự tồn tại của phiên của người khác
+            throw new ResourceNotFoundException("Upload session not found: " + uploadId);
+        }
+        return session;
+    }
+
+    private long receivedBytes(String uploadId) {
+        try {
+            return Files.size(partFile(uploadId));
+        } catch (IOException e) {
+            throw new ResourceNotFoundException("Upload data missing for session: " + uploadId);
+        }
+    }
+
+    private Path partFile(String uploadId) {
+        return fileStorageService.getTempLocation().resolve("chunked-" + uploadId + ".part");
+    }
+
+    private UploadSessionDTO toDto(UploadSession session, long receivedBytes) {
+        return new UploadSessionDTO(session.getId(), session.getFileName(), session.getTotalSize(), receivedBytes, maxChunkSize);
+    }
+
+    private static String hashFile(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class RunningDigest {
+        MessageDigest digest = newDigest();
+        long hashedBytes = 0;
+    }
+}
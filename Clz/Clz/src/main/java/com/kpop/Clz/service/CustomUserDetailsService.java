@@ -26,11 +26,7 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
         if (user.getRole() == null) {
             System.err.println("Warning: User " + email + " has a NULL role. Assigning no authorities.");
-            return new org.springframework.security.core.userdetails.User(
-                    user.getEmail(),
-                    user.getPasswordHash(),
-                    new ArrayList<>()
-            );
+            return new AuthenticatedUser(user, new ArrayList<>());
         }
 
         String roleNameForAuthority = "ROLE_" + user.getRole().name().toUpperCase();
@@ -40,10 +36,6 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         System.out.println("CustomUserDetailsService: Loading user " + user.getEmail() + " with authorities: " + authorities);
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPasswordHash(),
-                authorities
-        );
+        return new AuthenticatedUser(user, authorities);
     }
 }
\ No newline at end of file
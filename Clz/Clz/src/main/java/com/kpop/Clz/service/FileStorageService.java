@@ -1,5 +1,9 @@
 package com.kpop.Clz.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
@@ -9,18 +13,65 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.springframework.beans.factory.annotation.Value;
 
+/**
+ * Lưu file upload theo nội dung: tên file = SHA-256, thư mục chia shard cas/ab/cd/ để mỗi thư mục không quá nhiều file.
+ * Cùng một ảnh upload nhiều lần chỉ lưu 1 bản. Số tham chiếu (ref_count) do StoredFileReferenceTracker cập nhật
+ * khi các field ảnh của GalleryPost/User/Product thay đổi; blob không còn ai dùng sẽ được dọn sau thời gian ân hạn.
+ */
 @Service
 public class FileStorageService {
 
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
+
+    // origin ghép vào URL ảnh được lưu trong DB (imageUrl, avatarUrl, kết quả upload theo chunk)
+    static final String PUBLIC_BASE_URL = "http://localhost:8080";
+    static final String CAS_DIR = "cas";
+    private static final Pattern CAS_URL = Pattern.compile("/uploads/" + CAS_DIR + "/[0-9a-f]{2}/[0-9a-f]{2}/([0-9a-f]{64})(\\.[A-Za-z0-9]{1,9})?$");
+
     private final Path fileStorageLocation;
+    private final Path tempLocation;
+    private final ImageVariantService imageVariantService;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Khóa theo hash (striped) giữa upload và dọn rác, tránh xóa blob vừa được upload trùng
+    private final Object[] hashLocks = new Object[64];
+
+    @Value("${app.storage.gc.grace-hours:24}")
+    private long gcGraceHours;
+
+    private final LongAdder uploads = new LongAdder();
+    private final LongAdder dedupHits = new LongAdder();
 
-    public FileStorageService(@Value("${file.upload-dir:./uploads}") String uploadDir) {
+    public FileStorageService(@Value("${file.upload-dir:./uploads}") String uploadDir,
+                              ImageVariantService imageVariantService,
+                              JdbcTemplate jdbcTemplate) {
+        this.imageVariantService = imageVariantService;
+        this.jdbcTemplate = jdbcTemplate;
         this.fileStorageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.tempLocation = this.fileStorageLocation.resolve("tmp");
+        for (int i = 0; i < hashLocks.length; i++) {
+            hashLocks[i] = new Object();
+        }
         try {
             Files.createDirectories(this.fileStorageLocation);
+            Files.createDirectories(this.tempLocation);
         } catch (Exception ex) {
             throw new RuntimeException("Không thể tạo thư mục để lưu trữ file tải lên. Đường dẫn: " + this.fileStorageLocation.toString(), ex);
         }
@@ -28,6 +79,52 @@ public class FileStorageService {
 
     public String storeFile(MultipartFile file) {
         String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
+        String extension = extensionOf(originalFileName);
+
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(tempLocation, "upload-", ".part");
+            MessageDigest digest = sha256();
+            // hash ngay trong lúc copy, không phải đọc file lần 2
+            long size;
+            try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+                size = Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+
+            return toUrl(commitBlob(hash, extension, size, tempFile));
+
+        } catch (IOException ex) {
+            throw new RuntimeException("Không thể lưu trữ file " + originalFileName + ". Vui lòng thử lại!", ex);
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    /**
+     * Đưa file đã ghi sẵn trong thư mục tạm (vd. upload theo chunk) vào store; hash phải được tính trước.
+     * File nguồn bị move (hoặc xóa nếu trùng nội dung), không copy lại.
+     */
+    public String storeCompletedFile(Path source, String originalFileName, String sha256, long size) {
+        String extension = extensionOf(StringUtils.cleanPath(originalFileName));
+        try {
+            return toUrl(commitBlob(sha256, extension, size, source));
+        } catch (IOException ex) {
+            throw new RuntimeException("Không thể lưu trữ file " + originalFileName + ". Vui lòng thử lại!", ex);
+        } finally {
+            deleteQuietly(source);
+        }
+    }
+
+    public Path getTempLocation() {
+        return tempLocation;
+    }
+
+    private static String toUrl(String relativePath) {
+        return PUBLIC_BASE_URL + "/uploads/" + relativePath;
+    }
+
+    private static String extensionOf(String originalFileName) {
         String extension = "";
 
         if (originalFileName == null || originalFileName.isEmpty()) {
@@ -45,22 +142,131 @@ public class FileStorageService {
         if (extension.length() > 10) {
             extension = extension.substring(0, Math.min(extension.length(), 10));
         }
+        extension = extension.toLowerCase(Locale.ROOT);
+        return extension.matches("\\.[a-z0-9]{1,9}") ? extension : "";
+    }
 
+    private String commitBlob(String hash, String extension, long size, Path tempFile) throws IOException {
+        uploads.increment();
+        synchronized (lockFor(hash)) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<String> existing = jdbcTemplate.queryForList(
+                    "SELECT relative_path FROM stored_files WHERE sha256 = ?", String.class, hash);
 
-        String fileName = UUID.randomUUID().toString() + extension;
+            if (!existing.isEmpty()) {
+                dedupHits.increment();
+                String relativePath = existing.get(0);
+                jdbcTemplate.update("UPDATE stored_files SET upload_count = upload_count + 1, last_uploaded_at = ? WHERE sha256 = ?",
+                        now, hash);
+                Path target = fileStorageLocation.resolve(relativePath);
+                if (Files.notExists(target)) {
+                    // row còn nhưng file mất (xóa tay / restore thiếu): ghi lại từ bản vừa upload
+                    moveIntoPlace(tempFile, target);
+                    imageVariantService.generateVariantsAsync(relativePath);
+                }
+                logger.debug("Upload trùng nội dung {}, dùng lại {}", hash, relativePath);
+                return relativePath;
+            }
 
-        try {
-            Path targetLocation = this.fileStorageLocation.resolve(fileName);
+            String relativePath = CAS_DIR + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + extension;
+            moveIntoPlace(tempFile, fileStorageLocation.resolve(relativePath));
+            jdbcTemplate.update("INSERT INTO stored_files (sha256, relative_path, size_bytes, ref_count, upload_count, created_at, last_uploaded_at) " +
+                    "VALUES (?, ?, ?, 0, 1, ?, ?)", hash, relativePath, size, now, now);
+            // ảnh thu nhỏ được tạo nền, không bắt request upload phải chờ
+            imageVariantService.generateVariantsAsync(relativePath);
+            return relativePath;
+        }
+    }
 
-            try (InputStream inputStream = file.getInputStream()) {
-                Files.copy(inputStream, targetLocation, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Hash của blob nếu url trỏ vào store (…/uploads/cas/ab/cd/{sha256}.ext), ngược lại null
+     * (link ngoài hoặc file upload kiểu cũ đặt tên UUID — không tính ref).
+     */
+    public static String hashFromUrl(String url) {
+        if (url == null) return null;
+        Matcher matcher = CAS_URL.matcher(url);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    // Dọn blob không còn được tham chiếu và đã quá thời gian ân hạn kể từ lần upload cuối
+    @Scheduled(fixedDelayString = "${app.storage.gc.interval-ms:3600000}", initialDelayString = "${app.storage.gc.interval-ms:3600000}")
+    public void purgeUnreferencedFiles() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofHours(gcGraceHours));
+        List<Map<String, Object>> candidates = jdbcTemplate.queryForList(
+                "SELECT sha256, relative_path FROM stored_files WHERE ref_count <= 0 AND last_uploaded_at < ?",
+                Timestamp.valueOf(cutoff));
+        int purged = 0;
+        for (Map<String, Object> candidate : candidates) {
+            String hash = (String) candidate.get("sha256");
+            String relativePath = (String) candidate.get("relative_path");
+            synchronized (lockFor(hash)) {
+                int deleted = jdbcTemplate.update(
+                        "DELETE FROM stored_files WHERE sha256 = ? AND ref_count <= 0 AND last_uploaded_at < ?",
+                        hash, Timestamp.valueOf(cutoff));
+                if (deleted == 0) {
+                    continue;
+                }
+                deleteQuietly(fileStorageLocation.resolve(relativePath));
+                imageVariantService.deleteVariants(relativePath);
+                purged++;
             }
+        }
+        if (purged > 0) {
+            logger.info("Purged {} unreferenced stored files.", purged);
+        }
+    }
 
-            String baseUrl = "http://localhost:8080";
-            return baseUrl + "/uploads/" + fileName;
+    public Map<String, Object> getDiskUsageReport() {
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS files, " +
+                        "COALESCE(SUM(size_bytes), 0) AS stored_bytes, " +
+                        "COALESCE(SUM(size_bytes * upload_count), 0) AS uploaded_bytes, " +
+                        "COALESCE(SUM(CASE WHEN ref_count > 0 THEN 1 ELSE 0 END), 0) AS referenced_files, " +
+                        "COALESCE(SUM(CASE WHEN ref_count <= 0 THEN size_bytes ELSE 0 END), 0) AS unreferenced_bytes, " +
+                        "COALESCE(SUM(ref_count), 0) AS total_refs " +
+                        "FROM stored_files");
+        long files = ((Number) row.get("files")).longValue();
+        long storedBytes = ((Number) row.get("stored_bytes")).longValue();
+        long uploadedBytes = ((Number) row.get("uploaded_bytes")).longValue();
+        long referencedFiles = ((Number) row.get("referenced_files")).longValue();
 
-        } catch (IOException ex) {
-            throw new RuntimeException("Không thể lưu trữ file " + originalFileName + " (đã đổi tên thành " + fileName + "). Vui lòng thử lại!", ex);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("storedFiles", files);
+        report.put("storedBytes", storedBytes);
+        report.put("uploadedBytes", uploadedBytes);
+        report.put("dedupSavedBytes", uploadedBytes - storedBytes);
+        report.put("referencedFiles", referencedFiles);
+        report.put("unreferencedFiles", files - referencedFiles);
+        report.put("unreferencedBytes", ((Number) row.get("unreferenced_bytes")).longValue());
+        report.put("totalReferences", ((Number) row.get("total_refs")).longValue());
+        report.put("uploadsSinceStart", uploads.sum());
+        report.put("dedupHitsSinceStart", dedupHits.sum());
+        return report;
+    }
+
+    private Object lockFor(String hash) {
+        return hashLocks[Integer.parseInt(hash.substring(0, 2), 16) % hashLocks.length];
+    }
+
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) return;
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Không xóa được file {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
-}
\ No newline at end of file
+}
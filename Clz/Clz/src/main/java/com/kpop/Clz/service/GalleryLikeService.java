@@ -0,0 +1,190 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.exception.ResourceNotFoundException;
+import com.kpop.Clz.model.GalleryPost;
+import com.kpop.Clz.model.GalleryPostLike;
+import com.kpop.Clz.model.GalleryPostLikeId;
+import com.kpop.Clz.repository.GalleryPostLikeRepository;
+import com.kpop.Clz.repository.GalleryPostRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Like/unlike cho gallery post theo kiểu write-behind.
+ * Mỗi thao tác chỉ ghi/xóa row like của user (cần để like idempotent), không UPDATE gallery_posts;
+ * delta +1/-1 được cộng vào LongAdder trong bộ nhớ theo post, flusher định kỳ cộng dồn vào likes_count theo batch.
+ * Crash trước khi flush thì delta trong bộ nhớ mất, nhưng row like đã commit: lúc khởi động likes_count
+ * được đếm lại từ gallery_post_likes cho các post bị lệch.
+ */
+@Service
+public class GalleryLikeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GalleryLikeService.class);
+
+    private static final String RECOUNT_LIKES =
+            "UPDATE gallery_posts SET likes_count = (SELECT COUNT(*) FROM gallery_post_likes l WHERE l.post_id = gallery_posts.id) " +
+            "WHERE COALESCE(likes_count, 0) <> (SELECT COUNT(*) FROM gallery_post_likes l WHERE l.post_id = gallery_posts.id)";
+
+    private final GalleryPostRepository galleryPostRepository;
+    private final GalleryPostLikeRepository galleryPostLikeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Delta đã commit nhưng chưa flush, theo post id. Flush thay cả map dưới write lock:
+    // request đang cộng (giữ read lock) luôn cộng xong vào map cũ trước khi map cũ được đem đi flush.
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Map<Integer, LongAdder> pendingDeltas = new ConcurrentHashMap<>();
+    // map đang được ghi xuống DB, vẫn tính vào số like "sống" cho đến khi ghi xong
+    private volatile Map<Integer, LongAdder> flushingDeltas = Map.of();
+
+    @Value("${app.gallery.likes.flush-batch-size:1000}")
+    private int flushBatchSize;
+
+    public GalleryLikeService(GalleryPostRepository galleryPostRepository,
+                              GalleryPostLikeRepository galleryPostLikeRepository,
+                              JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate) {
+        this.galleryPostRepository = galleryPostRepository;
+        this.galleryPostLikeRepository = galleryPostLikeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public record LikeResult(Integer postId, boolean liked, long likesCount) {}
+
+    // Lần chạy trước crash / tắt đột ngột thì delta chưa flush đã mất: đếm lại các post bị lệch trước khi nhận request
+    @PostConstruct
+    void recountUnflushedLikes() {
+        int fixed = jdbcTemplate.update(RECOUNT_LIKES);
+        if (fixed > 0) {
+            logger.info("Recounted likes of {} gallery post(s) with unflushed deltas from previous run.", fixed);
+        }
+    }
+
+    public LikeResult likePost(Integer postId, Integer userId) {
+        GalleryPost post = findPost(postId);
+        boolean changed;
+        try {
+            changed = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (galleryPostLikeRepository.existsById(new GalleryPostLikeId(postId, userId))) {
+                    return false;
+                }
+                galleryPostLikeRepository.saveAndFlush(new GalleryPostLike(postId, userId));
+                recordDelta(postId, 1);
+                return true;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            // double-click song song: request kia đã insert trước
+            changed = false;
+        }
+        logger.debug("User {} liked post {} (changed: {})", userId, postId, changed);
+        return new LikeResult(postId, true, currentLikes(post));
+    }
+
+    public LikeResult unlikePost(Integer postId, Integer userId) {
+        GalleryPost post = findPost(postId);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (galleryPostLikeRepository.deleteLike(postId, userId) > 0) {
+                recordDelta(postId, -1);
+            }
+        });
+        return new LikeResult(postId, false, currentLikes(post));
+    }
+
+    public long currentLikes(GalleryPost post) {
+        long stored = post.getLikesCount() != null ? post.getLikesCount() : 0;
+        return stored + pending(flushingDeltas, post.getId()) + pending(pendingDeltas, post.getId());
+    }
+
+    public long getPendingPostCount() {
+        return pendingDeltas.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.gallery.likes.flush-interval-ms:5000}")
+    public synchronized void flushPendingLikes() {
+        Map<Integer, LongAdder> batch;
+        swapLock.writeLock().lock();
+        try {
+            if (pendingDeltas.isEmpty()) {
+                return;
+            }
+            batch = pendingDeltas;
+            flushingDeltas = batch;
+            pendingDeltas = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        List<Object[]> counterUpdates = new ArrayList<>(batch.size());
+        batch.forEach((postId, delta) -> {
+            long sum = delta.sum();
+            if (sum != 0) {
+                counterUpdates.add(new Object[]{sum, postId});
+            }
+        });
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int start = 0; start < counterUpdates.size(); start += flushBatchSize) {
+                    jdbcTemplate.batchUpdate("UPDATE gallery_posts SET likes_count = COALESCE(likes_count, 0) + ? WHERE id = ?",
+                            counterUpdates.subList(start, Math.min(start + flushBatchSize, counterUpdates.size())));
+                }
+            });
+        } catch (RuntimeException e) {
+            // trả delta về map hiện tại, lần sau flush lại
+            logger.error("Flushing gallery like counters failed: {}", e.getMessage(), e);
+            counterUpdates.forEach(update -> addPending((Integer) update[1], (Long) update[0]));
+        } finally {
+            flushingDeltas = Map.of();
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flushPendingLikes();
+    }
+
+    private GalleryPost findPost(Integer postId) {
+        return galleryPostRepository.findById(postId)
+                .orElseThrow(() -> new ResourceNotFoundException("Gallery post not found with id: " + postId));
+    }
+
+    private void recordDelta(Integer postId, int delta) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                addPending(postId, delta);
+            }
+        });
+    }
+
+    private void addPending(Integer postId, long delta) {
+        swapLock.readLock().lock();
+        try {
+            pendingDeltas.computeIfAbsent(postId, id -> new LongAdder()).add(delta);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private static long pending(Map<Integer, LongAdder> deltas, Integer postId) {
+        LongAdder delta = deltas.get(postId);
+        return delta != null ? delta.sum() : 0;
+    }
+}
@@ -1,13 +1,18 @@
 package com.kpop.Clz.service;
 
+import com.kpop.Clz.dto.GalleryFeedPageDTO;
 import com.kpop.Clz.model.GalleryPost;
 import com.kpop.Clz.model.User;
 import com.kpop.Clz.repository.GalleryPostRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 @Service
@@ -15,6 +20,9 @@ public class GalleryPostService {
 
     private final GalleryPostRepository galleryPostRepository;
 
+    @Value("${app.gallery.feed.page-size:20}")
+    private int feedPageSize;
+
     @Autowired
     public GalleryPostService(GalleryPostRepository galleryPostRepository) {
         this.galleryPostRepository = galleryPostRepository;
@@ -24,6 +32,37 @@ public class GalleryPostService {
         return galleryPostRepository.findAllByOrderByPostedAtDesc();
     }
 
+    // before = "<postedAt ISO-8601>,<id>" lấy từ nextBefore của trang trước; null => trang mới nhất
+    public GalleryFeedPageDTO getFeedPage(String before) {
+        Timestamp beforePostedAt = null;
+        Integer beforeId = null;
+        if (before != null && !before.isBlank()) {
+            int comma = before.lastIndexOf(',');
+            if (comma <= 0) {
+                throw new IllegalArgumentException("Invalid 'before' cursor: " + before);
+            }
+            try {
+                beforePostedAt = Timestamp.from(Instant.parse(before.substring(0, comma).trim()));
+                beforeId = Integer.valueOf(before.substring(comma + 1).trim());
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid 'before' cursor: " + before, e);
+            }
+        }
+
+        PageRequest limit = PageRequest.of(0, feedPageSize + 1);
+        List<GalleryPost> rows = beforeId == null
+                ? galleryPostRepository.findFeedFirstPage(limit)
+                : galleryPostRepository.findFeedPageBefore(beforePostedAt, beforeId, limit);
+        boolean hasMore = rows.size() > feedPageSize;
+        List<GalleryPost> items = hasMore ? rows.subList(0, feedPageSize) : rows;
+        String nextBefore = null;
+        if (hasMore) {
+            GalleryPost last = items.get(items.size() - 1);
+            nextBefore = last.getPostedAt().toInstant() + "," + last.getId();
+        }
+        return new GalleryFeedPageDTO(items, nextBefore, hasMore);
+    }
+
     @Transactional
     public GalleryPost createPost(GalleryPost postDataFromRequest, User authenticatedUser) {
         GalleryPost newPost = new GalleryPost();
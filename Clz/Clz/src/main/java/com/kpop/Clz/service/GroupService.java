@@ -12,10 +12,12 @@ import java.util.Optional;
 public class GroupService {
 
     private final GroupRepository groupRepository;
+    private final ProductSearchService productSearchService;
 
     @Autowired
-    public GroupService(GroupRepository groupRepository) {
+    public GroupService(GroupRepository groupRepository, ProductSearchService productSearchService) {
         this.groupRepository = groupRepository;
+        this.productSearchService = productSearchService;
     }
 
     public List<Group> getAllGroups() {
@@ -39,7 +41,10 @@ public class GroupService {
                 .map(existingGroup -> {
                     existingGroup.setName(groupDetails.getName());
                     existingGroup.setLogoImageUrl(groupDetails.getLogoImageUrl());
-                    return groupRepository.save(existingGroup);
+                    Group saved = groupRepository.save(existingGroup);
+                    // tên group nằm trong index tìm kiếm của từng sản phẩm
+                    productSearchService.groupChanged(saved.getId());
+                    return saved;
                 });
     }
 }
\ No newline at end of file
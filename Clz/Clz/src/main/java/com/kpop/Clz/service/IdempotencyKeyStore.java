@@ -0,0 +1,278 @@
+package com.kpop.Clz.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Lưu kết quả của request theo header Idempotency-Key (trong bộ nhớ, hết hạn theo TTL).
+ * Request lặp lại cùng key nhận lại đúng response cũ; request trùng key đang chạy song song thì chờ kết quả
+ * của request đầu (CompletableFuture) thay vì chạy lại, không cần khóa gì trong DB.
+ * Response 5xx / exception không được lưu để client retry được.
+ * Chỉ giữ status + body đã serialize nếu body nhỏ hơn max-body-bytes. Body lớn hơn thì giữ cách đọc lại nó (reloader do caller
+ * đưa, vd. theo id đơn hàng); không có reloader thì lần lặp lại nhận 409 kèm SHA-256 của body, không phải status 2xx cũ với body khác.
+ * Mọi key có cùng TTL nên thứ tự thêm vào cũng là thứ tự hết hạn: bỏ key cũ nhất từ đầu hàng đợi, không phải sắp xếp.
+ */
+@Component
+public class IdempotencyKeyStore implements StatsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyKeyStore.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long waitTimeoutMillis;
+    private final int maxBodyBytes;
+    private final ObjectMapper objectMapper;
+
+    // key = scope (user) + '\n' + Idempotency-Key
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // các entry theo thứ tự thêm vào (= thứ tự hết hạn); entry đã bị bỏ khỏi map thì bị bỏ qua khi tới lượt
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder mismatched = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public IdempotencyKeyStore(@Value("${app.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                               @Value("${app.idempotency.max-entries:100000}") int maxEntries,
+                               @Value("${app.idempotency.wait-timeout-ms:10000}") long waitTimeoutMillis,
+                               @Value("${app.idempotency.max-body-bytes:16384}") int maxBodyBytes,
+                               ObjectMapper objectMapper) {
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.maxEntries = maxEntries;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.maxBodyBytes = maxBodyBytes;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Chạy action một lần cho mỗi (scope, key). fingerprint là hash của body request: dùng lại key với body khác => 422.
+     */
+    public ResponseEntity<?> execute(String scope, String key, String fingerprint, Supplier<ResponseEntity<?>> action) {
+        return execute(scope, key, fingerprint, action, body -> null);
+    }
+
+    /**
+     * Như trên; reloader nhận body của response đầu và trả về cách dựng lại body đó khi replay nếu body quá lớn để giữ.
+     * Supplier trả về chỉ nên giữ thứ nhỏ (id), không giữ chính body.
+     */
+    public ResponseEntity<?> execute(String scope, String key, String fingerprint, Supplier<ResponseEntity<?>> action,
+                                     Function<Object, Supplier<?>> reloader) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " must be 1-" + MAX_KEY_LENGTH + " characters.");
+        }
+        String entryKey = scope + "\n" + key;
+
+        while (true) {
+            long now = System.currentTimeMillis();
+            Entry fresh = new Entry(entryKey, fingerprint, now + ttlMillis);
+            Entry existing = entries.putIfAbsent(entryKey, fresh);
+
+            if (existing == null) {
+                return runAndRecord(entryKey, fresh, action, reloader);
+            }
+            if (existing.expiresAt <= now) {
+                entries.remove(entryKey, existing);
+                continue;
+            }
+            if (!existing.fingerprint.equals(fingerprint)) {
+                mismatched.increment();
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                        .body(Map.of("message", HEADER + " was already used with a different request body."));
+            }
+
+            if (!existing.response.isDone()) {
+                coalesced.increment();
+            }
+            try {
+                StoredResponse stored = existing.response.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+                replayed.increment();
+                return stored.replay();
+            } catch (ExecutionException e) {
+                // request đầu lỗi và đã bỏ entry: thử chạy lại
+                continue;
+            } catch (TimeoutException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("message", "A request with this " + HEADER + " is still being processed."));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+        }
+    }
+
+    private ResponseEntity<?> runAndRecord(String entryKey, Entry entry, Supplier<ResponseEntity<?>> action,
+                                           Function<Object, Supplier<?>> reloader) {
+        executed.increment();
+        insertionOrder.add(entry);
+        if (entries.size() > maxEntries) {
+            evictOldest();
+        }
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException | Error e) {
+            entries.remove(entryKey, entry);
+            entry.response.completeExceptionally(e);
+            throw e;
+        }
+        if (response.getStatusCode().is5xxServerError()) {
+            entries.remove(entryKey, entry);
+            entry.response.completeExceptionally(new IllegalStateException("Not stored: " + response.getStatusCode()));
+        } else {
+            entry.response.complete(store(response, reloader));
+        }
+        return response;
+    }
+
+    private StoredResponse store(ResponseEntity<?> response, Function<Object, Supplier<?>> reloader) {
+        int status = response.getStatusCode().value();
+        Object body = response.getBody();
+        if (body == null) {
+            return new StoredResponse(status, null, null, null, null);
+        }
+        byte[] bytes;
+        MediaType contentType;
+        if (body instanceof String text) {
+            bytes = text.getBytes(StandardCharsets.UTF_8);
+            contentType = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+        } else {
+            try {
+                bytes = objectMapper.writeValueAsBytes(body);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Could not serialize idempotent response: " + e.getMessage(), e);
+            }
+            contentType = MediaType.APPLICATION_JSON;
+        }
+        return bytes.length <= maxBodyBytes
+                ? new StoredResponse(status, contentType, bytes, null, null)
+                : new StoredResponse(status, null, null, reloader.apply(body), sha256(bytes));
+    }
+
+    // Quá giới hạn: bỏ các key cũ nhất; dừng ở key đang chạy để request trùng vẫn chờ được nó
+    private void evictOldest() {
+        synchronized (insertionOrder) {
+            while (entries.size() > maxEntries) {
+                Entry oldest = insertionOrder.peek();
+                if (oldest == null || (!oldest.response.isDone() && entries.get(oldest.key) == oldest)) {
+                    return;
+                }
+                insertionOrder.poll();
+                if (entries.remove(oldest.key, oldest)) {
+                    evicted.increment();
+                    logger.debug("Idempotency key store over {} entries, evicted a key before its TTL.", maxEntries);
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (insertionOrder) {
+            Entry oldest;
+            while ((oldest = insertionOrder.peek()) != null && oldest.expiresAt <= now) {
+                insertionOrder.poll();
+                if (oldest.response.isDone()) {
+                    entries.remove(oldest.key, oldest);
+                } else {
+                    // hết hạn nhưng vẫn đang chạy: để execute() tự bỏ khi gặp lại
+                    insertionOrder.add(oldest);
+                    break;
+                }
+            }
+        }
+    }
+
+    // Hash của body request, dùng làm fingerprint cho execute()
+    public static String fingerprint(byte[] requestBody) {
+        return sha256(requestBody);
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "keys", entries.size(),
+                "executed", executed.sum(),
+                "replayed", replayed.sum(),
+                "coalesced", coalesced.sum(),
+                "mismatched", mismatched.sum(),
+                "evicted", evicted.sum()
+        );
+    }
+
+    private static final class Entry {
+        final String key;
+        final String fingerprint;
+        final long expiresAt;
+        final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+        Entry(String key, String fingerprint, long expiresAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // body null + bodySha256 khác null: body gốc quá lớn nên không giữ; dựng lại bằng reload nếu có
+    private record StoredResponse(int status, MediaType contentType, byte[] body, Supplier<?> reload, String bodySha256) {
+        ResponseEntity<?> replay() {
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(status).header(REPLAYED_HEADER, "true");
+            if (body != null) {
+                return builder.contentType(contentType).body(body);
+            }
+            if (bodySha256 == null) {
+                return builder.build();
+            }
+            if (reload != null) {
+                try {
+                    return builder.body(reload.get());
+                } catch (RuntimeException e) {
+                    logger.warn("Could not reload idempotent response: {}", e.getMessage());
+                }
+            }
+            // không dựng lại được: không trả status 2xx cũ với body không phải response gốc
+            return ResponseEntity.status(HttpStatus.CONFLICT).header(REPLAYED_HEADER, "true").body(Map.of(
+                    "message", "A request with this " + HEADER + " was already processed but its response cannot be replayed.",
+                    "originalStatus", status,
+                    "responseSha256", bodySha256));
+        }
+    }
+}
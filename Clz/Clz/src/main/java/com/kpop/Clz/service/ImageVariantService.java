@@ -0,0 +1,270 @@
+package com.kpop.Clz.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sinh các bản thu nhỏ (150/480/1080 px chiều rộng) cho ảnh upload trên worker pool riêng.
+ * Variant lưu ở {upload-dir}/variants/w{width}/{đường dẫn file gốc}.jpg nên vẫn được phục vụ qua /uploads/**.
+ * Ảnh nhỏ hơn một width thì không sinh width đó, resolveVariantUrl sẽ rơi về bản lớn hơn hoặc bản gốc.
+ */
+@Service
+public class ImageVariantService implements StatsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private static final Set<String> SUPPORTED_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "bmp");
+    private static final String VARIANTS_DIR = "variants";
+    private static final String UPLOADS_PREFIX = "/uploads/";
+
+    private final Path uploadLocation;
+    private final List<Integer> widths;
+    private final float jpegQuality;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder skippedQueueFull = new LongAdder();
+    private final LongAdder skippedTooLarge = new LongAdder();
+
+    public ImageVariantService(@Value("${file.upload-dir:./uploads}") String uploadDir,
+                               @Value("${app.images.variant-widths:150,480,1080}") int[] widths,
+                               @Value("${app.images.jpeg-quality:0.82}") float jpegQuality,
+                               @Value("${app.images.max-pixels:40000000}") long maxPixels,
+                               @Value("${app.images.workers:2}") int workers,
+                               @Value("${app.images.queue-capacity:200}") int queueCapacity) {
+        this.uploadLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.widths = Arrays.stream(widths).sorted().boxed().toList();
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public boolean isSupported(String fileName) {
+        return SUPPORTED_EXTENSIONS.contains(extensionOf(fileName));
+    }
+
+    // Gọi sau khi file gốc đã ghi xong; không chặn request upload
+    public void generateVariantsAsync(String fileName) {
+        if (!isSupported(fileName)) {
+            return;
+        }
+        try {
+            executor.execute(() -> generateVariants(fileName));
+        } catch (RejectedExecutionException e) {
+            // pool đang quá tải: client vẫn dùng được ảnh gốc
+            skippedQueueFull.increment();
+            logger.warn("Image variant queue is full, skipping variants for {}", fileName);
+        }
+    }
+
+    void generateVariants(String fileName) {
+        Path original = uploadLocation.resolve(fileName).normalize();
+        try {
+            BufferedImage source = readWithinLimit(original, fileName);
+            if (source == null) {
+                return;
+            }
+            for (int width : widths) {
+                if (source.getWidth() <= width) {
+                    continue;
+                }
+                int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+                writeJpeg(scale(source, width, height), variantPath(fileName, width));
+                generated.increment();
+            }
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            logger.error("Tạo variant cho ảnh {} thất bại: {}", fileName, e.getMessage(), e);
+        }
+    }
+
+    // Đọc kích thước từ header trước; ảnh quá nhiều pixel (vd. 20000x20000) bị bỏ qua mà không giải mã cả ảnh vào heap
+    private BufferedImage readWithinLimit(Path original, String fileName) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                logger.warn("Không đọc được ảnh {}, bỏ qua tạo variant.", fileName);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    skippedTooLarge.increment();
+                    logger.warn("Ảnh {} có {} pixel, vượt giới hạn {}: bỏ qua tạo variant.", fileName, pixels, maxPixels);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * URL của variant nhỏ nhất có width >= width yêu cầu; nếu chưa có (ảnh nhỏ, đang xử lý, hoặc file không phải ảnh) thì trả về URL gốc.
+     * Nhận đường dẫn /uploads/... hoặc URL tuyệt đối do chính app lưu (FileStorageService.PUBLIC_BASE_URL + /uploads/...),
+     * kết quả giữ nguyên dạng của URL đầu vào; domain khác bị từ chối để endpoint redirect không thể chuyển hướng ra ngoài.
+     */
+    public String resolveVariantUrl(String originalUrl, int requestedWidth) {
+        String origin = "";
+        String path = originalUrl;
+        if (originalUrl != null && originalUrl.startsWith(FileStorageService.PUBLIC_BASE_URL + UPLOADS_PREFIX)) {
+            origin = FileStorageService.PUBLIC_BASE_URL;
+            path = originalUrl.substring(origin.length());
+        }
+        if (path == null || !path.startsWith(UPLOADS_PREFIX)) {
+            throw new IllegalArgumentException("Only /uploads/ paths of this application are supported.");
+        }
+        String fileName = path.substring(UPLOADS_PREFIX.length());
+        if (fileName.isEmpty() || fileName.startsWith("/") || fileName.contains("..") || fileName.contains("\\")
+                || fileName.contains("?") || fileName.contains("#")) {
+            throw new IllegalArgumentException("Invalid upload path: " + originalUrl);
+        }
+        if (fileName.startsWith(VARIANTS_DIR + "/") || !isSupported(fileName)) {
+            return originalUrl;
+        }
+        for (int width : widths) {
+            if (width >= requestedWidth && Files.exists(variantPath(fileName, width))) {
+                return origin + UPLOADS_PREFIX + VARIANTS_DIR + "/w" + width + "/" + variantFileName(fileName);
+            }
+        }
+        return originalUrl;
+    }
+
+    public void deleteVariants(String fileName) {
+        for (int width : widths) {
+            try {
+                Files.deleteIfExists(variantPath(fileName, width));
+            } catch (IOException e) {
+                logger.warn("Không xóa được variant w{} của {}: {}", width, fileName, e.getMessage());
+            }
+        }
+    }
+
+    public List<Integer> getWidths() {
+        return widths;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "queueDepth", executor.getQueue().size(),
+                "activeWorkers", executor.getActiveCount(),
+                "variantsGenerated", generated.sum(),
+                "failures", failed.sum(),
+                "skippedQueueFull", skippedQueueFull.sum(),
+                "skippedTooLarge", skippedTooLarge.sum()
+        );
+    }
+
+    private Path variantPath(String fileName, int width) {
+        return uploadLocation.resolve(VARIANTS_DIR).resolve("w" + width).resolve(variantFileName(fileName));
+    }
+
+    private static String variantFileName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return (dot > 0 ? fileName.substring(0, dot) : fileName) + ".jpg";
+    }
+
+    private static String extensionOf(String fileName) {
+        if (fileName == null) return "";
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    // Thu nhỏ từng bước (tối đa 1/2 mỗi lần) cho chất lượng gần với area-averaging mà nhanh hơn nhiều
+    private static BufferedImage scale(BufferedImage source, int targetWidth, int targetHeight) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            // JPEG không có alpha: nền trắng cho PNG/GIF trong suốt
+            BufferedImage step = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = step.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, currentWidth, currentHeight);
+                g.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                g.dispose();
+            }
+            current = step;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+
+    // Ghi ra file tạm rồi move để /uploads không bao giờ trả về variant ghi dở
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "variant-", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
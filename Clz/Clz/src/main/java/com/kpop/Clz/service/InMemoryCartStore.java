@@ -0,0 +1,451 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.CartBatchResultDTO;
+import com.kpop.Clz.dto.CartDTO;
+import com.kpop.Clz.dto.CartItemDTO;
+import com.kpop.Clz.dto.CartOperationDTO;
+import com.kpop.Clz.dto.CartOperationResultDTO;
+import com.kpop.Clz.exception.InsufficientStockException;
+import com.kpop.Clz.exception.ResourceNotFoundException;
+import com.kpop.Clz.model.Order;
+import com.kpop.Clz.model.OrderItem;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.repository.OrderRepository;
+import com.kpop.Clz.repository.ProductRepository;
+import com.kpop.Clz.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Giỏ hàng giữ trong bộ nhớ theo user id (bật bằng app.cart.mode=memory).
+ * Đọc/sửa giỏ không chạm DB; flusher định kỳ ghi các giỏ đã thay đổi xuống bảng orders/order_items (status CART),
+ * giỏ không dùng quá idle-evict-ms thì bị bỏ khỏi bộ nhớ, lần truy cập sau sẽ load lại từ DB.
+ * Tồn kho kiểm tra theo snapshot lúc load sản phẩm, snapshot được đọc lại mỗi lần ghi xuống DB và trước khi từ chối
+ * vì thiếu hàng; trừ kho thật (UPDATE có điều kiện) vẫn do OrderService làm lúc checkout.
+ * Id item trả cho client là -productId (mỗi sp chỉ có 1 dòng trong giỏ) nên không đổi khi giỏ được flush, evict rồi load lại;
+ * id thật trong order_items cũng được chấp nhận.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cart.mode", havingValue = "memory")
+public class InMemoryCartStore implements StatsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryCartStore.class);
+
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Integer, CachedCart> carts = new ConcurrentHashMap<>();
+
+    @Value("${app.cart.memory.idle-evict-ms:1800000}")
+    private long idleEvictMillis;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder flushedCarts = new LongAdder();
+    private final LongAdder evictedCarts = new LongAdder();
+
+    public InMemoryCartStore(OrderRepository orderRepository,
+                             ProductRepository productRepository,
+                             UserRepository userRepository,
+                             TransactionTemplate transactionTemplate) {
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public CartDTO getCart(Integer userId) {
+        return withCart(userId, cart -> toDto(cart));
+    }
+
+    public CartDTO addItem(Integer userId, Long productId, int quantity) {
+        CachedLine known = withCart(userId, cart -> cart.findByProduct(productId));
+        // sp chưa có trong giỏ: đọc sp 1 lần (ngoài lock) để lấy giá + tồn kho
+        Map<Long, Product> products = known == null
+                ? Map.of(productId, productRepository.findById(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId)))
+                : Map.of();
+
+        return withCart(userId, cart -> {
+            addLine(cart, productId, quantity, products);
+            return toDto(cart);
+        });
+    }
+
+    public CartDTO updateItemQuantity(Integer userId, Integer itemId, int newQuantity) {
+        return withCart(userId, cart -> {
+            updateLine(cart, itemId, newQuantity);
+            return toDto(cart);
+        });
+    }
+
+    public CartDTO removeItem(Integer userId, Integer itemId) {
+        return withCart(userId, cart -> {
+            removeLine(cart, itemId);
+            return toDto(cart);
+        });
+    }
+
+    // Như CartService.applyBatch nhưng trên giỏ trong bộ nhớ: sp mới đọc 1 lần bằng 1 query, cả batch chạy dưới 1 lock
+    public CartBatchResultDTO applyBatch(Integer userId, List<CartOperationDTO> operations) {
+        Set<Long> wanted = withCart(userId, cart -> {
+            Set<Long> missing = new HashSet<>();
+            for (CartOperationDTO operation : operations) {
+                if (operation.getType() == CartOperationDTO.Type.ADD && operation.getProductId() != null
+                        && cart.findByProduct(operation.getProductId()) == null) {
+                    missing.add(operation.getProductId());
+                }
+            }
+            return missing;
+        });
+        Map<Long, Product> products = wanted.isEmpty() ? Map.of() : productRepository.findAllById(wanted).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        return withCart(userId, cart -> {
+            List<CartOperationResultDTO> results = new ArrayList<>(operations.size());
+            for (int i = 0; i < operations.size(); i++) {
+                CartOperationDTO operation = operations.get(i);
+                try {
+                    CartService.validateOperation(operation);
+                    switch (operation.getType()) {
+                        case ADD -> addLine(cart, operation.getProductId(), operation.getQuantity(), products);
+                        case UPDATE -> updateLine(cart, operation.getItemId(), operation.getQuantity());
+                        case REMOVE -> removeLine(cart, operation.getItemId());
+                    }
+                    results.add(CartOperationResultDTO.applied(i));
+                } catch (InsufficientStockException | ResourceNotFoundException | IllegalArgumentException e) {
+                    results.add(CartService.operationFailure(i, e));
+                }
+            }
+            return new CartBatchResultDTO(toDto(cart), results);
+        });
+    }
+
+    // Các thao tác trên 1 dòng; gọi khi đang giữ lock của giỏ
+    private void addLine(CachedCart cart, Long productId, int quantity, Map<Long, Product> products) {
+        CachedLine line = cart.findByProduct(productId);
+        if (line == null) {
+            // giỏ có thể vừa bị evict/load lại giữa 2 lần lock: sp không có sẵn thì đọc lại
+            Product source = products.get(productId);
+            if (source == null) {
+                source = productRepository.findById(productId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+            }
+            if (source.getStockQuantity() < quantity) {
+                throw new InsufficientStockException("Product " + source.getName() + " (ID: " + source.getId() + ") does not have enough stock. Requested: " + quantity + ", Available: " + source.getStockQuantity());
+            }
+            line = new CachedLine(null, source);
+            line.quantity = quantity;
+            cart.lines.add(line);
+            cart.applyTotalsDelta(line.unitPrice, quantity);
+        } else {
+            int newQuantity = line.quantity + quantity;
+            if (line.stockQuantity < newQuantity) {
+                refreshStock(line);
+            }
+            if (line.stockQuantity < newQuantity) {
+                throw new InsufficientStockException("Adding " + quantity + " of " + line.productName + " would exceed stock. Current in cart: " + line.quantity + ", Total requested: " + newQuantity + ", Available: " + line.stockQuantity);
+            }
+            line.quantity = newQuantity;
+            cart.applyTotalsDelta(line.unitPrice, quantity);
+        }
+        cart.dirty = true;
+    }
+
+    private void updateLine(CachedCart cart, Integer itemId, int newQuantity) {
+        CachedLine line = cart.findByItemId(itemId);
+        if (line.productId == null) {
+            throw new ResourceNotFoundException("Product associated with this cart item no longer exists.");
+        }
+        if (newQuantity > line.stockQuantity) {
+            refreshStock(line);
+        }
+        if (newQuantity > line.stockQuantity) {
+            throw new InsufficientStockException("Requested quantity " + newQuantity + " for product " + line.productName +
+                    " exceeds available stock of " + line.stockQuantity);
+        }
+        cart.applyTotalsDelta(line.unitPrice, newQuantity - line.quantity);
+        line.quantity = newQuantity;
+        cart.dirty = true;
+    }
+
+    // Snapshot có thể đã cũ (sp vừa nhập thêm hàng): đọc lại tồn kho trước khi từ chối
+    private void refreshStock(CachedLine line) {
+        productRepository.findById(line.productId).ifPresent(product -> line.stockQuantity = product.getStockQuantity());
+    }
+
+    private void removeLine(CachedCart cart, Integer itemId) {
+        CachedLine line = cart.findByItemId(itemId);
+        cart.lines.remove(line);
+        cart.applyTotalsDelta(line.unitPrice, -line.quantity);
+        cart.dirty = true;
+    }
+
+    // Gọi khi giỏ bị xóa ở DB (checkout): bỏ bản trong bộ nhớ, không flush
+    public void discard(Integer userId) {
+        CachedCart cart = carts.get(userId);
+        if (cart == null) return;
+        synchronized (cart) {
+            cart.removed = true;
+            carts.remove(userId, cart);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.memory.flush-interval-ms:2000}")
+    public void flushAndEvict() {
+        long idleBefore = System.currentTimeMillis() - idleEvictMillis;
+        for (CachedCart cart : carts.values()) {
+            synchronized (cart) {
+                if (cart.removed) continue;
+                try {
+                    flush(cart);
+                } catch (RuntimeException e) {
+                    // giữ dirty, lần sau thử lại
+                    logger.error("Flushing cart of user {} failed: {}", cart.userId, e.getMessage(), e);
+                    continue;
+                }
+                if (!cart.dirty && cart.lastAccessMillis < idleBefore) {
+                    cart.removed = true;
+                    carts.remove(cart.userId, cart);
+                    evictedCarts.increment();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flushAndEvict();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long dirty = carts.values().stream().filter(cart -> cart.dirty).count();
+        return Map.of(
+                "carts", carts.size(),
+                "dirtyCarts", dirty,
+                "hits", hits.sum(),
+                "misses", misses.sum(),
+                "flushedCarts", flushedCarts.sum(),
+                "evictedCarts", evictedCarts.sum()
+        );
+    }
+
+    // Chạy action trên giỏ (load từ DB nếu chưa có) dưới lock của giỏ; giỏ vừa bị discard/evict thì lấy lại
+    private <T> T withCart(Integer userId, Function<CachedCart, T> action) {
+        while (true) {
+            CachedCart cart = carts.get(userId);
+            if (cart == null) {
+                misses.increment();
+                // load ngoài map để không giữ lock của ConcurrentHashMap trong lúc query DB
+                CachedCart loaded = load(userId);
+                CachedCart existing = carts.putIfAbsent(userId, loaded);
+                cart = existing != null ? existing : loaded;
+            } else {
+                hits.increment();
+            }
+            synchronized (cart) {
+                if (cart.removed) continue;
+                cart.lastAccessMillis = System.currentTimeMillis();
+                return action.apply(cart);
+            }
+        }
+    }
+
+    private CachedCart load(Integer userId) {
+        CachedCart cart = new CachedCart(userId);
+        transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            orderRepository.findWithItemsByUserIdAndStatus(userId, Order.OrderStatus.CART).ifPresent(order -> {
+                cart.orderId = order.getId();
+                for (OrderItem item : order.getOrderItems()) {
+                    CachedLine line = new CachedLine(item.getId(), item.getProduct());
+                    line.quantity = item.getQuantity();
+                    line.unitPrice = item.getUnitPrice();
+                    cart.lines.add(line);
+                    cart.applyTotalsDelta(line.unitPrice, line.quantity);
+                }
+            });
+        });
+        return cart;
+    }
+
+    // Ghi giỏ xuống DB; gọi khi đang giữ lock của giỏ
+    private void flush(CachedCart cart) {
+        if (!cart.dirty) return;
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<Order> existing = orderRepository.findWithItemsByUserIdAndStatus(cart.userId, Order.OrderStatus.CART);
+            if (existing.isEmpty() && cart.lines.isEmpty()) {
+                return;
+            }
+            Order order = existing.orElseGet(() -> newCartOrder(cart.userId));
+
+            // đọc lại tồn kho hiện tại cho các sp trong giỏ (1 query) thay cho snapshot lúc load
+            Set<Long> productIds = new HashSet<>();
+            for (CachedLine line : cart.lines) {
+                if (line.productId != null) productIds.add(line.productId);
+            }
+            Map<Long, Product> products = productIds.isEmpty() ? Map.of() : productRepository.findAllById(productIds).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+            for (CachedLine line : cart.lines) {
+                Product product = line.productId != null ? products.get(line.productId) : null;
+                if (product != null) {
+                    line.stockQuantity = product.getStockQuantity();
+                }
+            }
+
+            Map<Integer, OrderItem> persisted = new HashMap<>();
+            for (OrderItem item : order.getOrderItems()) {
+                persisted.put(item.getId(), item);
+            }
+            Set<Integer> kept = new HashSet<>();
+            List<Map.Entry<CachedLine, OrderItem>> created = new ArrayList<>();
+            for (CachedLine line : cart.lines) {
+                OrderItem item = line.persistedItemId != null ? persisted.get(line.persistedItemId) : null;
+                if (item == null) {
+                    item = new OrderItem();
+                    Product product = products.get(line.productId);
+                    item.setProduct(product != null ? product : productRepository.getReferenceById(line.productId));
+                    item.setUnitPrice(line.unitPrice);
+                    order.addOrderItem(item);
+                    created.add(Map.entry(line, item));
+                } else {
+                    kept.add(item.getId());
+                }
+                item.setQuantity(line.quantity);
+            }
+            order.getOrderItems().removeIf(item -> item.getId() != null && !kept.contains(item.getId()));
+            order.setTotalAmount(cart.totalAmount);
+            order.setTotalQuantity(cart.totalQuantity);
+            orderRepository.saveAndFlush(order);
+
+            cart.orderId = order.getId();
+            for (Map.Entry<CachedLine, OrderItem> entry : created) {
+                entry.getKey().persistedItemId = entry.getValue().getId();
+            }
+        });
+        cart.dirty = false;
+        flushedCarts.increment();
+    }
+
+    private Order newCartOrder(Integer userId) {
+        Order order = new Order();
+        order.setUser(userRepository.getReferenceById(userId));
+        order.setStatus(Order.OrderStatus.CART);
+        order.setOrderCode("CART-" + UUID.randomUUID());
+        order.setTotalAmount(BigDecimal.ZERO);
+        order.setShippingFee(BigDecimal.ZERO);
+        order.setGrandTotal(BigDecimal.ZERO);
+        return order;
+    }
+
+    private CartDTO toDto(CachedCart cart) {
+        CartDTO dto = new CartDTO(cart.userId);
+        dto.setOrderId(cart.orderId);
+        if (cart.orderId != null || !cart.lines.isEmpty()) {
+            dto.setStatus(Order.OrderStatus.CART.name());
+        }
+        List<CartItemDTO> items = new ArrayList<>(cart.lines.size());
+        for (CachedLine line : cart.lines) {
+            CartItemDTO item = new CartItemDTO();
+            item.setOrderItemId(line.itemId);
+            item.setProductId(line.productId);
+            item.setProductName(line.productName);
+            item.setImageUrl(line.imageUrl);
+            item.setUnitPrice(line.unitPrice);
+            item.setQuantity(line.quantity);
+            item.setStockQuantity(line.stockQuantity);
+            items.add(item);
+        }
+        dto.setItems(items);
+        dto.setTotalQuantity(cart.totalQuantity);
+        dto.setTotalAmount(cart.totalAmount);
+        return dto;
+    }
+
+    private static final class CachedCart {
+        final Integer userId;
+        Integer orderId;
+        final List<CachedLine> lines = new ArrayList<>();
+        int totalQuantity;
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        boolean dirty;
+        boolean removed;
+        volatile long lastAccessMillis = System.currentTimeMillis();
+
+        CachedCart(Integer userId) {
+            this.userId = userId;
+        }
+
+        void applyTotalsDelta(BigDecimal unitPrice, int quantityDelta) {
+            totalQuantity += quantityDelta;
+            if (unitPrice != null) {
+                totalAmount = totalAmount.add(unitPrice.multiply(BigDecimal.valueOf(quantityDelta)));
+            }
+        }
+
+        CachedLine findByProduct(Long productId) {
+            for (CachedLine line : lines) {
+                if (productId.equals(line.productId)) return line;
+            }
+            return null;
+        }
+
+        CachedLine findByItemId(Integer itemId) {
+            for (CachedLine line : lines) {
+                if (line.itemId == itemId || itemId.equals(line.persistedItemId)) return line;
+            }
+            throw new ResourceNotFoundException("OrderItem " + itemId + " not found in the current user's cart.");
+        }
+    }
+
+    private static final class CachedLine {
+        final int itemId;             // id trả về cho client: -productId, hoặc id thật nếu sp đã bị xóa
+        Integer persistedItemId;      // id trong order_items, null nếu chưa flush
+        final Long productId;
+        final String productName;
+        final String imageUrl;
+        int stockQuantity;            // snapshot, đọc lại khi flush
+        BigDecimal unitPrice;
+        int quantity;
+
+        CachedLine(Integer persistedItemId, Product product) {
+            this.persistedItemId = persistedItemId;
+            this.itemId = product != null ? -Math.toIntExact(product.getId()) : persistedItemId;
+            if (product != null) {
+                this.productId = product.getId();
+                this.productName = product.getName();
+                this.imageUrl = product.getImageUrl();
+                this.stockQuantity = product.getStockQuantity();
+                this.unitPrice = product.getPrice();
+            } else {
+                this.productId = null;
+                this.productName = "Sản phẩm không còn tồn tại";
+                this.imageUrl = null;
+                this.stockQuantity = 0;
+            }
+        }
+    }
+}
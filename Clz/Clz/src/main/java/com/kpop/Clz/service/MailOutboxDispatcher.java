@@ -0,0 +1,225 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.model.MailOutboxMessage;
+import com.kpop.Clz.repository.MailOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gửi mail từ bảng mail_outbox trên executor riêng với hàng đợi giới hạn.
+ * Mail được enqueue ngay khi tạo; nếu hàng đợi đầy, hoặc app restart, poller định kỳ sẽ nhặt lại các mail PENDING.
+ * Gửi lỗi thì retry với backoff lũy thừa, quá maxAttempts thì đánh dấu FAILED.
+ */
+@Component
+public class MailOutboxDispatcher implements StatsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailOutboxDispatcher.class);
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final JavaMailSender mailSender;
+    private final ThreadPoolExecutor executor;
+    // id đang nằm trong hàng đợi / đang gửi, tránh poller submit trùng
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Value("${spring.mail.username}")
+    private String senderEmail;
+
+    @Value("${app.name:K-Clz App}")
+    private String appName;
+
+    @Value("${app.mail.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.mail.retry-base-delay-ms:5000}")
+    private long retryBaseDelayMs;
+
+    @Value("${app.mail.poll-batch-size:100}")
+    private int pollBatchSize;
+
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder failedAttemptCount = new LongAdder();
+    private final LongAdder giveUpCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder totalSendMillis = new LongAdder();
+    private final AtomicLong maxSendMillis = new AtomicLong();
+
+    public MailOutboxDispatcher(MailOutboxRepository mailOutboxRepository,
+                                JavaMailSender mailSender,
+                                @Value("${app.mail.workers:2}") int workers,
+                                @Value("${app.mail.queue-capacity:500}") int queueCapacity) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.mailSender = mailSender;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "mail-sender-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public MailOutboxMessage enqueue(String recipient, String subject, String htmlBody) {
+        MailOutboxMessage message = new MailOutboxMessage();
+        message.setRecipient(recipient);
+        message.setSubject(subject);
+        message.setHtmlBody(htmlBody);
+        message.setNextAttemptAt(LocalDateTime.now());
+        MailOutboxMessage saved = mailOutboxRepository.save(message);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // đang trong transaction: chỉ đưa vào hàng đợi khi row đã commit, worker mới đọc được
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(saved.getId());
+                }
+            });
+        } else {
+            submit(saved.getId());
+        }
+        return saved;
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.poll-interval-ms:10000}")
+    public void pollOutbox() {
+        List<MailOutboxMessage> due = mailOutboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+                MailOutboxMessage.Status.PENDING, LocalDateTime.now(), PageRequest.of(0, pollBatchSize));
+        for (MailOutboxMessage message : due) {
+            if (!submit(message.getId())) {
+                break;
+            }
+        }
+    }
+
+    private boolean submit(Long messageId) {
+        if (!inFlight.add(messageId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    deliver(messageId);
+                } finally {
+                    inFlight.remove(messageId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // hàng đợi đầy: mail vẫn PENDING trong DB, poller sẽ gửi sau
+            inFlight.remove(messageId);
+            rejectedCount.increment();
+            logger.warn("Mail queue is full, message {} deferred to outbox poller.", messageId);
+            return false;
+        }
+    }
+
+    private void deliver(Long messageId) {
+        MailOutboxMessage message = mailOutboxRepository.findById(messageId).orElse(null);
+        if (message == null || message.getStatus() != MailOutboxMessage.Status.PENDING) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            MimeMessage mimeMessage = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
+            helper.setFrom(senderEmail, appName + " Team");
+            helper.setTo(message.getRecipient());
+            helper.setSubject(message.getSubject());
+            helper.setText(message.getHtmlBody(), true);
+            mailSender.send(mimeMessage);
+
+            recordLatency(start);
+            sentCount.increment();
+            message.setAttempts(message.getAttempts() + 1);
+            message.setStatus(MailOutboxMessage.Status.SENT);
+            message.setSentAt(LocalDateTime.now());
+            message.setLastError(null);
+            mailOutboxRepository.save(message);
+            logger.info("Email '{}' đã được gửi thành công đến {}", message.getSubject(), message.getRecipient());
+        } catch (Exception e) {
+            recordLatency(start);
+            failedAttemptCount.increment();
+            int attempts = message.getAttempts() + 1;
+            message.setAttempts(attempts);
+            message.setLastError(truncate(e.getMessage()));
+            if (attempts >= maxAttempts) {
+                giveUpCount.increment();
+                message.setStatus(MailOutboxMessage.Status.FAILED);
+                logger.error("Gửi email đến {} thất bại sau {} lần thử: {}", message.getRecipient(), attempts, e.getMessage(), e);
+            } else {
+                long delayMs = retryBaseDelayMs * (1L << Math.min(attempts - 1, 10));
+                message.setNextAttemptAt(LocalDateTime.now().plusNanos(delayMs * 1_000_000));
+                logger.warn("Gửi email đến {} lỗi (lần {}), thử lại sau {} ms: {}", message.getRecipient(), attempts, delayMs, e.getMessage());
+            }
+            mailOutboxRepository.save(message);
+        }
+    }
+
+    private void recordLatency(long startNanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        totalSendMillis.add(millis);
+        maxSendMillis.accumulateAndGet(millis, Math::max);
+    }
+
+    private static String truncate(String value) {
+        if (value == null) return null;
+        return value.length() > 500 ? value.substring(0, 500) : value;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long sent = sentCount.sum();
+        long failedAttempts = failedAttemptCount.sum();
+        long attempts = sent + failedAttempts;
+        return Map.of(
+                "queueDepth", getQueueDepth(),
+                "activeSenders", executor.getActiveCount(),
+                "sent", sent,
+                "failedAttempts", failedAttempts,
+                "givenUp", giveUpCount.sum(),
+                "deferredQueueFull", rejectedCount.sum(),
+                "avgSendMillis", attempts == 0 ? 0.0 : (double) totalSendMillis.sum() / attempts,
+                "maxSendMillis", maxSendMillis.get()
+        );
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // mail chưa gửi vẫn nằm trong outbox, lần chạy sau sẽ gửi tiếp
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
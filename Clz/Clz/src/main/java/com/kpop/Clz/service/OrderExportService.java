@@ -0,0 +1,226 @@
+package com.kpop.Clz.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Xuất đơn hàng (mỗi dòng = 1 item của 1 đơn) trong khoảng thời gian ra CSV hoặc NDJSON.
+ * Đọc bằng cursor forward-only và ghi thẳng từng dòng ra OutputStream, không giữ lại dòng nào:
+ * bộ nhớ dùng không phụ thuộc số dòng. Với MySQL statement dùng fetchSize = Integer.MIN_VALUE (Connector/J stream
+ * từng dòng trên connection riêng của lần export), nên URL datasource chung không cần useCursorFetch.
+ */
+@Service
+public class OrderExportService implements StatsSource {
+
+    private static final String EXPORT_SQL =
+            "SELECT o.id AS order_id, o.order_code, o.order_date, o.status, o.user_id, u.username, " +
+            "o.total_amount, o.shipping_fee, o.grand_total, o.shipping_address, o.phone_number, " +
+            "i.product_id, p.name AS product_name, i.quantity, i.unit_price " +
+            "FROM orders o " +
+            "JOIN users u ON u.id = o.user_id " +
+            "LEFT JOIN order_items i ON i.order_id = o.id " +
+            "LEFT JOIN products p ON p.id = i.product_id " +
+            "WHERE o.status <> 'CART' AND o.order_date >= ? AND o.order_date < ? " +
+            "ORDER BY o.id, i.id";
+
+    private static final String[] COLUMNS = {
+            "order_id", "order_code", "order_date", "status", "user_id", "username",
+            "total_amount", "shipping_fee", "grand_total", "shipping_address", "phone_number",
+            "product_id", "product_name", "quantity", "unit_price"
+    };
+
+    public enum Format {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.orders.export.fetch-size:1000}")
+    private int fetchSize;
+
+    private final LongAdder exports = new LongAdder();
+    private final LongAdder exportedRows = new LongAdder();
+
+    public OrderExportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Ghi các dòng có order_date trong [from, to) ra out (không đóng out). Trả về số dòng đã ghi.
+     */
+    public long export(LocalDateTime from, LocalDateTime to, Format format, OutputStream out) throws IOException {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("Export range must have 'from' before 'to'.");
+        }
+        RowWriter writer = format == Format.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+        long[] rows = {0};
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(EXPORT_SQL,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(streamingFetchSize(connection));
+                statement.setTimestamp(1, Timestamp.valueOf(from));
+                statement.setTimestamp(2, Timestamp.valueOf(to));
+                return statement;
+            }, rs -> {
+                try {
+                    writer.write(rs);
+                } catch (IOException e) {
+                    // client ngắt kết nối: dừng đọc cursor
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+        exports.increment();
+        exportedRows.add(rows[0]);
+        return rows[0];
+    }
+
+    // Connector/J chỉ stream khi fetch size là Integer.MIN_VALUE (nếu không sẽ đọc hết kết quả vào heap);
+    // driver khác (H2 trong test) dùng fetch size thường
+    private int streamingFetchSize(Connection connection) throws SQLException {
+        return "MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName()) ? Integer.MIN_VALUE : fetchSize;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "exports", exports.sum(),
+                "exportedRows", exportedRows.sum()
+        );
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = rs.getObject(COLUMNS[i]);
+                if (value instanceof Timestamp timestamp) {
+                    writer.write(timestamp.toLocalDateTime().toString());
+                } else if (value instanceof BigDecimal decimal) {
+                    writer.write(decimal.toPlainString());
+                } else if (value instanceof String text) {
+                    writer.write(escape(text));
+                } else if (value != null) {
+                    writer.write(value.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        // RFC 4180; thêm ' trước giá trị bắt đầu bằng = + - @ để Excel không chạy như công thức
+        static String escape(String value) {
+            if (!value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+            return value;
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(OutputStream out) throws IOException {
+            // stream do container quản lý, không để generator đóng nó
+            this.generator = objectMapper.createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setPrettyPrinter(new MinimalPrettyPrinter(""));
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (String column : COLUMNS) {
+                Object value = rs.getObject(column);
+                generator.writeFieldName(column);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof Timestamp timestamp) {
+                    generator.writeString(timestamp.toLocalDateTime().toString());
+                } else if (value instanceof BigDecimal decimal) {
+                    generator.writeNumber(decimal);
+                } else if (value instanceof Number number) {
+                    generator.writeNumber(number.longValue());
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.close();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.model.OrderOutboxEvent;
+import com.kpop.Clz.repository.OrderOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Xử lý bảng order_outbox theo lô: đưa mail xác nhận vào mail_outbox, cập nhật thống kê.
+ * Checkout chỉ ghi 1 dòng outbox cùng transaction với đơn hàng nên không phải chờ các việc này.
+ * Mỗi event chạy trong transaction riêng; UPDATE status có điều kiện bảo đảm mỗi event chỉ được xử lý 1 lần,
+ * lỗi thì retry với backoff lũy thừa giống MailOutboxDispatcher, quá maxAttempts thì đánh dấu FAILED.
+ */
+@Component
+public class OrderOutboxDispatcher implements StatsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderOutboxDispatcher.class);
+
+    private static final String CLAIM_EVENT =
+            "UPDATE order_outbox SET status = 'DONE', attempts = attempts + 1, processed_at = ? WHERE id = ? AND status = 'PENDING'";
+    private static final String ORDER_SUMMARY =
+            "SELECT o.order_code, o.grand_total, o.total_quantity, u.email, u.username " +
+            "FROM orders o JOIN users u ON u.id = o.user_id WHERE o.id = ?";
+
+    private final OrderOutboxRepository orderOutboxRepository;
+    private final EmailService emailService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.orders.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.orders.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.orders.outbox.retry-base-delay-ms:5000}")
+    private long retryBaseDelayMs;
+
+    private final LongAdder processedCount = new LongAdder();
+    private final LongAdder failedAttemptCount = new LongAdder();
+    private final LongAdder giveUpCount = new LongAdder();
+    private final LongAdder ordersPlaced = new LongAdder();
+    private final LongAdder unitsSold = new LongAdder();
+    private final LongAdder totalLagMillis = new LongAdder();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    public OrderOutboxDispatcher(OrderOutboxRepository orderOutboxRepository,
+                                 EmailService emailService,
+                                 JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate) {
+        this.orderOutboxRepository = orderOutboxRepository;
+        this.emailService = emailService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // Lấy 1 lô event đến hạn; lô đầy thì xử lý tiếp ngay thay vì chờ lần poll sau
+    @Scheduled(fixedDelayString = "${app.orders.outbox.poll-interval-ms:500}")
+    public int pollOutbox() {
+        int handled = 0;
+        List<OrderOutboxEvent> due;
+        do {
+            due = orderOutboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                    OrderOutboxEvent.Status.PENDING, LocalDateTime.now(), PageRequest.of(0, batchSize));
+            for (OrderOutboxEvent event : due) {
+                if (dispatch(event)) {
+                    handled++;
+                }
+            }
+        } while (due.size() == batchSize && handled > 0);
+        return handled;
+    }
+
+    private boolean dispatch(OrderOutboxEvent event) {
+        try {
+            Boolean claimed = transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                if (jdbcTemplate.update(CLAIM_EVENT, Timestamp.valueOf(now), event.getId()) == 0) {
+                    return false; // đã được xử lý ở lần poll khác
+                }
+                handle(event);
+                recordLag(event, now);
+                return true;
+            });
+            if (Boolean.TRUE.equals(claimed)) {
+                processedCount.increment();
+                return true;
+            }
+            return false;
+        } catch (RuntimeException e) {
+            recordFailure(event, e);
+            return false;
+        }
+    }
+
+    private void handle(OrderOutboxEvent event) {
+        switch (event.getType()) {
+            case ORDER_PLACED -> handleOrderPlaced(event);
+        }
+    }
+
+    private void handleOrderPlaced(OrderOutboxEvent event) {
+        OrderSummary summary = jdbcTemplate.query(ORDER_SUMMARY, rs -> rs.next()
+                ? new OrderSummary(rs.getString("order_code"), rs.getBigDecimal("grand_total"),
+                        rs.getInt("total_quantity"), rs.getString("email"), rs.getString("username"))
+                : null, event.getOrderId());
+        if (summary == null) {
+            logger.warn("Order {} of outbox event {} no longer exists, skipping confirmation.", event.getOrderId(), event.getId());
+            return;
+        }
+        emailService.sendOrderConfirmationEmail(summary.email(), summary.username(), summary.orderCode(), summary.grandTotal());
+        ordersPlaced.increment();
+        unitsSold.add(summary.totalQuantity());
+    }
+
+    private void recordFailure(OrderOutboxEvent event, RuntimeException e) {
+        failedAttemptCount.increment();
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(truncate(e.getMessage()));
+        if (attempts >= maxAttempts) {
+            giveUpCount.increment();
+            event.setStatus(OrderOutboxEvent.Status.FAILED);
+            logger.error("Outbox event {} for order {} failed after {} attempts: {}", event.getId(), event.getOrderId(), attempts, e.getMessage(), e);
+        } else {
+            long delayMs = retryBaseDelayMs * (1L << Math.min(attempts - 1, 10));
+            event.setNextAttemptAt(LocalDateTime.now().plusNanos(delayMs * 1_000_000));
+            logger.warn("Outbox event {} for order {} failed (attempt {}), retrying in {} ms: {}", event.getId(), event.getOrderId(), attempts, delayMs, e.getMessage());
+        }
+        orderOutboxRepository.save(event);
+    }
+
+    private void recordLag(OrderOutboxEvent event, LocalDateTime now) {
+        if (event.getCreatedAt() == null) {
+            return;
+        }
+        long millis = Math.max(0, Duration.between(event.getCreatedAt(), now).toMillis());
+        totalLagMillis.add(millis);
+        maxLagMillis.accumulateAndGet(millis, Math::max);
+    }
+
+    private static String truncate(String value) {
+        if (value == null) return null;
+        return value.length() > 500 ? value.substring(0, 500) : value;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long processed = processedCount.sum();
+        return Map.of(
+                "processed", processed,
+                "failedAttempts", failedAttemptCount.sum(),
+                "givenUp", giveUpCount.sum(),
+                "ordersPlaced", ordersPlaced.sum(),
+                "unitsSold", unitsSold.sum(),
+                "avgLagMillis", processed == 0 ? 0.0 : (double) totalLagMillis.sum() / processed,
+                "maxLagMillis", maxLagMillis.get()
+        );
+    }
+
+    private record OrderSummary(String orderCode, BigDecimal grandTotal, int totalQuantity, String email, String username) {}
+}
@@ -3,36 +3,49 @@ package com.kpop.Clz.service;
 import com.kpop.Clz.dto.CartItemInputDTO;
 import com.kpop.Clz.dto.CreateOrderRequestDTO;
 import com.kpop.Clz.dto.OrderDTO;
+import com.kpop.Clz.dto.OrderHeaderRowDTO;
+import com.kpop.Clz.dto.OrderHistoryPageDTO;
 import com.kpop.Clz.dto.OrderItemDTO;
+import com.kpop.Clz.dto.OrderItemRowDTO;
 import com.kpop.Clz.exception.InsufficientStockException;
 import com.kpop.Clz.exception.ResourceNotFoundException;
 import com.kpop.Clz.model.Order;
 import com.kpop.Clz.model.OrderItem;
+import com.kpop.Clz.model.OrderOutboxEvent;
 import com.kpop.Clz.model.Product;
 import com.kpop.Clz.model.User;
+import com.kpop.Clz.repository.OrderOutboxRepository;
 import com.kpop.Clz.repository.OrderRepository;
 import com.kpop.Clz.repository.ProductRepository;
 import com.kpop.Clz.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 import java.time.format.DateTimeFormatter;
 import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 public class OrderService {
 
+    private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
+
     @Autowired
     private OrderRepository orderRepository;
 
@@ -42,42 +55,59 @@ public class OrderService {
     @Autowired
     private UserRepository userRepository;
 
+    @Value("${app.orders.history.page-size:20}")
+    private int historyPageSize;
+
+    @Value("${app.orders.history.max-page-size:100}")
+    private int historyMaxPageSize;
+
+    /**
+     * Một trang lịch sử đơn hàng (không gồm giỏ hàng) bằng đúng 2 query projection: header các đơn, rồi item của các đơn đó.
+     * Không hydrate entity nên không có lazy/eager loading kéo theo product đầy đủ.
+     */
     @Transactional(readOnly = true)
-    public List<OrderDTO> getOrdersForCurrentUser() {
-        System.out.println("OrderService: Entering getOrdersForCurrentUser");
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated() || "anonymousUser".equals(authentication.getPrincipal())) {
-            System.err.println("OrderService: User is not authenticated or authentication is anonymous.");
-            throw new UsernameNotFoundException("User not authenticated for fetching orders.");
+    public OrderHistoryPageDTO getOrderHistoryPage(Integer userId, Integer before, Integer size) {
+        int pageSize = (size == null || size <= 0) ? historyPageSize : Math.min(size, historyMaxPageSize);
+        // lấy dư 1 phần tử để biết còn trang sau hay không
+        List<OrderHeaderRowDTO> rows = orderRepository.findHeaderRowsByUserId(
+                userId, Order.OrderStatus.CART, before, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<OrderHeaderRowDTO> headers = hasMore ? rows.subList(0, pageSize) : rows;
+        if (headers.isEmpty()) {
+            return new OrderHistoryPageDTO(Collections.emptyList(), null, false);
         }
-        String currentPrincipalName = authentication.getName();
-        System.out.println("OrderService: Current principal name: " + currentPrincipalName);
-
-        User currentUser = userRepository.findByUsername(currentPrincipalName)
-                .orElseGet(() -> userRepository.findByEmail(currentPrincipalName)
-                        .orElseThrow(() -> {
-                            System.err.println("OrderService: User not found with principal: " + currentPrincipalName);
-                            return new UsernameNotFoundException("User not found with principal: " + currentPrincipalName);
-                        })
-                );
-        System.out.println("OrderService: Found user with ID: " + currentUser.getId());
-
-        List<Order> orders = orderRepository.findByUserIdOrderByOrderDateDesc(currentUser.getId());
-        System.out.println("OrderService: Fetched " + orders.size() + " orders from repository.");
-
-        if (orders.isEmpty()) {
-            return Collections.emptyList();
+
+        Map<Integer, List<OrderItemDTO>> itemsByOrder = new HashMap<>();
+        for (OrderItemRowDTO row : orderRepository.findItemRowsByOrderIds(
+                headers.stream().map(OrderHeaderRowDTO::getId).toList())) {
+            itemsByOrder.computeIfAbsent(row.getOrderId(), id -> new ArrayList<>()).add(row.toOrderItemDTO());
         }
 
-        try {
-            return orders.stream()
-                    .map(this::convertToOrderDTO)
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            System.err.println("OrderService: Error during DTO conversion - " + e.getMessage());
-            e.printStackTrace();
-            throw e;
+        List<OrderDTO> orders = new ArrayList<>(headers.size());
+        for (OrderHeaderRowDTO header : headers) {
+            orders.add(new OrderDTO(
+                    header.getId(),
+                    header.getOrderDate() != null ? header.getOrderDate().toLocalDateTime() : null,
+                    header.getOrderCode(),
+                    header.getTotalAmount(),
+                    header.getShippingFee(),
+                    header.getGrandTotal(),
+                    header.getStatus(),
+                    header.getShippingAddress(),
+                    header.getPhoneNumber(),
+                    itemsByOrder.getOrDefault(header.getId(), Collections.emptyList())
+            ));
         }
+        Integer nextBefore = hasMore ? headers.get(headers.size() - 1).getId() : null;
+        return new OrderHistoryPageDTO(orders, nextBefore, hasMore);
+    }
+
+    // Đọc lại 1 đơn (vd. replay response của request có Idempotency-Key khi body quá lớn để giữ trong bộ nhớ)
+    @Transactional(readOnly = true)
+    public OrderDTO getOrderDTO(Integer orderId) {
+        return orderRepository.findWithItemsById(orderId)
+                .map(this::convertToOrderDTO)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
     }
 
     public OrderDTO convertToOrderDTO(Order order) {
@@ -118,12 +148,21 @@ public class OrderService {
     }
 
     @Autowired
-    private CartService cartService; // Inject CartService
+    private OrderOutboxRepository orderOutboxRepository;
 
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private CartService cartService;
+
+    /**
+     * Transaction gồm trừ kho + ghi đơn hàng + xóa giỏ (2 DELETE theo user) + 1 dòng order_outbox;
+     * mail xác nhận và thống kê do OrderOutboxDispatcher làm sau khi commit.
+     * Giỏ phải xóa ở đây: xóa bất đồng bộ sẽ xóa luôn các món user thêm vào giỏ mới sau khi checkout.
+     */
     @Transactional
     public Order createOrder(CreateOrderRequestDTO request, User currentUser) {
-        System.out.println("OrderService: Entering createOrder for user: " + currentUser.getEmail());
-
         Order newOrder = new Order();
         newOrder.setUser(currentUser);
         newOrder.setShippingAddress(request.getShippingAddress());
@@ -136,14 +175,38 @@ public class OrderService {
             throw new IllegalArgumentException("Order must contain at least one item.");
         }
 
+        // Gom số lượng theo sản phẩm (TreeMap => thứ tự id tăng dần, tránh deadlock giữa các checkout song song)
+        Map<Long, Integer> requestedQuantities = new TreeMap<>();
         for (CartItemInputDTO itemInput : request.getCartItems()) {
-            Product product = productRepository.findById(itemInput.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: " + itemInput.getProductId()));
+            if (itemInput.getProductId() == null || itemInput.getQuantity() < 1) {
+                throw new IllegalArgumentException("Each order item needs a product ID and a quantity of at least 1.");
+            }
+            requestedQuantities.merge(itemInput.getProductId(), itemInput.getQuantity(), Integer::sum);
+        }
 
-            if (product.getStockQuantity() < itemInput.getQuantity()) {
+        // Hàng đã giữ bằng reservation đã bị trừ khỏi kho từ trước: chỉ trừ/cộng phần chênh lệch
+        Map<Long, Integer> reservedQuantities = request.getReservationId() == null
+                ? Collections.emptyMap()
+                : stockReservationService.consume(request.getReservationId(), currentUser.getId());
+
+        // Load tất cả sản phẩm bằng 1 query, validate trong bộ nhớ
+        Map<Long, Product> productsById = productRepository.findAllById(requestedQuantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        for (Map.Entry<Long, Integer> entry : requestedQuantities.entrySet()) {
+            Product product = productsById.get(entry.getKey());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found with ID: " + entry.getKey());
+            }
+            int available = product.getStockQuantity() + reservedQuantities.getOrDefault(entry.getKey(), 0);
+            if (available < entry.getValue()) {
                 throw new InsufficientStockException("Not enough stock for product: " + product.getName() +
-                        ". Requested: " + itemInput.getQuantity() + ", Available: " + product.getStockQuantity());
+                        ". Requested: " + entry.getValue() + ", Available: " + available);
             }
+        }
+
+        for (CartItemInputDTO itemInput : request.getCartItems()) {
+            Product product = productsById.get(itemInput.getProductId());
 
             OrderItem orderItem = new OrderItem();
             orderItem.setProduct(product);
@@ -156,11 +219,23 @@ public class OrderService {
             subtotalProducts = subtotalProducts.add(
                     product.getPrice().multiply(new BigDecimal(itemInput.getQuantity()))
             );
+        }
 
-            product.setStockQuantity(product.getStockQuantity() - itemInput.getQuantity());
-            productRepository.save(product);
+        // Trừ phần chênh lệch so với hàng đã giữ (âm = trả lại kho) bằng UPDATE có điều kiện, 1 JDBC batch theo id tăng dần
+        // để các checkout song song luôn khóa dòng products cùng thứ tự; 0 dòng ở delta dương => không đủ hàng
+        TreeMap<Long, Integer> stockDeltas = new TreeMap<>(requestedQuantities);
+        reservedQuantities.forEach((productId, quantity) -> stockDeltas.merge(productId, -quantity, Integer::sum));
+        int[] updatedRows = stockReservationService.applyStockDeltas(stockDeltas);
+        int index = 0;
+        for (Map.Entry<Long, Integer> entry : stockDeltas.entrySet()) {
+            if (updatedRows[index++] == 0 && entry.getValue() > 0) {
+                Product product = productsById.get(entry.getKey());
+                throw new InsufficientStockException("Not enough stock for product: " + product.getName() +
+                        ". Requested: " + entry.getValue());
+            }
         }
         newOrder.setTotalAmount(subtotalProducts);
+        newOrder.setTotalQuantity(requestedQuantities.values().stream().mapToInt(Integer::intValue).sum());
 
         BigDecimal actualShippingFee = calculateShippingFeeOnBackend(request.getSelectedProvince(), newOrder.getOrderItems());
         newOrder.setShippingFee(actualShippingFee);
@@ -169,10 +244,9 @@ public class OrderService {
         newOrder.setStatus(Order.OrderStatus.PENDING);
 
         Order savedOrder = orderRepository.save(newOrder);
-        System.out.println("OrderService: Actual Order created successfully with ID: " + savedOrder.getId());
-
-        cartService.clearCartAfterCheckout(currentUser);
-        System.out.println("OrderService: Cart (Order with CART status) cleared for user after order creation.");
+        cartService.clearCartAfterCheckout(currentUser.getId());
+        orderOutboxRepository.save(OrderOutboxEvent.orderPlaced(savedOrder));
+        logger.debug("Order {} created for user {}", savedOrder.getId(), currentUser.getId());
 
         return savedOrder;
     }
@@ -196,12 +270,17 @@ public class OrderService {
         return new BigDecimal("10.00");
     }
 
+    // Mã ngẫu nhiên 8 ký tự hex; kiểm tra trùng bằng existsByOrderCode, thử lại vài lần trước khi bỏ cuộc
     private String generateOrderCode() {
         String datePart = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
 
-        String randomPart = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-
-        String orderCode = "ORD-" + datePart + "-" + randomPart;
-        return orderCode;
+        for (int attempt = 0; attempt < 5; attempt++) {
+            String randomPart = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+            String orderCode = "ORD-" + datePart + "-" + randomPart;
+            if (!orderRepository.existsByOrderCode(orderCode)) {
+                return orderCode;
+            }
+        }
+        throw new IllegalStateException("Could not generate a unique order code.");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.BulkOrderStatusResultDTO;
+import com.kpop.Clz.dto.OrderTransitionFailureDTO;
+import com.kpop.Clz.model.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chuyển trạng thái đơn hàng theo Order.OrderStatus.canTransitionTo, cho cả nghìn đơn mỗi lần.
+ * Mỗi chunk là 1 transaction: khóa các đơn (SELECT ... FOR UPDATE), 1 câu UPDATE ... WHERE id IN cho các đơn hợp lệ,
+ * và khi hủy đơn thì cộng lại kho bằng 1 UPDATE cho mỗi sản phẩm (gom SUM theo product_id trong chunk).
+ * Đơn không tồn tại / không chuyển được được trả về trong failures, không làm hỏng các đơn khác.
+ */
+@Service
+public class OrderStatusService implements StatsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatusService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StockReservationService stockReservationService;
+
+    @Value("${app.orders.status.chunk-size:500}")
+    private int chunkSize;
+
+    private final LongAdder transitioned = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public OrderStatusService(JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              StockReservationService stockReservationService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.stockReservationService = stockReservationService;
+    }
+
+    public BulkOrderStatusResultDTO transition(Collection<Integer> orderIds, Order.OrderStatus target) {
+        if (target == null || target == Order.OrderStatus.CART) {
+            throw new IllegalArgumentException("Orders cannot be moved to status " + target + ".");
+        }
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        List<OrderTransitionFailureDTO> failures = new ArrayList<>();
+        int updated = 0;
+        int restockedProducts = 0;
+
+        for (int start = 0; start < ids.size(); start += chunkSize) {
+            List<Integer> chunk = ids.subList(start, Math.min(start + chunkSize, ids.size()));
+            ChunkResult result = transactionTemplate.execute(status -> transitionChunk(chunk, target));
+            updated += result.updated();
+            restockedProducts += result.restockedProducts();
+            failures.addAll(result.failures());
+        }
+
+        transitioned.add(updated);
+        rejected.add(failures.size());
+        logger.info("Moved {} of {} order(s) to {}; {} failure(s).", updated, ids.size(), target, failures.size());
+        return new BulkOrderStatusResultDTO(target, ids.size(), updated, restockedProducts, failures);
+    }
+
+    private ChunkResult transitionChunk(List<Integer> chunk, Order.OrderStatus target) {
+        String placeholders = placeholders(chunk.size());
+        // khóa theo thứ tự id tăng dần để các request song song không deadlock
+        Map<Integer, Order.OrderStatus> current = new HashMap<>();
+        jdbcTemplate.query("SELECT id, status FROM orders WHERE id IN (" + placeholders + ") ORDER BY id FOR UPDATE",
+                rs -> {
+                    current.put(rs.getInt("id"), Order.OrderStatus.valueOf(rs.getString("status")));
+                }, chunk.toArray());
+
+        List<Integer> valid = new ArrayList<>(chunk.size());
+        List<OrderTransitionFailureDTO> failures = new ArrayList<>();
+        for (Integer id : chunk) {
+            Order.OrderStatus from = current.get(id);
+            if (from == null || from == Order.OrderStatus.CART) {
+                failures.add(new OrderTransitionFailureDTO(id, null, OrderTransitionFailureDTO.NOT_FOUND,
+                        "Order not found with ID: " + id));
+            } else if (!from.canTransitionTo(target)) {
+                failures.add(new OrderTransitionFailureDTO(id, from, OrderTransitionFailureDTO.INVALID_TRANSITION,
+                        "Cannot move order from " + from + " to " + target + "."));
+            } else {
+                valid.add(id);
+            }
+        }
+        if (valid.isEmpty()) {
+            return new ChunkResult(0, 0, failures);
+        }
+
+        String validPlaceholders = placeholders(valid.size());
+        List<Object> args = new ArrayList<>(valid.size() + 1);
+        args.add(target.name());
+        args.addAll(valid);
+        int updated = jdbcTemplate.update("UPDATE orders SET status = ? WHERE id IN (" + validPlaceholders + ")", args.toArray());
+
+        int restockedProducts = 0;
+        if (target == Order.OrderStatus.CANCELLED) {
+            Map<Long, Integer> quantities = new TreeMap<>();
+            jdbcTemplate.query("SELECT product_id, SUM(quantity) AS quantity FROM order_items " +
+                            "WHERE order_id IN (" + validPlaceholders + ") AND product_id IS NOT NULL GROUP BY product_id",
+                    rs -> {
+                        quantities.put(rs.getLong("product_id"), rs.getInt("quantity"));
+                    }, valid.toArray());
+            stockReservationService.restock(quantities);
+            restockedProducts = quantities.size();
+        }
+        return new ChunkResult(updated, restockedProducts, failures);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "transitioned", transitioned.sum(),
+                "rejected", rejected.sum()
+        );
+    }
+
+    private record ChunkResult(int updated, int restockedProducts, List<OrderTransitionFailureDTO> failures) {}
+}
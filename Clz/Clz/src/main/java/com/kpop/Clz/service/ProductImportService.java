@@ -0,0 +1,469 @@
+package com.kpop.Clz.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kpop.Clz.dto.ProductImportErrorDTO;
+import com.kpop.Clz.dto.ProductImportResultDTO;
+import com.kpop.Clz.dto.ProductImportRowDTO;
+import com.kpop.Clz.model.Group;
+import com.kpop.Clz.repository.GroupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Import sản phẩm hàng loạt từ CSV (có dòng header) hoặc JSON (mảng object / NDJSON).
+ * Đọc file theo stream, mỗi lô batch-size dòng được validate song song rồi INSERT bằng 1 JDBC batch;
+ * tên group được đối chiếu với bảng groups (không phân biệt hoa thường) một lần cho cả file.
+ * Dòng lỗi được bỏ qua và báo lại theo số dòng. Mỗi lô commit trong transaction riêng (file 200k dòng không giữ
+ * 1 transaction dài): lỗi giữa chừng (file hỏng, lỗi DB) chỉ rollback lô đang ghi, các lô trước đã được import. dryRun chỉ validate.
+ */
+@Service
+public class ProductImportService implements StatsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final String INSERT_PRODUCT =
+            "INSERT INTO products (name, group_id, member, description, price, image_url, stock_quantity) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+    public enum Format { CSV, JSON }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final GroupRepository groupRepository;
+    private final ObjectMapper objectMapper;
+    private final ProductSearchService productSearchService;
+
+    @Value("${app.products.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.products.import.max-rows:200000}")
+    private int maxRows;
+
+    @Value("${app.products.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    private final LongAdder importedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public ProductImportService(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                GroupRepository groupRepository,
+                                ObjectMapper objectMapper,
+                                ProductSearchService productSearchService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.groupRepository = groupRepository;
+        this.objectMapper = objectMapper;
+        this.productSearchService = productSearchService;
+    }
+
+    public ProductImportResultDTO importProducts(InputStream input, Format format, boolean dryRun) {
+        Map<String, Integer> groupIdsByName = new HashMap<>();
+        for (Group group : groupRepository.findAll()) {
+            groupIdsByName.putIfAbsent(normalizeGroupName(group.getName()), group.getId());
+        }
+
+        ImportState state = new ImportState();
+        long start = System.nanoTime();
+        try {
+            readAndProcess(input, format, groupIdsByName, state, !dryRun);
+        } catch (UncheckedIOException e) {
+            throw new IllegalArgumentException("Could not read import file: " + e.getCause().getMessage()
+                    + importedSoFar(state), e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(e.getMessage() + importedSoFar(state), e);
+        } finally {
+            importedCount.add(state.importedRows);
+            // các lô đã commit (kể cả khi lỗi giữa chừng) được đưa vào index tìm kiếm 1 lần
+            productSearchService.productsChanged(state.insertedIds);
+        }
+
+        int imported = state.importedRows;
+        rejectedCount.add(state.totalRows - state.validRows);
+        logger.info("Product import{}: {} row(s), {} valid, {} imported in {} ms.", dryRun ? " (dry run)" : "",
+                state.totalRows, state.validRows, imported, (System.nanoTime() - start) / 1_000_000);
+        return new ProductImportResultDTO(dryRun, state.totalRows, state.validRows, imported,
+                state.errorCount, state.errors);
+    }
+
+    private static String importedSoFar(ImportState state) {
+        return state.importedRows == 0 ? "" : " (" + state.importedRows + " row(s) before this point were already imported)";
+    }
+
+    private void readAndProcess(InputStream input, Format format, Map<String, Integer> groupIdsByName,
+                                ImportState state, boolean write) {
+        try (RowSource source = format == Format.CSV ? new CsvRowSource(input) : new JsonRowSource(input)) {
+            List<ProductImportRowDTO> chunk = new ArrayList<>(batchSize);
+            ProductImportRowDTO row;
+            while ((row = source.next()) != null) {
+                if (++state.totalRows > maxRows) {
+                    throw new IllegalArgumentException("Import is limited to " + maxRows + " rows.");
+                }
+                chunk.add(row);
+                if (chunk.size() == batchSize) {
+                    processChunk(chunk, groupIdsByName, state, write);
+                    chunk = new ArrayList<>(batchSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(chunk, groupIdsByName, state, write);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void processChunk(List<ProductImportRowDTO> chunk, Map<String, Integer> groupIdsByName,
+                              ImportState state, boolean write) {
+        // validate song song, kết quả giữ đúng thứ tự dòng
+        List<ValidatedRow> validated = chunk.parallelStream()
+                .map(row -> validate(row, groupIdsByName))
+                .toList();
+
+        List<Object[]> inserts = new ArrayList<>(validated.size());
+        Map<String, Integer> imageRefs = new HashMap<>();
+        for (ValidatedRow result : validated) {
+            if (!result.errors().isEmpty()) {
+                state.errorCount += result.errors().size();
+                for (ProductImportErrorDTO error : result.errors()) {
+                    if (state.errors.size() < maxReportedErrors) {
+                        state.errors.add(error);
+                    }
+                }
+                continue;
+            }
+            state.validRows++;
+            inserts.add(result.args());
+            String hash = FileStorageService.hashFromUrl((String) result.args()[5]);
+            if (hash != null) {
+                imageRefs.merge(hash, 1, Integer::sum);
+            }
+        }
+        if (!write || inserts.isEmpty()) {
+            return;
+        }
+        List<Long> insertedIds = transactionTemplate.execute(status -> insertChunk(inserts, imageRefs));
+        state.importedRows += insertedIds.size();
+        state.insertedIds.addAll(insertedIds);
+    }
+
+    private List<Long> insertChunk(List<Object[]> inserts, Map<String, Integer> imageRefs) {
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_PRODUCT, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Object[] args = inserts.get(i);
+                        for (int j = 0; j < args.length; j++) {
+                            StatementCreatorUtils.setParameterValue(ps, j + 1, SqlTypeValue.TYPE_UNKNOWN, args[j]);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return inserts.size();
+                    }
+                }, keyHolder);
+        List<Long> insertedIds = new ArrayList<>(inserts.size());
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            insertedIds.add(((Number) keys.values().iterator().next()).longValue());
+        }
+        // INSERT bằng JDBC không qua StoredFileReferenceTracker: tự tăng ref_count cho ảnh đã upload
+        if (!imageRefs.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE stored_files SET ref_count = ref_count + ? WHERE sha256 = ?",
+                    imageRefs.entrySet().stream().map(e -> new Object[]{e.getValue(), e.getKey()}).toList());
+        }
+        return insertedIds;
+    }
+
+    private ValidatedRow validate(ProductImportRowDTO row, Map<String, Integer> groupIdsByName) {
+        List<ProductImportErrorDTO> errors = new ArrayList<>(1);
+        String name = trimToNull(row.getName());
+        if (name == null) {
+            errors.add(new ProductImportErrorDTO(row.getRow(), "name", "Name is required."));
+        } else if (name.length() > 255) {
+            errors.add(new ProductImportErrorDTO(row.getRow(), "name", "Name must be at most 255 characters."));
+        }
+
+        Integer groupId = null;
+        String groupName = trimToNull(row.getGroupName());
+        if (groupName != null) {
+            groupId = groupIdsByName.get(normalizeGroupName(groupName));
+            if (groupId == null) {
+                errors.add(new ProductImportErrorDTO(row.getRow(), "groupName", "Unknown group: " + groupName));
+            }
+        }
+
+        String member = trimToNull(row.getMember());
+        if (member != null && member.length() > 100) {
+            errors.add(new ProductImportErrorDTO(row.getRow(), "member", "Member must be at most 100 characters."));
+        }
+
+        BigDecimal price = null;
+        String rawPrice = trimToNull(row.getPrice());
+        if (rawPrice == null) {
+            errors.add(new ProductImportErrorDTO(row.getRow(), "price", "Price is required."));
+        } else {
+            try {
+                price = new BigDecimal(rawPrice);
+                if (price.signum() < 0 || price.compareTo(MAX_PRICE) > 0 || price.stripTrailingZeros().scale() > 2) {
+                    errors.add(new ProductImportErrorDTO(row.getRow(), "price",
+                            "Price must be between 0 and " + MAX_PRICE + " with at most 2 decimals."));
+                }
+            } catch (NumberFormatException e) {
+                errors.add(new ProductImportErrorDTO(row.getRow(), "price", "Invalid price: " + rawPrice));
+            }
+        }
+
+        int stock = 0;
+        String rawStock = trimToNull(row.getStockQuantity());
+        if (rawStock != null) {
+            try {
+                stock = Integer.parseInt(rawStock);
+                if (stock < 0) {
+                    errors.add(new ProductImportErrorDTO(row.getRow(), "stockQuantity", "Stock quantity cannot be negative."));
+                }
+            } catch (NumberFormatException e) {
+                errors.add(new ProductImportErrorDTO(row.getRow(), "stockQuantity", "Invalid stock quantity: " + rawStock));
+            }
+        }
+
+        String imageUrl = trimToNull(row.getImageUrl());
+        if (imageUrl != null && imageUrl.length() > 500) {
+            errors.add(new ProductImportErrorDTO(row.getRow(), "imageUrl", "Image URL must be at most 500 characters."));
+        }
+
+        if (!errors.isEmpty()) {
+            return new ValidatedRow(null, errors);
+        }
+        return new ValidatedRow(new Object[]{name, groupId, member, trimToNull(row.getDescription()), price, imageUrl, stock},
+                errors);
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) return null;
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static String normalizeGroupName(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Tên cột được so khớp không phân biệt hoa thường, bỏ qua '_', '-' và khoảng trắng (vd. stock_quantity, Group Name)
+    private static String normalizeColumn(String column) {
+        return column.toLowerCase(Locale.ROOT).replaceAll("[\\s_\\-]", "");
+    }
+
+    private static void setField(ProductImportRowDTO row, String normalizedColumn, String value) {
+        switch (normalizedColumn) {
+            case "name" -> row.setName(value);
+            case "group", "groupname" -> row.setGroupName(value);
+            case "member" -> row.setMember(value);
+            case "description" -> row.setDescription(value);
+            case "price" -> row.setPrice(value);
+            case "imageurl", "image" -> row.setImageUrl(value);
+            case "stock", "stockquantity" -> row.setStockQuantity(value);
+            default -> { } // cột không dùng thì bỏ qua
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "importedRows", importedCount.sum(),
+                "rejectedRows", rejectedCount.sum()
+        );
+    }
+
+    private static final class ImportState {
+        int totalRows;
+        int validRows;
+        int errorCount;
+        int importedRows;
+        final List<ProductImportErrorDTO> errors = new ArrayList<>();
+        final List<Long> insertedIds = new ArrayList<>();
+    }
+
+    private record ValidatedRow(Object[] args, List<ProductImportErrorDTO> errors) {}
+
+    private interface RowSource extends AutoCloseable {
+        ProductImportRowDTO next() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    // CSV theo RFC 4180: field trong dấu ", "" là dấu " thoát, xuống dòng trong field được giữ nguyên
+    private static final class CsvRowSource implements RowSource {
+        private final Reader reader;
+        private final String[] columns;
+        private final StringBuilder field = new StringBuilder();
+        private int rowNumber;
+        private boolean eof;
+
+        CsvRowSource(InputStream input) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+            List<String> header = readRecord();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV file is empty.");
+            }
+            if (!header.isEmpty() && header.get(0).startsWith("\uFEFF")) {
+                header.set(0, header.get(0).substring(1)); // BOM của Excel
+            }
+            this.columns = header.stream().map(ProductImportService::normalizeColumn).toArray(String[]::new);
+            if (!header.isEmpty() && Arrays.stream(columns).noneMatch("name"::equals)) {
+                throw new IllegalArgumentException("CSV header must contain a 'name' column.");
+            }
+        }
+
+        @Override
+        public ProductImportRowDTO next() throws IOException {
+            List<String> values;
+            do {
+                values = readRecord();
+                if (values == null) {
+                    return null;
+                }
+            } while (values.size() == 1 && values.get(0).isEmpty()); // bỏ dòng trống
+
+            ProductImportRowDTO row = new ProductImportRowDTO();
+            row.setRow(++rowNumber);
+            for (int i = 0; i < columns.length && i < values.size(); i++) {
+                setField(row, columns[i], values.get(i));
+            }
+            return row;
+        }
+
+        private List<String> readRecord() throws IOException {
+            if (eof) {
+                return null;
+            }
+            List<String> values = new ArrayList<>();
+            field.setLength(0);
+            boolean quoted = false;
+            boolean any = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int nextChar = reader.read();
+                        if (nextChar == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (nextChar != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    values.add(field.toString());
+                    return values;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            eof = true;
+            if (!any) {
+                return null;
+            }
+            values.add(field.toString());
+            return values;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    // Chấp nhận 1 mảng JSON các object, hoặc các object nối tiếp nhau (NDJSON)
+    private final class JsonRowSource implements RowSource {
+        private final JsonParser parser;
+        private boolean inArray;
+        private boolean started;
+        private int rowNumber;
+
+        JsonRowSource(InputStream input) throws IOException {
+            this.parser = objectMapper.getFactory().createParser(input);
+        }
+
+        @Override
+        public ProductImportRowDTO next() throws IOException {
+            try {
+                JsonToken token = parser.nextToken();
+                if (!started) {
+                    started = true;
+                    if (token == JsonToken.START_ARRAY) {
+                        inArray = true;
+                        token = parser.nextToken();
+                    }
+                }
+                if (token == null || (inArray && token == JsonToken.END_ARRAY)) {
+                    return null;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IllegalArgumentException("Expected a JSON object for row " + (rowNumber + 1) + ".");
+                }
+                JsonNode node = parser.readValueAsTree();
+                ProductImportRowDTO row = new ProductImportRowDTO();
+                row.setRow(++rowNumber);
+                node.fields().forEachRemaining(entry -> {
+                    JsonNode value = entry.getValue();
+                    if (value.isValueNode() && !value.isNull()) {
+                        setField(row, normalizeColumn(entry.getKey()), value.asText());
+                    }
+                });
+                return row;
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed JSON near row " + (rowNumber + 1) + ": " + e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,619 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.FacetCountDTO;
+import com.kpop.Clz.dto.ProductSearchResultDTO;
+import com.kpop.Clz.dto.ProductSummaryDTO;
+import com.kpop.Clz.model.Group;
+import com.kpop.Clz.repository.GroupRepository;
+import com.kpop.Clz.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.DrillDownQuery;
+import org.apache.lucene.facet.DrillSideways;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Tìm kiếm full-text sản phẩm bằng index Lucene nhúng (name, member, description, tên group).
+ * Hỗ trợ prefix (gõ dở "kari" ra "Karina"), fuzzy (gõ sai 1-2 ký tự) và facet theo group / member (DrillSideways).
+ * Index được cập nhật theo id sau khi transaction ghi sản phẩm commit (ProductService, GroupService, import);
+ * lệch với DB thì dựng lại toàn bộ bằng rebuildIndex(). Kết quả lấy lại từ DB nên giá / tồn kho luôn mới.
+ * Giá trị facet được chuẩn hóa (trim, gộp khoảng trắng, chữ thường) khi index và khi lọc: "AESPA " lọc ra "aespa".
+ */
+@Service
+public class ProductSearchService implements StatsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchService.class);
+
+    static final String F_ID = "id";
+    static final String F_NAME = "name";
+    static final String F_MEMBER = "member";
+    static final String F_DESCRIPTION = "description";
+    static final String F_GROUP = "group";
+    // name + member + group gộp lại, chỉ để chạy fuzzy 1 lần mỗi từ thay vì mỗi field 1 automaton
+    static final String F_FUZZY = "fuzzy";
+    public static final String FACET_GROUP = "group";
+    public static final String FACET_MEMBER = "member";
+
+    // trọng số theo field: trùng tên / member / group quan trọng hơn trùng mô tả
+    private static final Map<String, Float> FIELD_BOOSTS = Map.of(
+            F_NAME, 3f, F_MEMBER, 2.5f, F_GROUP, 2f, F_DESCRIPTION, 1f);
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final float FUZZY_BOOST = 0.6f;
+    // từ dài (mã album, serial) chỉ khớp đúng / prefix: automaton fuzzy cho từ dài rất tốn
+    private static final int MAX_FUZZY_LENGTH = 20;
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final int FACET_TOP_N = 20;
+    private static final int REINDEX_CHUNK = 500;
+    private static final int REINDEX_STRIPES = 64;
+    private static final int LATENCY_SAMPLES = 1024;
+
+    private static final String SELECT_PRODUCTS = "SELECT id, name, member, description, group_id FROM products";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepository productRepository;
+    private final GroupRepository groupRepository;
+
+    @Value("${app.products.search.index-dir:}")
+    private String indexDir;             // để trống => index trong bộ nhớ (test), dựng lại mỗi lần khởi động
+
+    @Value("${app.products.search.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    @Value("${app.products.search.default-size:20}")
+    private int defaultSize;
+
+    @Value("${app.products.search.max-size:100}")
+    private int maxSize;
+
+    @Value("${app.products.search.max-window:1000}")
+    private int maxWindow;
+
+    private final Analyzer analyzer = new FoldingAnalyzer();
+    private final FacetsConfig facetsConfig = new FacetsConfig();
+    // cập nhật lẻ giữ read lock (chạy song song được), rebuild giữ write lock
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    // cùng 1 id: đọc DB + ghi index nối tiếp nhau, để lần đọc cũ hơn không ghi đè document mới hơn
+    private final ReentrantLock[] reindexStripes = new ReentrantLock[REINDEX_STRIPES];
+    // giá trị facet đã chuẩn hóa -> cách viết gốc để hiển thị (dim + '\0' + key)
+    private final Map<String, String> facetLabels = new ConcurrentHashMap<>();
+
+    private Directory directory;
+    private volatile IndexWriter writer;
+    private volatile SearcherManager searcherManager;
+    private volatile FacetState facetState;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+    private final AtomicLong maxQueryNanos = new AtomicLong();
+    private final AtomicLongArray recentQueryNanos = new AtomicLongArray(LATENCY_SAMPLES);
+    private final AtomicLong latencySlot = new AtomicLong();
+    private final LongAdder indexedDocuments = new LongAdder();
+    private final LongAdder deletedDocuments = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder indexFailures = new LongAdder();
+
+    public ProductSearchService(JdbcTemplate jdbcTemplate,
+                                ProductRepository productRepository,
+                                GroupRepository groupRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productRepository = productRepository;
+        this.groupRepository = groupRepository;
+        for (int i = 0; i < REINDEX_STRIPES; i++) {
+            reindexStripes[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    void openIndex() throws IOException {
+        if (indexDir == null || indexDir.isBlank()) {
+            directory = new ByteBuffersDirectory();
+        } else {
+            Path path = Path.of(indexDir);
+            Files.createDirectories(path);
+            directory = FSDirectory.open(path);
+        }
+        openWriter();
+        if (rebuildOnStartup || writer.getDocStats().numDocs == 0) {
+            rebuildIndex();
+        }
+    }
+
+    private void openWriter() throws IOException {
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        SearcherManager previous = searcherManager;
+        searcherManager = new SearcherManager(writer, null);
+        if (previous != null) {
+            // searcher đang dùng vẫn release được sau khi manager cũ đóng
+            previous.close();
+        }
+    }
+
+    @PreDestroy
+    void closeIndex() throws IOException {
+        try {
+            searcherManager.close();
+            writer.close(); // close() commit các thay đổi còn lại
+        } finally {
+            directory.close();
+        }
+    }
+
+    /**
+     * Đánh dấu các sản phẩm cần cập nhật lại trong index (tạo / sửa / xóa đều dùng chung: id không còn trong DB thì bị xóa).
+     * Đang trong transaction thì chỉ chạy sau khi commit, để không index dữ liệu bị rollback.
+     */
+    public void productsChanged(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(productIds);
+        runAfterCommit(() -> reindex(ids));
+    }
+
+    // Đổi tên group: cập nhật lại mọi sản phẩm thuộc group đó
+    public void groupChanged(Integer groupId) {
+        runAfterCommit(() -> reindex(jdbcTemplate.queryForList(
+                "SELECT id FROM products WHERE group_id = ?", Long.class, groupId)));
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void reindex(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        indexLock.readLock().lock();
+        try {
+            Map<Integer, String> groupNames = loadGroupNames();
+            for (int start = 0; start < ids.size(); start += REINDEX_CHUNK) {
+                List<Long> chunk = ids.subList(start, Math.min(start + REINDEX_CHUNK, ids.size()));
+                List<ReentrantLock> stripes = lockStripes(chunk);
+                try {
+                    Set<Long> missing = new HashSet<>(chunk);
+                    jdbcTemplate.query(SELECT_PRODUCTS + " WHERE id IN (" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")",
+                            indexingHandler(groupNames, missing, false), chunk.toArray());
+                    for (Long id : missing) {
+                        writer.deleteDocuments(new Term(F_ID, id.toString()));
+                        deletedDocuments.increment();
+                    }
+                } finally {
+                    stripes.forEach(ReentrantLock::unlock);
+                }
+            }
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException | RuntimeException e) {
+            // không làm hỏng thao tác ghi sản phẩm; index lệch thì rebuildIndex()
+            indexFailures.increment();
+            logger.warn("Could not update search index for {} product(s): {}", ids.size(), e.getMessage());
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    // Khóa các stripe của 1 chunk theo thứ tự tăng dần để 2 chunk chồng nhau không deadlock
+    private List<ReentrantLock> lockStripes(List<Long> ids) {
+        BitSet used = new BitSet(REINDEX_STRIPES);
+        ids.forEach(id -> used.set(Math.floorMod(Long.hashCode(id), REINDEX_STRIPES)));
+        List<ReentrantLock> locked = new ArrayList<>(used.cardinality());
+        for (int i = used.nextSetBit(0); i >= 0; i = used.nextSetBit(i + 1)) {
+            reindexStripes[i].lock();
+            locked.add(reindexStripes[i]);
+        }
+        return locked;
+    }
+
+    /**
+     * Dựng lại toàn bộ index từ bảng products (đọc bằng cursor, không load entity).
+     * Trong lúc dựng, tìm kiếm vẫn dùng bản index cũ; các cập nhật lẻ chờ đến khi dựng xong.
+     * Lỗi giữa chừng thì rollback về commit ngay trước khi dựng, index cũ vẫn nguyên.
+     */
+    public int rebuildIndex() {
+        indexLock.writeLock().lock();
+        long start = System.nanoTime();
+        try {
+            Map<Integer, String> groupNames = loadGroupNames();
+            // điểm rollback: gồm cả các cập nhật lẻ chưa commit
+            writer.commit();
+            writer.deleteAll();
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SELECT_PRODUCTS + " ORDER BY id",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(1000);
+                return statement;
+            }, indexingHandler(groupNames, null, true));
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            int count = writer.getDocStats().numDocs;
+            rebuilds.increment();
+            logger.info("Rebuilt product search index: {} document(s) in {} ms.", count, (System.nanoTime() - start) / 1_000_000);
+            return count;
+        } catch (IOException | RuntimeException e) {
+            indexFailures.increment();
+            rollbackRebuild(e);
+            throw new IllegalStateException("Could not rebuild product search index: " + e.getMessage(), e);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    // rollback() đóng writer: mở lại writer + searcher manager trên commit cũ
+    private void rollbackRebuild(Exception cause) {
+        try {
+            writer.rollback();
+            openWriter();
+        } catch (IOException | RuntimeException e) {
+            cause.addSuppressed(e);
+            logger.error("Could not roll back failed search index rebuild: {}", e.getMessage(), e);
+        }
+    }
+
+    private RowCallbackHandler indexingHandler(Map<Integer, String> groupNames, Set<Long> missing, boolean add) {
+        return rs -> {
+            long id = rs.getLong("id");
+            int groupId = rs.getInt("group_id");
+            String groupName = rs.wasNull() ? null : groupNames.get(groupId);
+            Document document = toDocument(id, rs.getString("name"), rs.getString("member"),
+                    rs.getString("description"), groupName);
+            try {
+                if (add) {
+                    writer.addDocument(document);
+                } else {
+                    writer.updateDocument(new Term(F_ID, Long.toString(id)), document);
+                    missing.remove(id);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            indexedDocuments.increment();
+        };
+    }
+
+    private Document toDocument(long id, String name, String member, String description, String groupName) {
+        try {
+            Document document = new Document();
+            document.add(new StringField(F_ID, Long.toString(id), Field.Store.YES));
+            addText(document, F_NAME, name);
+            addText(document, F_MEMBER, member);
+            addText(document, F_DESCRIPTION, description);
+            addText(document, F_GROUP, groupName);
+            addText(document, F_FUZZY, String.join(" ", Objects.toString(name, ""),
+                    Objects.toString(member, ""), Objects.toString(groupName, "")));
+            addFacet(document, FACET_GROUP, groupName);
+            addFacet(document, FACET_MEMBER, member);
+            return facetsConfig.build(document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void addFacet(Document document, String dim, String value) {
+        String key = facetKey(value);
+        if (key != null) {
+            document.add(new SortedSetDocValuesFacetField(dim, key));
+            facetLabels.put(dim + '\0' + key, value.trim());
+        }
+    }
+
+    // "  AESPA  Winter " -> "aespa winter"; null khi rỗng
+    static String facetKey(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static void addText(Document document, String field, String value) {
+        if (value != null && !value.isBlank()) {
+            document.add(new TextField(field, value, Field.Store.NO));
+        }
+    }
+
+    private Map<Integer, String> loadGroupNames() {
+        return groupRepository.findAll().stream()
+                .collect(Collectors.toMap(Group::getId, Group::getName, (a, b) -> a));
+    }
+
+    /**
+     * Tìm theo text (có thể rỗng = tất cả) và lọc theo facet, vd. group="aespa", member="Karina".
+     * Mỗi từ trong q phải khớp ở ít nhất 1 field (khớp đúng > prefix > fuzzy).
+     */
+    public ProductSearchResultDTO search(String q, String group, String member, Integer page, Integer size) {
+        int pageSize = (size == null || size <= 0) ? defaultSize : Math.min(size, maxSize);
+        int pageIndex = (page == null || page < 0) ? 0 : page;
+        int window = (pageIndex + 1) * pageSize;
+        if (window > maxWindow) {
+            throw new IllegalArgumentException("Search results are limited to the first " + maxWindow + " hits.");
+        }
+
+        long start = System.nanoTime();
+        // giữ đúng manager đã acquire: rebuild lỗi có thể thay manager mới trong lúc đang tìm
+        SearcherManager manager = searcherManager;
+        IndexSearcher searcher;
+        try {
+            searcher = manager.acquire();
+        } catch (AlreadyClosedException e) {
+            manager = searcherManager;
+            try {
+                searcher = manager.acquire();
+            } catch (IOException io) {
+                throw new UncheckedIOException(io);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            DrillDownQuery query = new DrillDownQuery(facetsConfig, buildTextQuery(q));
+            if (facetKey(group) != null) {
+                query.add(FACET_GROUP, facetKey(group));
+            }
+            if (facetKey(member) != null) {
+                query.add(FACET_MEMBER, facetKey(member));
+            }
+
+            TopDocs hits;
+            Map<String, List<FacetCountDTO>> facets = new LinkedHashMap<>();
+            SortedSetDocValuesReaderState state = facetState(searcher.getIndexReader());
+            if (state != null) {
+                DrillSideways.DrillSidewaysResult result = new DrillSideways(searcher, facetsConfig, state).search(query, window);
+                hits = result.hits;
+                for (String dim : List.of(FACET_GROUP, FACET_MEMBER)) {
+                    facets.put(dim, facetCounts(dim, result.facets.getTopChildren(FACET_TOP_N, dim)));
+                }
+            } else {
+                hits = searcher.search(query, window);
+            }
+
+            List<Long> ids = new ArrayList<>(pageSize);
+            ScoreDoc[] scoreDocs = hits.scoreDocs;
+            for (int i = pageIndex * pageSize; i < scoreDocs.length; i++) {
+                ids.add(Long.valueOf(searcher.storedFields().document(scoreDocs[i].doc).get(F_ID)));
+            }
+            List<ProductSummaryDTO> items = loadInOrder(ids);
+            recordLatency(System.nanoTime() - start);
+            return new ProductSearchResultDTO(q, hits.totalHits.value, pageIndex, pageSize, items, facets);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                manager.release(searcher);
+            } catch (IOException e) {
+                logger.warn("Could not release index searcher: {}", e.getMessage());
+            }
+        }
+    }
+
+    Query buildTextQuery(String q) {
+        List<String> terms = analyze(q);
+        if (terms.isEmpty()) {
+            return new MatchAllDocsQuery();
+        }
+        BooleanQuery.Builder all = new BooleanQuery.Builder();
+        for (String term : terms) {
+            BooleanQuery.Builder anyField = new BooleanQuery.Builder();
+            for (Map.Entry<String, Float> field : FIELD_BOOSTS.entrySet()) {
+                Term t = new Term(field.getKey(), term);
+                float boost = field.getValue();
+                anyField.add(new BoostQuery(new TermQuery(t), boost), BooleanClause.Occur.SHOULD);
+                if (term.length() >= MIN_PREFIX_LENGTH) {
+                    anyField.add(new BoostQuery(new PrefixQuery(t), boost * 0.5f), BooleanClause.Occur.SHOULD);
+                }
+            }
+            // không fuzzy trên description (TEXT dài): tốn nhiều mà ít giá trị
+            if (term.length() >= MIN_FUZZY_LENGTH && term.length() <= MAX_FUZZY_LENGTH) {
+                int maxEdits = term.length() >= 8 ? 2 : 1;
+                anyField.add(new BoostQuery(new FuzzyQuery(new Term(F_FUZZY, term), maxEdits, 1), FUZZY_BOOST),
+                        BooleanClause.Occur.SHOULD);
+            }
+            all.add(anyField.build(), BooleanClause.Occur.MUST);
+        }
+        return all.build();
+    }
+
+    private List<String> analyze(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        try (TokenStream stream = analyzer.tokenStream(F_NAME, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken() && terms.size() < MAX_QUERY_TERMS) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ArrayList<>(terms);
+    }
+
+    // State facet phải dựng lại khi reader đổi (sau mỗi lần refresh); null khi index chưa có facet nào
+    private SortedSetDocValuesReaderState facetState(IndexReader reader) throws IOException {
+        FacetState current = facetState;
+        if (current != null && current.reader() == reader) {
+            return current.state();
+        }
+        SortedSetDocValuesReaderState state;
+        try {
+            state = new DefaultSortedSetDocValuesReaderState(reader, facetsConfig);
+        } catch (IllegalArgumentException e) {
+            state = null;
+        }
+        facetState = new FacetState(reader, state);
+        return state;
+    }
+
+    private List<FacetCountDTO> facetCounts(String dim, FacetResult result) {
+        if (result == null) {
+            return List.of();
+        }
+        // index mở lại từ đĩa mà chưa index lại sp nào thì chưa biết cách viết gốc: trả về giá trị chuẩn hóa
+        return Arrays.stream(result.labelValues)
+                .map((LabelAndValue lv) -> new FacetCountDTO(
+                        facetLabels.getOrDefault(dim + '\0' + lv.label, lv.label), lv.value.intValue()))
+                .toList();
+    }
+
+    private List<ProductSummaryDTO> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ProductSummaryDTO> byId = new HashMap<>();
+        productRepository.findSummariesByIdIn(ids).forEach(summary -> byId.put(summary.getId(), summary));
+        // sản phẩm vừa bị xóa nhưng index chưa cập nhật thì bỏ qua
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    private void recordLatency(long nanos) {
+        queries.increment();
+        queryNanos.add(nanos);
+        maxQueryNanos.accumulateAndGet(nanos, Math::max);
+        recentQueryNanos.set((int) (latencySlot.getAndIncrement() % LATENCY_SAMPLES), nanos);
+    }
+
+    // Commit định kỳ để index trên đĩa không mất khi tắt đột ngột; bỏ qua khi đang rebuild
+    @Scheduled(fixedDelayString = "${app.products.search.commit-interval-ms:5000}")
+    public void commitIndex() {
+        if (!indexLock.readLock().tryLock()) {
+            return;
+        }
+        try {
+            if (writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not commit product search index: {}", e.getMessage());
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long count = queries.sum();
+        int samples = (int) Math.min(latencySlot.get(), LATENCY_SAMPLES);
+        long[] recent = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            recent[i] = recentQueryNanos.get(i);
+        }
+        Arrays.sort(recent);
+        Function<Double, Long> percentileMicros = p -> samples == 0 ? 0L
+                : recent[Math.min(samples - 1, (int) Math.ceil(p * samples) - 1)] / 1000;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("documents", writer.getDocStats().numDocs);
+        stats.put("queries", count);
+        stats.put("avgQueryMicros", count == 0 ? 0L : queryNanos.sum() / count / 1000);
+        stats.put("p50QueryMicros", percentileMicros.apply(0.50));
+        stats.put("p99QueryMicros", percentileMicros.apply(0.99));
+        stats.put("maxQueryMicros", maxQueryNanos.get() / 1000);
+        stats.put("indexedDocuments", indexedDocuments.sum());
+        stats.put("deletedDocuments", deletedDocuments.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("indexFailures", indexFailures.sum());
+        return stats;
+    }
+
+    private record FacetState(IndexReader reader, SortedSetDocValuesReaderState state) {}
+
+    // StandardTokenizer + lowercase + bỏ dấu: "Thiên Hà" khớp "thien ha"
+    private static final class FoldingAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer source = new StandardTokenizer();
+            TokenStream filtered = new ASCIIFoldingFilter(new LowerCaseFilter(source));
+            return new TokenStreamComponents(source, filtered);
+        }
+
+        @Override
+        protected TokenStream normalize(String fieldName, TokenStream in) {
+            return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+        }
+    }
+}
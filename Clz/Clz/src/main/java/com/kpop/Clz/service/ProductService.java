@@ -1,22 +1,41 @@
 // src/main/java/com/kpop/Clz/service/ProductService.java
 package com.kpop.Clz.service;
 
+import com.kpop.Clz.dto.ProductPageDTO;
+import com.kpop.Clz.dto.ProductSearchResultDTO;
+import com.kpop.Clz.dto.ProductSummaryDTO;
 import com.kpop.Clz.model.Product;
 import com.kpop.Clz.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class ProductService {
 
+    public enum CatalogSort { ID, PRICE, NAME }
+
     private final ProductRepository productRepository;
+    private final ProductSearchService productSearchService;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository,
+                          ProductSearchService productSearchService,
+                          @Value("${app.products.page.default-size:24}") int defaultPageSize,
+                          @Value("${app.products.page.max-size:100}") int maxPageSize) {
         this.productRepository = productRepository;
+        this.productSearchService = productSearchService;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     public List<Product> getAllProducts() {
@@ -28,15 +47,76 @@ public class ProductService {
         return productRepository.findByGroupId(groupId);
     }
 
+    // Trang catalog theo keyset (cursor), không load description
+    @Transactional(readOnly = true)
+    public ProductPageDTO getProductPage(CatalogSort sort, String cursor, Integer size, Integer groupId) {
+        int pageSize = (size == null || size <= 0) ? defaultPageSize : Math.min(size, maxPageSize);
+        String[] after = decodeCursor(cursor, sort);
+        Long afterId = after != null ? Long.valueOf(after[0]) : null;
+
+        // lấy dư 1 phần tử để biết còn trang sau hay không
+        List<ProductSummaryDTO> rows = switch (sort) {
+            case ID -> productRepository.findSummaryPage(groupId, "id", null, afterId, pageSize + 1);
+            case PRICE -> productRepository.findSummaryPage(groupId, "price",
+                    after != null ? new BigDecimal(after[1]) : null, afterId, pageSize + 1);
+            case NAME -> productRepository.findSummaryPage(groupId, "name",
+                    after != null ? after[1] : null, afterId, pageSize + 1);
+        };
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ProductSummaryDTO> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasMore ? encodeCursor(sort, items.get(items.size() - 1)) : null;
+        return new ProductPageDTO(items, nextCursor, hasMore);
+    }
+
+    // cursor = base64url("SORT|id|value"), value đặt cuối vì tên sp có thể chứa '|'
+    private String encodeCursor(CatalogSort sort, ProductSummaryDTO last) {
+        String value = switch (sort) {
+            case ID -> "";
+            case PRICE -> last.getPrice().toPlainString();
+            case NAME -> last.getName();
+        };
+        String raw = sort.name() + "|" + last.getId() + "|" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor, CatalogSort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            if (parts.length != 3 || !parts[0].equals(sort.name())) {
+                throw new IllegalArgumentException("Cursor does not match sort '" + sort.name().toLowerCase() + "'.");
+            }
+            Long.parseLong(parts[1]);
+            if (sort == CatalogSort.PRICE) {
+                new BigDecimal(parts[2]);
+            }
+            return new String[]{parts[1], parts[2]};
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    // Tìm full-text qua index Lucene, lọc theo facet group / member
+    public ProductSearchResultDTO searchProducts(String q, String group, String member, Integer page, Integer size) {
+        return productSearchService.search(q, group, member, page, size);
+    }
+
     public Optional<Product> getProductById(Long id) {
         return productRepository.findById(id);
     }
 
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        productSearchService.productsChanged(List.of(saved.getId()));
+        return saved;
     }
 
     public void deleteProduct(Long id) {
         productRepository.deleteById(id);
+        productSearchService.productsChanged(List.of(id));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+package com.kpop.Clz.service;
+
+import java.util.Map;
+
+// Bộ đếm vận hành của 1 service; AdminStatsController gom tất cả về GET /api/admin/stats theo tên bean
+public interface StatsSource {
+
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,374 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.CartItemInputDTO;
+import com.kpop.Clz.dto.StockReservationDTO;
+import com.kpop.Clz.exception.InsufficientStockException;
+import com.kpop.Clz.exception.ResourceNotFoundException;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Giữ hàng khi bắt đầu checkout: kho bị trừ ngay trong products (UPDATE có điều kiện, giống createOrder) và ghi vào
+ * stock_reservations; hết hạn thì cộng lại kho. createOrder dùng reservationId để lấy phần đã giữ thay vì trừ lần nữa.
+ *
+ * Hạn giữ hàng được theo dõi trong bộ nhớ bằng hashed timer wheel (mỗi tick chỉ duyệt 1 bucket thay vì cả map);
+ * bảng stock_reservations là nguồn sự thật: mọi lần nhả hàng đều SELECT ... FOR UPDATE + DELETE nên nhả/dùng đồng thời
+ * không cộng kho 2 lần, và job quét DB nhả nốt các hold bị mất khi restart.
+ * Sản phẩm vừa hết hàng được đánh dấu sold-out vài giây để các request giữ hàng sau đó fail ngay, không chen vào khóa dòng.
+ */
+@Service
+public class StockReservationService implements StatsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    private static final String INSERT_RESERVATION =
+            "INSERT INTO stock_reservations (reservation_id, user_id, product_id, quantity, expires_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String LOCK_BY_RESERVATION =
+            "SELECT id, product_id, quantity, expires_at FROM stock_reservations " +
+            "WHERE reservation_id = ? AND user_id = ? FOR UPDATE";
+    private static final String LOCK_BY_USER =
+            "SELECT id, product_id, quantity, expires_at FROM stock_reservations WHERE user_id = ? FOR UPDATE";
+    private static final String FIND_EXPIRED =
+            "SELECT DISTINCT reservation_id, user_id FROM stock_reservations WHERE expires_at <= ?";
+    private static final String DELETE_ROW = "DELETE FROM stock_reservations WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final long ttlMillis;
+    private final long tickMillis;
+    private final long soldOutTtlMillis;
+    private final int expireBatchSize;
+
+    // timer wheel: bucket = deadlineTick % size; hold ở vòng sau nằm lại bucket đến khi tới tick của nó
+    private final Queue<Hold>[] wheel;
+    private long lastProcessedTick;
+
+    // mỗi user tối đa 1 hold: giữ lại / nhả / hết hạn chỉ đụng đúng 1 entry
+    private final Map<Integer, Hold> activeHolds = new ConcurrentHashMap<>();
+    private final Map<Long, Long> soldOutUntil = new ConcurrentHashMap<>();
+
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder expiredRows = new LongAdder();
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder soldOutFastFails = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public StockReservationService(JdbcTemplate jdbcTemplate,
+                                   ProductRepository productRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${app.stock-reservations.ttl-seconds:600}") long ttlSeconds,
+                                   @Value("${app.stock-reservations.tick-ms:1000}") long tickMillis,
+                                   @Value("${app.stock-reservations.wheel-size:512}") int wheelSize,
+                                   @Value("${app.stock-reservations.sold-out-ttl-ms:2000}") long soldOutTtlMillis,
+                                   @Value("${app.stock-reservations.expire-batch-size:500}") int expireBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.tickMillis = tickMillis;
+        this.soldOutTtlMillis = soldOutTtlMillis;
+        this.expireBatchSize = expireBatchSize;
+        this.wheel = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.lastProcessedTick = System.currentTimeMillis() / tickMillis;
+    }
+
+    /**
+     * Giữ toàn bộ số lượng yêu cầu hoặc không giữ gì. Mỗi user chỉ có 1 reservation: giữ lại thì hold cũ được nhả trước.
+     */
+    public StockReservationDTO reserve(Integer userId, List<CartItemInputDTO> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Reservation must contain at least one item.");
+        }
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (CartItemInputDTO item : items) {
+            if (item.getProductId() == null || item.getQuantity() < 1) {
+                throw new IllegalArgumentException("Each item needs a product ID and a quantity of at least 1.");
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+
+        long now = System.currentTimeMillis();
+        for (Long productId : quantities.keySet()) {
+            Long until = soldOutUntil.get(productId);
+            if (until != null && until > now) {
+                soldOutFastFails.increment();
+                rejected.increment();
+                throw new InsufficientStockException("Product " + productId + " is sold out.");
+            }
+        }
+
+        String reservationId = UUID.randomUUID().toString();
+        long expiresAtMillis = now + ttlMillis;
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAtMillis), ZoneId.systemDefault());
+
+        Map<Long, Integer> replaced = transactionTemplate.execute(status -> {
+            Map<Long, Integer> previous = deleteRows(jdbcTemplate.query(LOCK_BY_USER, this::mapRow, userId));
+
+            // nhả hold cũ và giữ hàng mới trong 1 lượt theo id tăng dần (không phải restock xong mới trừ),
+            // để mọi transaction khóa dòng products cùng thứ tự => không deadlock giữa các request song song
+            TreeMap<Long, Integer> net = new TreeMap<>(quantities);
+            previous.forEach((productId, quantity) -> net.merge(productId, -quantity, Integer::sum));
+            int[] updatedRows = applyStockDeltas(net);
+            int index = 0;
+            for (Map.Entry<Long, Integer> entry : net.entrySet()) {
+                if (updatedRows[index++] == 0 && entry.getValue() > 0) {
+                    throw outOfStock(entry.getKey(), quantities.get(entry.getKey()));
+                }
+            }
+
+            List<Object[]> rows = new ArrayList<>(quantities.size());
+            Timestamp expiresAtTs = Timestamp.valueOf(expiresAt);
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                rows.add(new Object[]{reservationId, userId, entry.getKey(), entry.getValue(), expiresAtTs});
+            }
+            jdbcTemplate.batchUpdate(INSERT_RESERVATION, rows);
+            return previous;
+        });
+        if (!replaced.isEmpty()) {
+            released.increment();
+        }
+
+        // thay hold cũ của user (nếu có); hold cũ còn trong wheel sẽ không khớp activeHolds và bị bỏ qua
+        schedule(new Hold(reservationId, userId, expiresAtMillis));
+        reserved.increment();
+        return new StockReservationDTO(reservationId, expiresAt, quantities);
+    }
+
+    // Hủy giữ hàng (user rời trang checkout). Trả về false nếu reservation không còn (đã hết hạn / đã đặt hàng).
+    public boolean release(String reservationId, Integer userId) {
+        forgetHold(userId, reservationId);
+        Map<Long, Integer> quantities = transactionTemplate.execute(status -> {
+            Map<Long, Integer> rows = deleteRows(jdbcTemplate.query(LOCK_BY_RESERVATION, this::mapRow, reservationId, userId));
+            restock(rows);
+            return rows;
+        });
+        if (quantities.isEmpty()) {
+            return false;
+        }
+        released.increment();
+        return true;
+    }
+
+    /**
+     * Lấy hàng đã giữ để tạo đơn; phải chạy trong transaction của createOrder để rollback trả lại các dòng giữ hàng.
+     * Trả về productId -> số lượng đã trừ khỏi kho từ trước.
+     */
+    public Map<Long, Integer> consume(String reservationId, Integer userId) {
+        List<ReservationRow> rows = jdbcTemplate.query(LOCK_BY_RESERVATION, this::mapRow, reservationId, userId);
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Stock reservation not found or already used: " + reservationId);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (ReservationRow row : rows) {
+            if (!row.expiresAt().isAfter(now)) {
+                // để job hết hạn nhả hàng, không trả lại ở đây
+                throw new IllegalArgumentException("Stock reservation has expired: " + reservationId);
+            }
+        }
+        Map<Long, Integer> quantities = deleteRows(rows);
+        // hold trong wheel (nếu còn) sẽ thấy reservation đã bị xóa và bỏ qua
+        forgetHold(userId, reservationId);
+        consumed.increment();
+        return quantities;
+    }
+
+    // Quay timer wheel tới tick hiện tại và nhả các hold đến hạn
+    @Scheduled(fixedRateString = "${app.stock-reservations.tick-ms:1000}")
+    public void advanceWheel() {
+        List<String> due = new ArrayList<>();
+        synchronized (wheel) {
+            long currentTick = System.currentTimeMillis() / tickMillis;
+            // trễ hơn 1 vòng thì duyệt mỗi bucket 1 lần là đủ
+            long from = Math.max(lastProcessedTick + 1, currentTick - wheel.length + 1);
+            for (long tick = from; tick <= currentTick; tick++) {
+                Queue<Hold> bucket = wheel[(int) (tick % wheel.length)];
+                bucket.removeIf(hold -> {
+                    if (hold.deadlineTick > currentTick) {
+                        return false;
+                    }
+                    if (activeHolds.remove(hold.userId, hold)) {
+                        due.add(hold.reservationId);
+                    }
+                    return true;
+                });
+            }
+            lastProcessedTick = currentTick;
+        }
+        if (!due.isEmpty()) {
+            releaseExpired(due);
+        }
+    }
+
+    // Nhả các reservation hết hạn còn trong DB (hold mất do restart, hoặc consume bị rollback)
+    @Scheduled(fixedDelayString = "${app.stock-reservations.sweep-interval-ms:60000}")
+    public int sweepExpired() {
+        List<String> expiredIds = new ArrayList<>();
+        jdbcTemplate.query(FIND_EXPIRED, rs -> {
+            String reservationId = rs.getString("reservation_id");
+            expiredIds.add(reservationId);
+            forgetHold(rs.getInt("user_id"), reservationId);
+        }, Timestamp.valueOf(LocalDateTime.now()));
+        if (expiredIds.isEmpty()) {
+            return 0;
+        }
+        return releaseExpired(expiredIds);
+    }
+
+    private int releaseExpired(List<String> reservationIds) {
+        int releasedCount = 0;
+        for (int start = 0; start < reservationIds.size(); start += expireBatchSize) {
+            List<String> chunk = reservationIds.subList(start, Math.min(start + expireBatchSize, reservationIds.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            Object[] args = new Object[chunk.size() + 1];
+            chunk.toArray(args);
+            args[chunk.size()] = Timestamp.valueOf(LocalDateTime.now());
+            releasedCount += transactionTemplate.execute(status -> {
+                List<ReservationRow> rows = jdbcTemplate.query(
+                        "SELECT id, product_id, quantity, expires_at FROM stock_reservations " +
+                        "WHERE reservation_id IN (" + placeholders + ") AND expires_at <= ? FOR UPDATE",
+                        this::mapRow, args);
+                restock(deleteRows(rows));
+                return rows.size();
+            });
+        }
+        if (releasedCount > 0) {
+            expiredRows.add(releasedCount);
+            logger.info("Released {} expired stock reservation row(s).", releasedCount);
+        }
+        return releasedCount;
+    }
+
+    // Chỉ bỏ hold nếu nó vẫn là reservation đó (user có thể đã giữ lại lần nữa)
+    private void forgetHold(Integer userId, String reservationId) {
+        activeHolds.computeIfPresent(userId, (id, hold) -> hold.reservationId.equals(reservationId) ? null : hold);
+    }
+
+    private void schedule(Hold hold) {
+        activeHolds.put(hold.userId, hold);
+        wheel[(int) (hold.deadlineTick % wheel.length)].add(hold);
+    }
+
+    // Xóa các dòng đã khóa, gom số lượng theo sản phẩm (TreeMap cho thứ tự UPDATE ổn định)
+    private Map<Long, Integer> deleteRows(List<ReservationRow> rows) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        if (rows.isEmpty()) {
+            return quantities;
+        }
+        jdbcTemplate.batchUpdate(DELETE_ROW, rows.stream().map(row -> new Object[]{row.id()}).toList());
+        for (ReservationRow row : rows) {
+            quantities.merge(row.productId(), row.quantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * Trừ (dương) / trả lại (âm) kho trong 1 lượt theo id tăng dần, trong transaction hiện tại; delta 0 bị bỏ qua.
+     * Trả về số dòng được update theo thứ tự của map (0 ở delta dương = không đủ hàng, 1 ở delta 0).
+     */
+    int[] applyStockDeltas(TreeMap<Long, Integer> deltas) {
+        TreeMap<Long, Integer> changed = new TreeMap<>(deltas);
+        changed.values().removeIf(delta -> delta == 0);
+        int[] changedRows = productRepository.applyStockDeltas(changed);
+        int[] rows = new int[deltas.size()];
+        int index = 0;
+        int changedIndex = 0;
+        for (Map.Entry<Long, Integer> entry : deltas.entrySet()) {
+            if (entry.getValue() == 0) {
+                rows[index++] = 1;
+                continue;
+            }
+            rows[index++] = changedRows[changedIndex++];
+            if (entry.getValue() < 0) {
+                soldOutUntil.remove(entry.getKey());
+            }
+        }
+        return rows;
+    }
+
+    // Cộng lại kho trong transaction hiện tại và bỏ cờ sold-out của các sản phẩm đó
+    void restock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        productRepository.incrementStockBatch(quantities);
+        quantities.keySet().forEach(soldOutUntil::remove);
+    }
+
+    private RuntimeException outOfStock(Long productId, int requested) {
+        rejected.increment();
+        List<Product> found = productRepository.findAllById(List.of(productId));
+        if (found.isEmpty()) {
+            return new ResourceNotFoundException("Product not found with ID: " + productId);
+        }
+        Product product = found.get(0);
+        if (product.getStockQuantity() == 0) {
+            soldOutUntil.put(productId, System.currentTimeMillis() + soldOutTtlMillis);
+        }
+        return new InsufficientStockException("Not enough stock for product: " + product.getName() +
+                ". Requested: " + requested + ", Available: " + product.getStockQuantity());
+    }
+
+    private ReservationRow mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new ReservationRow(rs.getLong("id"), rs.getLong("product_id"), rs.getInt("quantity"),
+                rs.getTimestamp("expires_at").toLocalDateTime());
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "activeHolds", activeHolds.size(),
+                "reserved", reserved.sum(),
+                "released", released.sum(),
+                "expiredRows", expiredRows.sum(),
+                "consumed", consumed.sum(),
+                "rejected", rejected.sum(),
+                "soldOutFastFails", soldOutFastFails.sum()
+        );
+    }
+
+    private final class Hold {
+        final String reservationId;
+        final Integer userId;
+        final long deadlineTick;
+
+        Hold(String reservationId, Integer userId, long expiresAtMillis) {
+            this.reservationId = reservationId;
+            this.userId = userId;
+            // làm tròn lên: hold không bao giờ bị nhả trước expiresAt
+            this.deadlineTick = (expiresAtMillis + tickMillis - 1) / tickMillis;
+        }
+    }
+
+    private record ReservationRow(long id, long productId, int quantity, LocalDateTime expiresAt) {}
+}
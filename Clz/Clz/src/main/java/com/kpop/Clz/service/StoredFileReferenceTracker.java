@@ -0,0 +1,117 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.model.GalleryPost;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cập nhật stored_files.ref_count khi field ảnh của GalleryPost/User/Product được insert, đổi, hoặc xóa.
+ * Nghe event của Hibernate nên có sẵn cả giá trị cũ lẫn mới, không cần sửa từng chỗ gọi save().
+ * Chạy bằng JdbcTemplate trên cùng connection/transaction với câu lệnh của entity.
+ */
+@Component
+public class StoredFileReferenceTracker implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final Map<Class<?>, List<String>> TRACKED_PROPERTIES = Map.of(
+            GalleryPost.class, List.of("imageUrl", "postedByAvatarUrl"),
+            User.class, List.of("avatarUrl"),
+            Product.class, List.of("imageUrl")
+    );
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    // entity name -> vị trí các property cần theo dõi trong mảng state
+    private final Map<String, int[]> propertyIndexes = new ConcurrentHashMap<>();
+
+    public StoredFileReferenceTracker(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        for (int index : indexesFor(event.getPersister())) {
+            adjust(event.getState()[index], 1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            return;
+        }
+        for (int index : indexesFor(event.getPersister())) {
+            Object before = oldState[index];
+            Object after = event.getState()[index];
+            if (!Objects.equals(before, after)) {
+                adjust(before, -1);
+                adjust(after, 1);
+            }
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object[] deletedState = event.getDeletedState();
+        if (deletedState == null) {
+            return;
+        }
+        for (int index : indexesFor(event.getPersister())) {
+            adjust(deletedState[index], -1);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private int[] indexesFor(EntityPersister persister) {
+        List<String> tracked = TRACKED_PROPERTIES.get(persister.getMappedClass());
+        if (tracked == null) {
+            return new int[0];
+        }
+        return propertyIndexes.computeIfAbsent(persister.getEntityName(), name -> {
+            List<String> names = Arrays.asList(persister.getPropertyNames());
+            return tracked.stream().mapToInt(names::indexOf).filter(i -> i >= 0).toArray();
+        });
+    }
+
+    private void adjust(Object url, int delta) {
+        String hash = FileStorageService.hashFromUrl((String) url);
+        if (hash != null) {
+            jdbcTemplate.update("UPDATE stored_files SET ref_count = ref_count + ? WHERE sha256 = ?", delta, hash);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.kpop.Clz.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Cache UserDetails theo email cho JwtRequestFilter: giới hạn số phần tử (LRU) + hết hạn theo TTL
+@Component
+public class UserPrincipalCache implements StatsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserPrincipalCache.class);
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<String, CachedPrincipal> entries;
+
+    // tăng mỗi lần evict, tránh ghi lại bản cũ đang được load song song
+    private long invalidations = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public UserPrincipalCache(@Value("${app.auth.principal-cache.max-size:10000}") int maxSize,
+                              @Value("${app.auth.principal-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPrincipal> eldest) {
+                if (size() > UserPrincipalCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public UserDetails get(String email, Function<String, UserDetails> loader) {
+        long now = System.currentTimeMillis();
+        long invalidationsBeforeLoad;
+        synchronized (entries) {
+            invalidationsBeforeLoad = invalidations;
+            CachedPrincipal cached = entries.get(email);
+            if (cached != null) {
+                if (cached.expiresAt > now) {
+                    hits.increment();
+                    return cached.principal;
+                }
+                entries.remove(email);
+                evictions.increment();
+            }
+        }
+
+        misses.increment();
+        // load ngoài lock để không chặn các request khác trong lúc query DB
+        UserDetails loaded = loader.apply(email);
+        synchronized (entries) {
+            if (invalidations == invalidationsBeforeLoad) {
+                entries.put(email, new CachedPrincipal(loaded, now + ttlMillis));
+            }
+        }
+        return loaded;
+    }
+
+    public void evict(String email) {
+        if (email == null) return;
+        synchronized (entries) {
+            invalidations++;
+            if (entries.remove(email) != null) {
+                logger.debug("Principal cache: evicted {}", email);
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            invalidations++;
+            entries.clear();
+        }
+    }
+
+    public long getHitCount() { return hits.sum(); }
+    public long getMissCount() { return misses.sum(); }
+    public long getEvictionCount() { return evictions.sum(); }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        return Map.of(
+                "size", size(),
+                "maxSize", maxSize,
+                "hits", h,
+                "misses", m,
+                "evictions", evictions.sum(),
+                "hitRatio", (h + m) == 0 ? 0.0 : (double) h / (h + m)
+        );
+    }
+
+    private record CachedPrincipal(UserDetails principal, long expiresAt) {}
+}
@@ -19,11 +19,13 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserPrincipalCache userPrincipalCache;
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, UserPrincipalCache userPrincipalCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userPrincipalCache = userPrincipalCache;
     }
 
     public Optional<User> findByEmail(String email) {
@@ -38,6 +40,11 @@ public class UserService {
         return userRepository.findByEmail(identifier);
     }
 
+    // Không query DB, chỉ tạo proxy theo id (dùng khi id đã lấy từ principal)
+    public User getUserReference(Integer userId) {
+        return userRepository.getReferenceById(userId);
+    }
+
     public Optional<User> getUserByUsername(String username) {
         return userRepository.findByUsername(username);
     }
@@ -66,6 +73,8 @@ public class UserService {
 
         user.setUpdatedAt(LocalDateTime.now());
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userPrincipalCache.evict(savedUser.getEmail());
+        return savedUser;
     }
 }
\ No newline at end of file
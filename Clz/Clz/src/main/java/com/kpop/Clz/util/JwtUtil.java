@@ -1,6 +1,7 @@
 package com.kpop.Clz.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -8,7 +9,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
 import java.security.Key;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -20,7 +23,17 @@ public class JwtUtil {
     @Value("${jwt.secret:DefaultSecretKeyWhichIsNotSecureAndShouldBeChanged}")
     private String secretKeyString;
 
-    private Key getSigningKey() {
+    // Key và parser được dựng 1 lần khi khởi động, dùng chung cho mọi request (thread-safe)
+    private Key signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        this.signingKey = buildSigningKey();
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
+    private Key buildSigningKey() {
         if (secretKeyString.length() < 32 && "DefaultSecretKeyWhichIsNotSecureAndShouldBeChanged".equals(secretKeyString)) {
             return Keys.secretKeyFor(SignatureAlgorithm.HS256);
         }
@@ -30,6 +43,22 @@ public class JwtUtil {
 
     public static final long JWT_TOKEN_VALIDITY = 10 * 60 * 60 * 1000;
 
+    public record VerifiedToken(String subject, Instant issuedAt, Instant expiration) {
+        public boolean isExpired() {
+            return expiration != null && expiration.isBefore(Instant.now());
+        }
+    }
+
+    // Parse + verify chữ ký đúng 1 lần; ném JwtException (ExpiredJwtException, SignatureException, ...) nếu token không hợp lệ
+    public VerifiedToken parseToken(String token) {
+        Claims claims = extractAllClaims(token);
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null
+        );
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -44,11 +73,7 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token).getBody();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return jwtParser.parseClaimsJws(token).getBody();
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -68,16 +93,19 @@ public class JwtUtil {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + JWT_TOKEN_VALIDITY))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    public Boolean validateToken(VerifiedToken token, UserDetails userDetails) {
+        return (token.subject() != null && token.subject().equals(userDetails.getUsername()) && !token.isExpired());
+    }
+
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(parseToken(token), userDetails);
     }
     public Boolean validateToken(String token, String email) {
-        final String extractedEmail = extractUsername(token);
-        return (extractedEmail.equals(email) && !isTokenExpired(token));
+        VerifiedToken verified = parseToken(token);
+        return (email.equals(verified.subject()) && !verified.isExpired());
     }
 }
\ No newline at end of file
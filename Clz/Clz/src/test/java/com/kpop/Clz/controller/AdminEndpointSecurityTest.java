@@ -0,0 +1,64 @@
+package com.kpop.Clz.controller;
+
+import com.kpop.Clz.config.SecurityConfig;
+import com.kpop.Clz.service.CustomUserDetailsService;
+import com.kpop.Clz.service.FileStorageService;
+import com.kpop.Clz.service.UserPrincipalCache;
+import com.kpop.Clz.util.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Rule /api/admin/** hasRole("ADMIN") trong SecurityConfig: khách và user thường không đọc được báo cáo quản trị.
+ */
+@WebMvcTest(StorageAdminController.class)
+@Import(SecurityConfig.class)
+@ActiveProfiles("test")
+class AdminEndpointSecurityTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockitoBean
+	private FileStorageService fileStorageService;
+
+	@MockitoBean
+	private CustomUserDetailsService customUserDetailsService;
+
+	@MockitoBean
+	private JwtUtil jwtUtil;
+
+	@MockitoBean
+	private UserPrincipalCache userPrincipalCache;
+
+	@Test
+	void anonymousRequestsAreRejected() throws Exception {
+		mockMvc.perform(get("/api/admin/storage/usage")).andExpect(status().isForbidden());
+	}
+
+	@Test
+	@WithMockUser(roles = "USER")
+	void regularUsersAreForbidden() throws Exception {
+		mockMvc.perform(get("/api/admin/storage/usage")).andExpect(status().isForbidden());
+	}
+
+	@Test
+	@WithMockUser(roles = "ADMIN")
+	void adminsCanReadTheReport() throws Exception {
+		when(fileStorageService.getDiskUsageReport()).thenReturn(Map.of("storedFiles", 0L));
+
+		mockMvc.perform(get("/api/admin/storage/usage")).andExpect(status().isOk());
+	}
+}
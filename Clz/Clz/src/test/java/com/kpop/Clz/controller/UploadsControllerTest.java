@@ -0,0 +1,171 @@
+package com.kpop.Clz.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadsControllerTest {
+
+	private static final String HASH = "ab".repeat(32);
+
+	@TempDir
+	Path root;
+
+	private Path uploadDir;
+	private UploadsController uploadsController;
+	private byte[] content;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		uploadDir = Files.createDirectories(root.resolve("uploads"));
+		// nằm ngoài thư mục upload
+		Files.writeString(root.resolve("secret.txt"), "secret");
+		content = new byte[100];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		Files.write(uploadDir.resolve("avatar.jpg"), content);
+		Files.createDirectories(uploadDir.resolve("cas/ab/ab"));
+		Files.write(uploadDir.resolve("cas/ab/ab/" + HASH + ".png"), content);
+		Files.createDirectories(uploadDir.resolve("tmp"));
+		Files.write(uploadDir.resolve("tmp/partial.jpg"), content);
+		uploadsController = new UploadsController(uploadDir.toString(), 64);
+	}
+
+	@Test
+	void fullGetIsImmutableWithStrongEtag() throws Exception {
+		MockHttpServletResponse response = get("/uploads/avatar.jpg");
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsByteArray()).isEqualTo(content);
+		assertThat(response.getContentType()).isEqualTo("image/jpeg");
+		assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("public, max-age=31536000, immutable");
+		assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+		assertThat(response.getHeader(HttpHeaders.ETAG)).startsWith("\"").doesNotStartWith("W/");
+		assertThat(response.getHeader(HttpHeaders.LAST_MODIFIED)).isNotNull();
+	}
+
+	@Test
+	void contentAddressedFilesUseTheirHashAsEtag() throws Exception {
+		MockHttpServletResponse response = get("/uploads/cas/ab/ab/" + HASH + ".png");
+
+		assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + HASH + "\"");
+	}
+
+	@Test
+	void conditionalGetAnswersNotModified() throws Exception {
+		MockHttpServletResponse first = get("/uploads/avatar.jpg");
+		String etag = first.getHeader(HttpHeaders.ETAG);
+
+		MockHttpServletRequest byEtag = request("/uploads/avatar.jpg");
+		byEtag.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		MockHttpServletResponse notModified = serve(byEtag);
+		assertThat(notModified.getStatus()).isEqualTo(304);
+		assertThat(notModified.getContentAsByteArray()).isEmpty();
+		assertThat(notModified.getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+
+		MockHttpServletRequest otherEtag = request("/uploads/avatar.jpg");
+		otherEtag.addHeader(HttpHeaders.IF_NONE_MATCH, "\"something-else\"");
+		assertThat(serve(otherEtag).getStatus()).isEqualTo(200);
+
+		MockHttpServletRequest bySince = request("/uploads/avatar.jpg");
+		bySince.addHeader(HttpHeaders.IF_MODIFIED_SINCE, first.getDateHeader(HttpHeaders.LAST_MODIFIED));
+		assertThat(serve(bySince).getStatus()).isEqualTo(304);
+	}
+
+	@Test
+	void singleRangesArePartialContent() throws Exception {
+		MockHttpServletResponse middle = getRange("bytes=10-19");
+		assertThat(middle.getStatus()).isEqualTo(206);
+		assertThat(middle.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 10-19/100");
+		assertThat(middle.getContentLengthLong()).isEqualTo(10);
+		assertThat(middle.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 10, 20));
+
+		MockHttpServletResponse suffix = getRange("bytes=-5");
+		assertThat(suffix.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 95-99/100");
+		assertThat(suffix.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 95, 100));
+
+		// đoạn mở vượt quá cuối file được cắt lại
+		assertThat(getRange("bytes=90-").getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 90-99/100");
+	}
+
+	@Test
+	void unsatisfiableMultipleAndStaleRanges() throws Exception {
+		MockHttpServletResponse beyondEnd = getRange("bytes=200-300");
+		assertThat(beyondEnd.getStatus()).isEqualTo(416);
+		assertThat(beyondEnd.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */100");
+
+		// nhiều đoạn / Range sai cú pháp: trả cả file
+		assertThat(getRange("bytes=0-1,5-6").getContentAsByteArray()).isEqualTo(content);
+		assertThat(getRange("pages=1").getStatus()).isEqualTo(200);
+
+		// If-Range không khớp ETag hiện tại: bản client đang có đã cũ, trả cả file
+		MockHttpServletRequest stale = request("/uploads/avatar.jpg");
+		stale.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+		stale.addHeader(HttpHeaders.IF_RANGE, "\"old\"");
+		MockHttpServletResponse full = serve(stale);
+		assertThat(full.getStatus()).isEqualTo(200);
+		assertThat(full.getContentAsByteArray()).isEqualTo(content);
+	}
+
+	@Test
+	void largeBodiesAreHandedToTomcatSendfile() throws Exception {
+		MockHttpServletRequest request = request("/uploads/avatar.jpg");
+		request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+		request.addHeader(HttpHeaders.RANGE, "bytes=0-79");
+		MockHttpServletResponse response = serve(request);
+
+		assertThat(response.getContentAsByteArray()).isEmpty();
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isEqualTo(uploadDir.resolve("avatar.jpg").toString());
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(0L);
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(80L);
+	}
+
+	@Test
+	void headSendsHeadersOnly() throws Exception {
+		MockHttpServletRequest request = request("/uploads/avatar.jpg");
+		request.setMethod("HEAD");
+		MockHttpServletResponse response = serve(request);
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentLengthLong()).isEqualTo(100);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	@Test
+	void missingTraversalAndTempFilesAreNotFound() throws Exception {
+		assertThat(get("/uploads/missing.jpg").getStatus()).isEqualTo(404);
+		assertThat(get("/uploads/../secret.txt").getStatus()).isEqualTo(404);
+		assertThat(get("/uploads/tmp/partial.jpg").getStatus()).isEqualTo(404);
+		assertThat(get("/uploads/cas").getStatus()).isEqualTo(404);
+	}
+
+	private MockHttpServletResponse get(String uri) throws Exception {
+		return serve(request(uri));
+	}
+
+	private MockHttpServletResponse getRange(String range) throws Exception {
+		MockHttpServletRequest request = request("/uploads/avatar.jpg");
+		request.addHeader(HttpHeaders.RANGE, range);
+		return serve(request);
+	}
+
+	private MockHttpServletResponse serve(MockHttpServletRequest request) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		uploadsController.serve(request, response);
+		return response;
+	}
+
+	private static MockHttpServletRequest request(String uri) {
+		return new MockHttpServletRequest("GET", uri);
+	}
+}
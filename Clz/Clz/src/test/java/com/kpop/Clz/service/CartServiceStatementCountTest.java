@@ -0,0 +1,173 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.AddItemToCartRequestDTO;
+import com.kpop.Clz.dto.CartBatchResultDTO;
+import com.kpop.Clz.dto.CartDTO;
+import com.kpop.Clz.dto.CartOperationDTO;
+import com.kpop.Clz.dto.CartOperationResultDTO;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.model.User;
+import com.kpop.Clz.repository.ProductRepository;
+import com.kpop.Clz.repository.UserRepository;
+import com.kpop.Clz.support.SqlStatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(showSql = false)
+@Import({CartService.class, SqlStatementCounter.Config.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartServiceStatementCountTest {
+
+	private static final int CART_SIZE = 10;
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private SqlStatementCounter sqlStatementCounter;
+
+	private Integer userId;
+
+	@BeforeEach
+	void fillCart() {
+		String name = "cart-user-" + UUID.randomUUID();
+		User buyer = new User();
+		buyer.setUsername(name);
+		buyer.setEmail(name + "@example.com");
+		buyer.setPasswordHash("x");
+		buyer.setRole(User.Role.customer);
+		userId = userRepository.save(buyer).getId();
+
+		for (int i = 0; i < CART_SIZE; i++) {
+			Product product = new Product();
+			product.setName("Card " + i);
+			product.setPrice(new BigDecimal("4.50"));
+			product.setStockQuantity(20);
+			cartService.addItemToCart(userId, addRequest(productRepository.save(product).getId(), 1));
+		}
+	}
+
+	@Test
+	void quantityChangeIsOneReadAndOneWritePerTable() {
+		CartDTO cart = cartService.getCartByUserId(userId);
+		Integer itemId = cart.getItems().get(3).getOrderItemId();
+
+		sqlStatementCounter.reset();
+		CartDTO updated = cartService.updateItemQuantityInCart(userId, itemId, 5);
+
+		assertThat(sqlStatementCounter.count(sql -> sql.trim().toLowerCase().startsWith("select"))).isEqualTo(1);
+		assertThat(sqlStatementCounter.count("update", "order_items")).isEqualTo(1);
+		assertThat(sqlStatementCounter.count("update", "orders")).isEqualTo(1);
+		assertThat(sqlStatementCounter.total()).isEqualTo(3);
+		assertThat(updated.getTotalQuantity()).isEqualTo(CART_SIZE + 4);
+		assertThat(updated.getTotalAmount()).isEqualByComparingTo("63.00");
+	}
+
+	@Test
+	void addingProductAlreadyInCartDoesNotReloadIt() {
+		Long productId = cartService.getCartByUserId(userId).getItems().get(0).getProductId();
+
+		sqlStatementCounter.reset();
+		cartService.addItemToCart(userId, addRequest(productId, 2));
+
+		assertThat(sqlStatementCounter.count(sql -> sql.trim().toLowerCase().startsWith("select"))).isEqualTo(1);
+		assertThat(sqlStatementCounter.count("select", "users")).isZero();
+	}
+
+	@Test
+	void removeIsOneReadOneDeleteAndOneTotalsUpdate() {
+		Integer itemId = cartService.getCartByUserId(userId).getItems().get(0).getOrderItemId();
+
+		sqlStatementCounter.reset();
+		CartDTO updated = cartService.removeItemFromCart(userId, itemId);
+
+		assertThat(sqlStatementCounter.count(sql -> sql.trim().toLowerCase().startsWith("select"))).isEqualTo(1);
+		assertThat(sqlStatementCounter.count("delete", "order_items")).isEqualTo(1);
+		assertThat(sqlStatementCounter.count("update", "orders")).isEqualTo(1);
+		assertThat(updated.getItems()).hasSize(CART_SIZE - 1);
+	}
+
+	@Test
+	void batchIsOneCartReadOneProductReadAndReportsStockPerOperation() {
+		List<Integer> itemIds = cartService.getCartByUserId(userId).getItems().stream()
+				.map(item -> item.getOrderItemId())
+				.toList();
+		Product extra = new Product();
+		extra.setName("Extra card");
+		extra.setPrice(new BigDecimal("10.00"));
+		extra.setStockQuantity(3);
+		Long extraId = productRepository.save(extra).getId();
+
+		sqlStatementCounter.reset();
+		CartBatchResultDTO result = cartService.applyBatch(userId, List.of(
+				operation(CartOperationDTO.Type.UPDATE, null, itemIds.get(0), 4),
+				operation(CartOperationDTO.Type.UPDATE, null, itemIds.get(1), 21),
+				operation(CartOperationDTO.Type.REMOVE, null, itemIds.get(2), null),
+				operation(CartOperationDTO.Type.ADD, extraId, null, 2),
+				operation(CartOperationDTO.Type.ADD, extraId, null, 2)));
+
+		assertThat(sqlStatementCounter.count(sql -> sql.trim().toLowerCase().startsWith("select"))).isEqualTo(2);
+		assertThat(result.getResults()).extracting(CartOperationResultDTO::isApplied)
+				.containsExactly(true, false, true, true, false);
+		assertThat(result.getResults().get(1).getError()).isEqualTo(CartOperationResultDTO.INSUFFICIENT_STOCK);
+		assertThat(result.getResults().get(4).getError()).isEqualTo(CartOperationResultDTO.INSUFFICIENT_STOCK);
+		assertThat(result.getCart().getItems()).hasSize(CART_SIZE);
+		assertThat(result.getCart().getTotalQuantity()).isEqualTo(CART_SIZE - 2 + 4 + 2);
+		assertThat(result.getCart().getTotalAmount()).isEqualByComparingTo("74.00");
+	}
+
+	@Test
+	void batchReportsUnknownItemAfterAddingANewProduct() {
+		Product extra = new Product();
+		extra.setName("Extra card");
+		extra.setPrice(new BigDecimal("10.00"));
+		extra.setStockQuantity(3);
+		Long extraId = productRepository.save(extra).getId();
+
+		// item vừa ADD chưa được flush nên id còn null khi tìm itemId của các thao tác sau
+		CartBatchResultDTO result = cartService.applyBatch(userId, List.of(
+				operation(CartOperationDTO.Type.ADD, extraId, null, 1),
+				operation(CartOperationDTO.Type.REMOVE, null, Integer.MAX_VALUE, null),
+				operation(CartOperationDTO.Type.UPDATE, null, Integer.MAX_VALUE, 2)));
+
+		assertThat(result.getResults()).extracting(CartOperationResultDTO::isApplied).containsExactly(true, false, false);
+		assertThat(result.getResults()).extracting(CartOperationResultDTO::getError)
+				.containsExactly(null, CartOperationResultDTO.NOT_FOUND, CartOperationResultDTO.NOT_FOUND);
+		assertThat(cartService.getCartByUserId(userId).getItems()).hasSize(CART_SIZE + 1);
+	}
+
+	private static CartOperationDTO operation(CartOperationDTO.Type type, Long productId, Integer itemId, Integer quantity) {
+		CartOperationDTO operation = new CartOperationDTO();
+		operation.setType(type);
+		operation.setProductId(productId);
+		operation.setItemId(itemId);
+		operation.setQuantity(quantity);
+		return operation;
+	}
+
+	private static AddItemToCartRequestDTO addRequest(Long productId, int quantity) {
+		AddItemToCartRequestDTO request = new AddItemToCartRequestDTO();
+		request.setProductId(productId);
+		request.setQuantity(quantity);
+		return request;
+	}
+}
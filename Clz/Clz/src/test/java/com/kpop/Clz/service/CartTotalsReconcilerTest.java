@@ -0,0 +1,92 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.AddItemToCartRequestDTO;
+import com.kpop.Clz.dto.CartDTO;
+import com.kpop.Clz.model.Order;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.model.User;
+import com.kpop.Clz.repository.OrderRepository;
+import com.kpop.Clz.repository.ProductRepository;
+import com.kpop.Clz.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(showSql = false)
+@Import({CartService.class, CartTotalsReconciler.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartTotalsReconcilerTest {
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private CartTotalsReconciler reconciler;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void deltasKeepTotalsConsistentAndDriftIsRepaired() {
+		String name = "totals-user-" + UUID.randomUUID();
+		User buyer = new User();
+		buyer.setUsername(name);
+		buyer.setEmail(name + "@example.com");
+		buyer.setPasswordHash("x");
+		buyer.setRole(User.Role.customer);
+		Integer userId = userRepository.save(buyer).getId();
+
+		Product product = new Product();
+		product.setName("Card");
+		product.setPrice(new BigDecimal("3.25"));
+		product.setStockQuantity(50);
+		Long productId = productRepository.save(product).getId();
+
+		CartDTO cart = cartService.addItemToCart(userId, addRequest(productId, 4));
+		Integer itemId = cart.getItems().get(0).getOrderItemId();
+		cartService.updateItemQuantityInCart(userId, itemId, 7);
+		cart = cartService.addItemToCart(userId, addRequest(productId, 1));
+		assertThat(cart.getTotalQuantity()).isEqualTo(8);
+		assertThat(cart.getTotalAmount()).isEqualByComparingTo("26.00");
+
+		// không có lệch sau các thao tác bình thường
+		reconciler.reconcileCartTotals();
+		Integer orderId = cart.getOrderId();
+		assertThat(orderRepository.findById(orderId).orElseThrow().getTotalQuantity()).isEqualTo(8);
+
+		jdbcTemplate.update("UPDATE orders SET total_amount = 1, total_quantity = 99 WHERE id = ?", orderId);
+		assertThat(reconciler.reconcileCartTotals()).isGreaterThanOrEqualTo(1);
+
+		Order repaired = orderRepository.findById(orderId).orElseThrow();
+		assertThat(repaired.getTotalQuantity()).isEqualTo(8);
+		assertThat(repaired.getTotalAmount()).isEqualByComparingTo("26.00");
+		assertThat(cartService.getCartByUserId(userId).getTotalQuantity()).isEqualTo(8);
+	}
+
+	private static AddItemToCartRequestDTO addRequest(Long productId, int quantity) {
+		AddItemToCartRequestDTO request = new AddItemToCartRequestDTO();
+		request.setProductId(productId);
+		request.setQuantity(quantity);
+		return request;
+	}
+}
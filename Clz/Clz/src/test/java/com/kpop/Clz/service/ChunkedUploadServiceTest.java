@@ -0,0 +1,204 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.UploadSessionDTO;
+import com.kpop.Clz.exception.ResourceNotFoundException;
+import com.kpop.Clz.repository.UploadSessionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(showSql = false)
+@Import(StoredFileReferenceTracker.class)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChunkedUploadServiceTest {
+
+	private static final int USER_ID = 7;
+	private static final int CHUNK = 4096;
+
+	@TempDir
+	Path uploadDir;
+
+	@Autowired
+	private UploadSessionRepository uploadSessionRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private ImageVariantService imageVariantService;
+	private FileStorageService fileStorageService;
+	private ChunkedUploadService chunkedUploadService;
+	private byte[] content;
+
+	@BeforeEach
+	void createService() {
+		imageVariantService = new ImageVariantService(uploadDir.toString(), new int[]{150}, 0.8f, 1_000_000L, 1, 10);
+		fileStorageService = new FileStorageService(uploadDir.toString(), imageVariantService, jdbcTemplate);
+		chunkedUploadService = newChunkedUploadService();
+		content = new byte[3 * CHUNK + 100];
+		new Random().nextBytes(content);
+	}
+
+	@AfterEach
+	void shutdown() {
+		imageVariantService.shutdown();
+	}
+
+	@Test
+	void uploadInOrderedChunksIsStoredUnderItsHash() throws Exception {
+		UploadSessionDTO session = chunkedUploadService.initSession(USER_ID, "scan.bin", content.length, sha256(content));
+
+		for (int offset = 0; offset < content.length; offset += CHUNK) {
+			UploadSessionDTO progress = append(chunkedUploadService, session, offset, chunk(offset, offset + CHUNK));
+			assertThat(progress.getReceivedBytes()).isEqualTo(Math.min(offset + CHUNK, content.length));
+		}
+		String url = chunkedUploadService.completeSession(session.getUploadId(), USER_ID, null);
+
+		assertThat(FileStorageService.hashFromUrl(url)).isEqualTo(sha256(content));
+		assertThat(Files.readAllBytes(pathOf(url))).isEqualTo(content);
+		assertThat(uploadSessionRepository.findById(session.getUploadId())).isEmpty();
+	}
+
+	@Test
+	void outOfOrderChunksAreRejectedWithTheExpectedOffset() throws Exception {
+		UploadSessionDTO session = chunkedUploadService.initSession(USER_ID, "scan.bin", content.length, null);
+		append(chunkedUploadService, session, 0, chunk(0, CHUNK));
+
+		// chunk thứ 3 đến trước chunk thứ 2
+		assertThatThrownBy(() -> append(chunkedUploadService, session, 2 * CHUNK, chunk(2 * CHUNK, 3 * CHUNK)))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("Expected offset " + CHUNK);
+		// gửi lại chunk đã nhận (retry sau timeout) cũng không ghi đè
+		assertThatThrownBy(() -> append(chunkedUploadService, session, 0, chunk(0, CHUNK)))
+				.isInstanceOf(IllegalStateException.class);
+		assertThat(chunkedUploadService.getSession(session.getUploadId(), USER_ID).getReceivedBytes()).isEqualTo(CHUNK);
+
+		for (int offset = CHUNK; offset < content.length; offset += CHUNK) {
+			append(chunkedUploadService, session, offset, chunk(offset, offset + CHUNK));
+		}
+		String url = chunkedUploadService.completeSession(session.getUploadId(), USER_ID, sha256(content));
+		assertThat(Files.readAllBytes(pathOf(url))).isEqualTo(content);
+	}
+
+	@Test
+	void interruptedChunkResumesFromReceivedBytes() throws Exception {
+		UploadSessionDTO session = chunkedUploadService.initSession(USER_ID, "scan.bin", content.length, sha256(content));
+		append(chunkedUploadService, session, 0, chunk(0, CHUNK));
+
+		// mất kết nối sau 1000 byte của chunk thứ 2: phần đã ghi được giữ lại (transferFrom trả về số byte đã ghi)
+		chunkedUploadService.appendChunk(session.getUploadId(), USER_ID, CHUNK,
+				new DroppingInputStream(chunk(CHUNK, 2 * CHUNK), 1000));
+		long received = chunkedUploadService.getSession(session.getUploadId(), USER_ID).getReceivedBytes();
+		assertThat(received).isEqualTo(CHUNK + 1000);
+
+		// server restart giữa chừng: digest trong bộ nhớ mất, complete phải hash lại từ đĩa
+		ChunkedUploadService restarted = newChunkedUploadService();
+		for (int offset = (int) received; offset < content.length; offset += CHUNK) {
+			append(restarted, session, offset, chunk(offset, offset + CHUNK));
+		}
+		String url = restarted.completeSession(session.getUploadId(), USER_ID, null);
+
+		assertThat(FileStorageService.hashFromUrl(url)).isEqualTo(sha256(content));
+		assertThat(Files.readAllBytes(pathOf(url))).isEqualTo(content);
+	}
+
+	@Test
+	void oversizedChunksIncompleteUploadsAndChecksumMismatchesAreRejected() throws Exception {
+		UploadSessionDTO session = chunkedUploadService.initSession(USER_ID, "scan.bin", content.length, null);
+
+		assertThatThrownBy(() -> append(chunkedUploadService, session, 0, chunk(0, CHUNK + 1)))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThat(chunkedUploadService.getSession(session.getUploadId(), USER_ID).getReceivedBytes()).isZero();
+
+		append(chunkedUploadService, session, 0, chunk(0, CHUNK));
+		assertThatThrownBy(() -> chunkedUploadService.completeSession(session.getUploadId(), USER_ID, null))
+				.isInstanceOf(IllegalStateException.class);
+		// phiên của người khác trông như không tồn tại
+		assertThatThrownBy(() -> chunkedUploadService.getSession(session.getUploadId(), USER_ID + 1))
+				.isInstanceOf(ResourceNotFoundException.class);
+
+		for (int offset = CHUNK; offset < content.length; offset += CHUNK) {
+			append(chunkedUploadService, session, offset, chunk(offset, offset + CHUNK));
+		}
+		assertThatThrownBy(() -> chunkedUploadService.completeSession(session.getUploadId(), USER_ID, "0".repeat(64)))
+				.isInstanceOf(IllegalArgumentException.class);
+		// dữ liệu hỏng thì hủy phiên, client upload lại từ đầu
+		assertThat(uploadSessionRepository.findById(session.getUploadId())).isEmpty();
+	}
+
+	private ChunkedUploadService newChunkedUploadService() {
+		ChunkedUploadService service = new ChunkedUploadService(uploadSessionRepository, fileStorageService);
+		ReflectionTestUtils.setField(service, "maxFileSize", 1_000_000L);
+		ReflectionTestUtils.setField(service, "maxChunkSize", (long) CHUNK);
+		ReflectionTestUtils.setField(service, "sessionTtlHours", 24L);
+		return service;
+	}
+
+	private static UploadSessionDTO append(ChunkedUploadService service, UploadSessionDTO session, int offset, byte[] chunk)
+			throws IOException {
+		return service.appendChunk(session.getUploadId(), USER_ID, offset, new ByteArrayInputStream(chunk));
+	}
+
+	private byte[] chunk(int from, int to) {
+		return Arrays.copyOfRange(content, from, Math.min(to, content.length));
+	}
+
+	private Path pathOf(String url) {
+		return uploadDir.resolve(url.substring(url.indexOf("/uploads/") + "/uploads/".length()));
+	}
+
+	private static String sha256(byte[] content) throws Exception {
+		return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+	}
+
+	// trả về limit byte đầu rồi ném IOException như khi client mất kết nối
+	private static final class DroppingInputStream extends InputStream {
+		private final byte[] data;
+		private final int limit;
+		private int position;
+
+		DroppingInputStream(byte[] data, int limit) {
+			this.data = data;
+			this.limit = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] one = new byte[1];
+			return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (position >= limit) {
+				throw new IOException("Connection reset");
+			}
+			int count = Math.min(length, limit - position);
+			System.arraycopy(data, position, buffer, offset, count);
+			position += count;
+			return count;
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.model.GalleryPost;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.repository.GalleryPostRepository;
+import com.kpop.Clz.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(showSql = false)
+@Import(StoredFileReferenceTracker.class)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FileStorageServiceTest {
+
+	@TempDir
+	Path uploadDir;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private GalleryPostRepository galleryPostRepository;
+
+	private ImageVariantService imageVariantService;
+	private FileStorageService fileStorageService;
+
+	@BeforeEach
+	void createService() {
+		imageVariantService = new ImageVariantService(uploadDir.toString(), new int[]{150}, 0.8f, 1_000_000L, 1, 10);
+		fileStorageService = new FileStorageService(uploadDir.toString(), imageVariantService, jdbcTemplate);
+		ReflectionTestUtils.setField(fileStorageService, "gcGraceHours", 24L);
+	}
+
+	@AfterEach
+	void shutdown() {
+		imageVariantService.shutdown();
+	}
+
+	@Test
+	void identicalUploadsAreStoredOnceUnderTheirHash() throws Exception {
+		byte[] content = uniqueContent();
+		String hash = sha256(content);
+		Map<String, Object> before = fileStorageService.getDiskUsageReport();
+
+		String first = fileStorageService.storeFile(upload("card.txt", content));
+		String second = fileStorageService.storeFile(upload("same card again.TXT", content));
+		String other = fileStorageService.storeFile(upload("card.txt", uniqueContent()));
+
+		assertThat(first).endsWith("/uploads/cas/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + ".txt");
+		assertThat(second).isEqualTo(first);
+		assertThat(other).isNotEqualTo(first);
+		assertThat(FileStorageService.hashFromUrl(first)).isEqualTo(hash);
+		assertThat(Files.readAllBytes(pathOf(first))).isEqualTo(content);
+		// không còn file tạm nào sau khi commit
+		try (Stream<Path> temp = Files.list(fileStorageService.getTempLocation())) {
+			assertThat(temp).isEmpty();
+		}
+		assertThat(uploadCount(hash)).isEqualTo(2);
+
+		Map<String, Object> after = fileStorageService.getDiskUsageReport();
+		assertThat((Long) after.get("storedFiles") - (Long) before.get("storedFiles")).isEqualTo(2);
+		assertThat((Long) after.get("dedupSavedBytes") - (Long) before.get("dedupSavedBytes")).isEqualTo(content.length);
+		assertThat((Long) after.get("dedupHitsSinceStart")).isEqualTo(1);
+	}
+
+	@Test
+	void imageFieldsCountReferencesAcrossEntities() {
+		String url = fileStorageService.storeFile(upload("photo.txt", uniqueContent()));
+		String otherUrl = fileStorageService.storeFile(upload("photo.txt", uniqueContent()));
+		String hash = FileStorageService.hashFromUrl(url);
+		String otherHash = FileStorageService.hashFromUrl(otherUrl);
+		assertThat(refCount(hash)).isZero();
+
+		Product product = saveProduct(url);
+		GalleryPost post = savePost(url);
+		assertThat(refCount(hash)).isEqualTo(2);
+
+		// đổi ảnh: ảnh cũ -1, ảnh mới +1
+		product.setImageUrl(otherUrl);
+		product = productRepository.save(product);
+		assertThat(refCount(hash)).isEqualTo(1);
+		assertThat(refCount(otherHash)).isEqualTo(1);
+
+		// link ngoài store không được tính
+		product.setImageUrl("https://cdn.example/photo.jpg");
+		productRepository.save(product);
+		assertThat(refCount(otherHash)).isZero();
+
+		galleryPostRepository.delete(post);
+		assertThat(refCount(hash)).isZero();
+	}
+
+	@Test
+	void purgeRemovesOnlyUnreferencedBlobsPastTheGracePeriod() throws Exception {
+		String orphan = fileStorageService.storeFile(upload("orphan.txt", uniqueContent()));
+		String recent = fileStorageService.storeFile(upload("recent.txt", uniqueContent()));
+		String used = fileStorageService.storeFile(upload("used.txt", uniqueContent()));
+		saveProduct(used);
+		Timestamp old = Timestamp.valueOf(LocalDateTime.now().minusDays(2));
+		for (String url : new String[]{orphan, used}) {
+			jdbcTemplate.update("UPDATE stored_files SET last_uploaded_at = ? WHERE sha256 = ?", old, FileStorageService.hashFromUrl(url));
+		}
+
+		fileStorageService.purgeUnreferencedFiles();
+
+		assertThat(exists(orphan)).isFalse();
+		assertThat(Files.exists(pathOf(orphan))).isFalse();
+		// chưa hết thời gian ân hạn: có thể sắp được gắn vào bài đăng
+		assertThat(exists(recent)).isTrue();
+		assertThat(Files.exists(pathOf(recent))).isTrue();
+		assertThat(exists(used)).isTrue();
+		assertThat(Files.exists(pathOf(used))).isTrue();
+	}
+
+	@Test
+	void completedChunkedUploadsAreMovedIntoTheStore() throws Exception {
+		byte[] content = uniqueContent();
+		Path assembled = Files.write(fileStorageService.getTempLocation().resolve("session.part"), content);
+
+		String url = fileStorageService.storeCompletedFile(assembled, "scan.txt", sha256(content), content.length);
+
+		assertThat(Files.exists(assembled)).isFalse();
+		assertThat(Files.readAllBytes(pathOf(url))).isEqualTo(content);
+		assertThat(FileStorageService.hashFromUrl(url)).isEqualTo(sha256(content));
+	}
+
+	@Test
+	void storedImageUrlsResolveToTheirVariants() throws Exception {
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+		// màu theo UUID để nội dung không trùng với test khác
+		image.setRGB(0, 0, UUID.randomUUID().hashCode());
+		ImageIO.write(image, "png", png);
+		String url = fileStorageService.storeFile(new MockMultipartFile("file", "photo.png", "image/png", png.toByteArray()));
+		String relativePath = url.substring(url.indexOf("/uploads/") + "/uploads/".length());
+		imageVariantService.generateVariants(relativePath);
+
+		String variant = imageVariantService.resolveVariantUrl(url, 100);
+
+		assertThat(url).startsWith("http://localhost:8080/uploads/cas/");
+		assertThat(variant).isEqualTo("http://localhost:8080/uploads/variants/w150/" + relativePath.replace(".png", ".jpg"));
+		assertThat(Files.exists(pathOf(variant))).isTrue();
+		assertThat(imageVariantService.resolveVariantUrl(url, 1000)).isEqualTo(url);
+		assertThatThrownBy(() -> imageVariantService.resolveVariantUrl(url.replace("localhost:8080", "evil.example"), 100))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private Product saveProduct(String imageUrl) {
+		Product product = new Product();
+		product.setName("Photocard");
+		product.setPrice(new BigDecimal("3.00"));
+		product.setStockQuantity(1);
+		product.setImageUrl(imageUrl);
+		return productRepository.save(product);
+	}
+
+	private GalleryPost savePost(String imageUrl) {
+		GalleryPost post = new GalleryPost();
+		post.setUserId(1);
+		post.setImageUrl(imageUrl);
+		post.setPostedByUsername("poster");
+		post.setPostedAt(new Timestamp(System.currentTimeMillis()));
+		return galleryPostRepository.save(post);
+	}
+
+	private Path pathOf(String url) {
+		return uploadDir.resolve(url.substring(url.indexOf("/uploads/") + "/uploads/".length()));
+	}
+
+	private boolean exists(String url) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stored_files WHERE sha256 = ?", Integer.class,
+				FileStorageService.hashFromUrl(url)) > 0;
+	}
+
+	private int refCount(String hash) {
+		return jdbcTemplate.queryForObject("SELECT ref_count FROM stored_files WHERE sha256 = ?", Integer.class, hash);
+	}
+
+	private int uploadCount(String hash) {
+		return jdbcTemplate.queryForObject("SELECT upload_count FROM stored_files WHERE sha256 = ?", Integer.class, hash);
+	}
+
+	private static MockMultipartFile upload(String name, byte[] content) {
+		return new MockMultipartFile("file", name, "text/plain", content);
+	}
+
+	private static byte[] uniqueContent() {
+		return ("scan " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String sha256(byte[] content) throws Exception {
+		return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+	}
+}
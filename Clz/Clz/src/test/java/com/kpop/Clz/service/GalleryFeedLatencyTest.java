@@ -0,0 +1,93 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.GalleryFeedPageDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Độ trễ 1 trang feed khi bảng gallery_posts lớn gấp 100 lần (2k -> 200k dòng), cả trang đầu lẫn cursor ở giữa bảng.
+ * Keyset trên index (posted_at, id) chỉ đọc page-size dòng nên độ trễ gần như không đổi; OFFSET hay quét từ đầu thì tăng theo bảng.
+ */
+@DataJpaTest(showSql = false, properties = "app.gallery.feed.page-size=20")
+@Import(GalleryPostService.class)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GalleryFeedLatencyTest {
+
+	private static final int SMALL = 2_000;
+	private static final int LARGE = 200_000;
+	private static final int RUNS = 200;
+
+	@Autowired
+	private GalleryPostService galleryPostService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void feedLatencyStaysFlatAsTheTableGrows() {
+		insertPosts(1, SMALL);
+		long smallHead = medianMicros(null);
+		long smallDeep = medianMicros(cursorAt(SMALL / 2));
+
+		insertPosts(SMALL + 1, LARGE);
+		long largeHead = medianMicros(null);
+		long largeDeep = medianMicros(cursorAt(LARGE / 2));
+
+		// posted_at trùng nhau: trang sau cursor bắt đầu đúng ở dòng kế tiếp, không bỏ sót / lặp dòng
+		assertThat(galleryPostService.getFeedPage(cursorAt(LARGE / 2)).getItems().get(0).getId())
+				.isEqualTo(idAt(LARGE / 2 + 1));
+
+		String report = String.format("median us: head %d -> %d, mid-table cursor %d -> %d", smallHead, largeHead, smallDeep, largeDeep);
+		// ngưỡng rộng cho máy CI chậm: bảng lớn gấp 100 lần nhưng trang không chậm quá 3 lần
+		assertThat(largeHead).as(report).isLessThan(smallHead * 3 + 1_000);
+		assertThat(largeDeep).as(report).isLessThan(smallDeep * 3 + 1_000);
+	}
+
+	// posted_at trùng theo cặp để cursor phải phân định bằng id
+	private void insertPosts(int from, int to) {
+		jdbcTemplate.update("INSERT INTO gallery_posts (user_id, image_url, posted_by_username, posted_at, created_at, updated_at, " +
+				"likes_count, comments_count) SELECT 1, '/uploads/feed.jpg', 'poster', DATEADD('SECOND', X / 2, CAST(? AS TIMESTAMP)), " +
+				"CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0, 0 FROM SYSTEM_RANGE(" + from + ", " + to + ")",
+				Timestamp.valueOf("2030-01-01 00:00:00"));
+	}
+
+	// cursor "<postedAt>,<id>" của dòng thứ position tính từ mới nhất
+	private String cursorAt(int position) {
+		Map<String, Object> row = jdbcTemplate.queryForMap("SELECT posted_at, id FROM gallery_posts " +
+				"ORDER BY posted_at DESC, id DESC OFFSET ? ROWS FETCH NEXT 1 ROWS ONLY", position);
+		return ((Timestamp) row.get("POSTED_AT")).toInstant() + "," + row.get("ID");
+	}
+
+	private Integer idAt(int position) {
+		return jdbcTemplate.queryForObject("SELECT id FROM gallery_posts ORDER BY posted_at DESC, id DESC " +
+				"OFFSET ? ROWS FETCH NEXT 1 ROWS ONLY", Integer.class, position);
+	}
+
+	private long medianMicros(String before) {
+		long[] samples = new long[RUNS];
+		for (int warmup = 0; warmup < RUNS; warmup++) {
+			galleryPostService.getFeedPage(before);
+		}
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			GalleryFeedPageDTO page = galleryPostService.getFeedPage(before);
+			samples[i] = (System.nanoTime() - start) / 1_000;
+			assertThat(page.getItems()).hasSize(20);
+		}
+		Arrays.sort(samples);
+		return samples[RUNS / 2];
+	}
+}
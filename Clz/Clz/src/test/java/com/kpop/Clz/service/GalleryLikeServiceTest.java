@@ -0,0 +1,118 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.model.GalleryPost;
+import com.kpop.Clz.repository.GalleryPostRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(showSql = false, properties = "app.gallery.likes.flush-interval-ms=3600000")
+@Import(GalleryLikeService.class)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GalleryLikeServiceTest {
+
+	private static final int USERS = 200;
+
+	@Autowired
+	private GalleryLikeService galleryLikeService;
+
+	@Autowired
+	private GalleryPostRepository galleryPostRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void likesRaceWithFlushesWithoutLosingDeltas() throws Exception {
+		GalleryPost post = savePost();
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		AtomicBoolean running = new AtomicBoolean(true);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			// flush liên tục trong lúc like/unlike để bắt lỗi mất delta khi đổi map
+			Future<?> flusher = pool.submit(() -> {
+				start.await();
+				while (running.get()) {
+					galleryLikeService.flushPendingLikes();
+					Thread.sleep(1);
+				}
+				return null;
+			});
+			List<Future<?>> clicks = new ArrayList<>();
+			for (int user = 1; user <= USERS; user++) {
+				int userId = user;
+				clicks.add(pool.submit(() -> {
+					start.await();
+					galleryLikeService.likePost(post.getId(), userId);
+					galleryLikeService.likePost(post.getId(), userId); // lặp lại: không đếm 2 lần
+					if (userId % 4 == 0) {
+						galleryLikeService.unlikePost(post.getId(), userId);
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> click : clicks) {
+				click.get(30, TimeUnit.SECONDS);
+			}
+			running.set(false);
+			flusher.get(30, TimeUnit.SECONDS);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		long expected = USERS - USERS / 4;
+		assertThat(galleryLikeService.currentLikes(reload(post))).isEqualTo(expected);
+
+		galleryLikeService.flushPendingLikes();
+		assertThat(galleryLikeService.getPendingPostCount()).isZero();
+		assertThat(reload(post).getLikesCount()).isEqualTo(expected);
+	}
+
+	@Test
+	void startupRecountsLikesWhoseDeltasWereLostInACrash() {
+		GalleryPost post = savePost();
+		galleryLikeService.likePost(post.getId(), 1);
+		galleryLikeService.flushPendingLikes();
+
+		// row like đã commit nhưng process chết trước khi flush delta
+		jdbcTemplate.update("INSERT INTO gallery_post_likes (post_id, user_id, liked_at) VALUES (?, 2, CURRENT_TIMESTAMP)", post.getId());
+		jdbcTemplate.update("INSERT INTO gallery_post_likes (post_id, user_id, liked_at) VALUES (?, 3, CURRENT_TIMESTAMP)", post.getId());
+		assertThat(reload(post).getLikesCount()).isEqualTo(1);
+
+		galleryLikeService.recountUnflushedLikes();
+
+		assertThat(reload(post).getLikesCount()).isEqualTo(3);
+	}
+
+	private GalleryPost savePost() {
+		GalleryPost post = new GalleryPost();
+		post.setUserId(1);
+		post.setImageUrl("/uploads/post.jpg");
+		post.setPostedByUsername("poster");
+		post.setPostedAt(new Timestamp(System.currentTimeMillis()));
+		return galleryPostRepository.save(post);
+	}
+
+	private GalleryPost reload(GalleryPost post) {
+		return galleryPostRepository.findById(post.getId()).orElseThrow();
+	}
+}
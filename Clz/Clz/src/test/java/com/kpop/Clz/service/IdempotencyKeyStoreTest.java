@@ -0,0 +1,163 @@
+package com.kpop.Clz.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyKeyStoreTest {
+
+	private final IdempotencyKeyStore store = new IdempotencyKeyStore(60, 1000, 5000, 1024, new ObjectMapper());
+
+	@Test
+	void duplicateIsReplayedAndDifferentBodyIsRejected() {
+		AtomicInteger orders = new AtomicInteger();
+
+		ResponseEntity<?> first = store.execute("alice", "k1", "body-a",
+				() -> ResponseEntity.status(HttpStatus.CREATED).body("order-" + orders.incrementAndGet()));
+		ResponseEntity<?> retry = store.execute("alice", "k1", "body-a",
+				() -> ResponseEntity.status(HttpStatus.CREATED).body("order-" + orders.incrementAndGet()));
+		ResponseEntity<?> otherBody = store.execute("alice", "k1", "body-b",
+				() -> ResponseEntity.status(HttpStatus.CREATED).body("order-" + orders.incrementAndGet()));
+		ResponseEntity<?> otherUser = store.execute("bob", "k1", "body-b",
+				() -> ResponseEntity.status(HttpStatus.CREATED).body("order-" + orders.incrementAndGet()));
+
+		assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(body(retry)).isEqualTo(first.getBody());
+		assertThat(retry.getHeaders().getFirst(IdempotencyKeyStore.REPLAYED_HEADER)).isEqualTo("true");
+		assertThat(otherBody.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+		assertThat(otherUser.getBody()).isEqualTo("order-2");
+		assertThat(orders).hasValue(2);
+	}
+
+	@Test
+	void serverErrorsAreNotStored() {
+		AtomicInteger attempts = new AtomicInteger();
+
+		store.execute("alice", "k2", "body", () -> {
+			attempts.incrementAndGet();
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+		});
+		ResponseEntity<?> retry = store.execute("alice", "k2", "body", () -> {
+			attempts.incrementAndGet();
+			return ResponseEntity.ok("done");
+		});
+
+		assertThat(retry.getBody()).isEqualTo("done");
+		assertThat(attempts).hasValue(2);
+	}
+
+	@Test
+	void concurrentDuplicatesWaitForTheFirstRequest() throws Exception {
+		AtomicInteger executions = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			Future<ResponseEntity<?>> first = pool.submit(() -> store.execute("alice", "k3", "body", () -> {
+				executions.incrementAndGet();
+				started.countDown();
+				await(release);
+				return ResponseEntity.status(HttpStatus.CREATED).body("order");
+			}));
+			assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+			Future<ResponseEntity<?>> second = pool.submit(() -> store.execute("alice", "k3", "body", () -> {
+				executions.incrementAndGet();
+				return ResponseEntity.status(HttpStatus.CREATED).body("duplicate");
+			}));
+			Thread.sleep(100);
+			release.countDown();
+
+			assertThat(first.get(5, TimeUnit.SECONDS).getBody()).isEqualTo("order");
+			assertThat(body(second.get(5, TimeUnit.SECONDS))).isEqualTo("order");
+			assertThat(executions).hasValue(1);
+			assertThat(store.getStats().get("coalesced")).isEqualTo(1L);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void largeBodiesWithoutReloaderAreNotReplayedAsSuccessAndOldestKeysAreEvictedFirst() {
+		IdempotencyKeyStore small = new IdempotencyKeyStore(60, 3, 5000, 64, new ObjectMapper());
+
+		// body quá lớn và không có cách đọc lại: không trả 201 với body không phải response gốc
+		ResponseEntity<?> replay = replay(small, "big", Map.of("items", "x".repeat(500)));
+		assertThat(replay.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+		assertThat(replay.getBody()).isInstanceOf(Map.class);
+		Map<?, ?> body = (Map<?, ?>) replay.getBody();
+		assertThat(body.get("originalStatus")).isEqualTo(201);
+		assertThat(body.get("responseSha256")).isNotNull();
+
+		assertThat(new String((byte[]) replay(small, "json", Map.of("id", 7)).getBody(), StandardCharsets.UTF_8))
+				.isEqualTo("{\"id\":7}");
+
+		// giới hạn 3 key: thêm 2 key nữa thì "big" và "json" (cũ nhất) bị bỏ, key mới nhất còn
+		AtomicInteger runs = new AtomicInteger();
+		for (String key : new String[]{"k1", "k2", "k3"}) {
+			small.execute("alice", key, "body", () -> ResponseEntity.ok("run-" + runs.incrementAndGet()));
+		}
+		assertThat(small.getStats().get("keys")).isEqualTo(3);
+		assertThat(small.getStats().get("evicted")).isEqualTo(2L);
+		small.execute("alice", "k3", "body", () -> ResponseEntity.ok("run-" + runs.incrementAndGet()));
+		small.execute("alice", "big", "body", () -> ResponseEntity.ok("run-" + runs.incrementAndGet()));
+		assertThat(runs).hasValue(4);
+	}
+
+	@Test
+	void largeBodiesAreRebuiltByTheReloaderOnReplay() {
+		IdempotencyKeyStore small = new IdempotencyKeyStore(60, 10, 5000, 64, new ObjectMapper());
+		Map<Integer, String> orders = new ConcurrentHashMap<>();
+		orders.put(42, "order 42 " + "x".repeat(500));
+
+		ResponseEntity<?> first = small.execute("alice", "big", "body",
+				() -> ResponseEntity.status(HttpStatus.CREATED).body(new BigOrder(42, orders.get(42))),
+				body -> body instanceof BigOrder order ? reload(orders, order.id()) : null);
+		ResponseEntity<?> retry = small.execute("alice", "big", "body",
+				() -> ResponseEntity.ok("again"),
+				body -> null);
+
+		assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(retry.getBody()).isEqualTo(first.getBody());
+		assertThat(retry.getHeaders().getFirst(IdempotencyKeyStore.REPLAYED_HEADER)).isEqualTo("true");
+	}
+
+	private record BigOrder(int id, String details) {
+	}
+
+	private static Supplier<BigOrder> reload(Map<Integer, String> orders, int id) {
+		return () -> new BigOrder(id, orders.get(id));
+	}
+
+	private static ResponseEntity<?> replay(IdempotencyKeyStore store, String key, Object body) {
+		store.execute("alice", key, "body", () -> ResponseEntity.status(HttpStatus.CREATED).body(body));
+		return store.execute("alice", key, "body", () -> ResponseEntity.ok("again"));
+	}
+
+	private static String body(ResponseEntity<?> response) {
+		Object body = response.getBody();
+		return body instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : (String) body;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
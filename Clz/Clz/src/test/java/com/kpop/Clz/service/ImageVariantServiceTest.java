@@ -0,0 +1,66 @@
+package com.kpop.Clz.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImageVariantServiceTest {
+
+	@TempDir
+	Path uploadDir;
+
+	private ImageVariantService service;
+
+	@BeforeEach
+	void createService() {
+		// giới hạn 1 triệu pixel để test ảnh quá lớn mà không cần file lớn thật
+		service = new ImageVariantService(uploadDir.toString(), new int[]{150, 480}, 0.8f, 1_000_000L, 1, 10);
+	}
+
+	@AfterEach
+	void shutdown() {
+		service.shutdown();
+	}
+
+	@Test
+	void onlyRelativeUploadPathsAreResolved() throws IOException {
+		writePng("photo.png", 600, 400);
+		service.generateVariants("photo.png");
+
+		assertThat(service.resolveVariantUrl("/uploads/photo.png", 200)).isEqualTo("/uploads/variants/w480/photo.jpg");
+		assertThat(service.resolveVariantUrl("/uploads/photo.png", 1000)).isEqualTo("/uploads/photo.png");
+		assertThat(service.resolveVariantUrl("/uploads/notes.txt", 200)).isEqualTo("/uploads/notes.txt");
+
+		// không được redirect ra ngoài
+		for (String url : new String[]{"https://evil.example/uploads/photo.png", "//evil.example/uploads/x.png",
+				"/uploads//evil.example/x.png", "/uploads/../secret.png", "/uploads/photo.png?x=1", "/api/photo.png"}) {
+			assertThatThrownBy(() -> service.resolveVariantUrl(url, 200))
+					.as(url)
+					.isInstanceOf(IllegalArgumentException.class);
+		}
+	}
+
+	@Test
+	void imagesOverThePixelLimitAreNotDecoded() throws IOException {
+		writePng("huge.png", 1200, 1000);
+		service.generateVariants("huge.png");
+
+		assertThat(Files.exists(uploadDir.resolve("variants/w150/huge.jpg"))).isFalse();
+		assertThat(service.getStats().get("skippedTooLarge")).isEqualTo(1L);
+		assertThat(service.getStats().get("failures")).isEqualTo(0L);
+	}
+
+	private void writePng(String name, int width, int height) throws IOException {
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", uploadDir.resolve(name).toFile());
+	}
+}
@@ -0,0 +1,154 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.CartDTO;
+import com.kpop.Clz.exception.InsufficientStockException;
+import com.kpop.Clz.model.Order;
+import com.kpop.Clz.model.OrderItem;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.model.User;
+import com.kpop.Clz.repository.OrderRepository;
+import com.kpop.Clz.repository.ProductRepository;
+import com.kpop.Clz.repository.UserRepository;
+import com.kpop.Clz.support.SqlStatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(showSql = false, properties = "app.cart.mode=memory")
+@Import({InMemoryCartStore.class, SqlStatementCounter.Config.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InMemoryCartStoreTest {
+
+	@Autowired
+	private InMemoryCartStore cartStore;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private SqlStatementCounter sqlStatementCounter;
+
+	private Integer userId;
+	private Long productId;
+
+	@BeforeEach
+	void setUp() {
+		String name = "memory-cart-" + UUID.randomUUID();
+		User buyer = new User();
+		buyer.setUsername(name);
+		buyer.setEmail(name + "@example.com");
+		buyer.setPasswordHash("x");
+		buyer.setRole(User.Role.customer);
+		userId = userRepository.save(buyer).getId();
+
+		Product product = new Product();
+		product.setName("Card");
+		product.setPrice(new BigDecimal("4.50"));
+		product.setStockQuantity(5);
+		productId = productRepository.save(product).getId();
+	}
+
+	@Test
+	void mutationsOnCachedCartDoNotTouchTheDatabase() {
+		CartDTO added = cartStore.addItem(userId, productId, 1);
+		Integer itemId = added.getItems().get(0).getOrderItemId();
+
+		sqlStatementCounter.reset();
+		cartStore.addItem(userId, productId, 1);
+		cartStore.updateItemQuantity(userId, itemId, 3);
+		CartDTO cart = cartStore.getCart(userId);
+
+		assertThat(sqlStatementCounter.total()).isZero();
+		assertThat(cart.getTotalQuantity()).isEqualTo(3);
+		assertThat(cart.getTotalAmount()).isEqualByComparingTo("13.50");
+		assertThatThrownBy(() -> cartStore.updateItemQuantity(userId, itemId, 6))
+				.isInstanceOf(InsufficientStockException.class);
+	}
+
+	@Test
+	void flushWritesCartAndEvictedCartIsRehydrated() {
+		CartDTO added = cartStore.addItem(userId, productId, 2);
+		assertThat(orderRepository.findWithItemsByUserIdAndStatus(userId, Order.OrderStatus.CART)).isEmpty();
+
+		cartStore.flushAndEvict();
+
+		Order persisted = orderRepository.findWithItemsByUserIdAndStatus(userId, Order.OrderStatus.CART).orElseThrow();
+		assertThat(persisted.getOrderItems()).extracting(OrderItem::getQuantity).containsExactly(2);
+		assertThat(persisted.getTotalAmount()).isEqualByComparingTo("9.00");
+
+		// id tạm vẫn dùng được sau flush
+		cartStore.updateItemQuantity(userId, added.getItems().get(0).getOrderItemId(), 4);
+		cartStore.flushAndEvict();
+
+		cartStore.discard(userId);
+		CartDTO reloaded = cartStore.getCart(userId);
+		assertThat(reloaded.getOrderId()).isEqualTo(persisted.getId());
+		assertThat(reloaded.getItems()).singleElement()
+				.satisfies(item -> assertThat(item.getQuantity()).isEqualTo(4));
+
+		cartStore.removeItem(userId, reloaded.getItems().get(0).getOrderItemId());
+		cartStore.flushAndEvict();
+		assertThat(orderRepository.findWithItemsByUserIdAndStatus(userId, Order.OrderStatus.CART).orElseThrow().getOrderItems())
+				.isEmpty();
+	}
+
+	@Test
+	void itemIdsStayTheSameAcrossFlushEvictAndReload() {
+		Integer itemId = cartStore.addItem(userId, productId, 1).getItems().get(0).getOrderItemId();
+		cartStore.flushAndEvict();
+		Integer persistedId = orderRepository.findWithItemsByUserIdAndStatus(userId, Order.OrderStatus.CART).orElseThrow()
+				.getOrderItems().get(0).getId();
+
+		// giỏ bị bỏ khỏi bộ nhớ, request sau load lại từ DB
+		cartStore.discard(userId);
+		CartDTO reloaded = cartStore.updateItemQuantity(userId, itemId, 2);
+
+		assertThat(reloaded.getItems()).singleElement().satisfies(item -> {
+			assertThat(item.getOrderItemId()).isEqualTo(itemId);
+			assertThat(item.getQuantity()).isEqualTo(2);
+		});
+		// id thật trong order_items cũng dùng được
+		assertThat(cartStore.updateItemQuantity(userId, persistedId, 3).getTotalQuantity()).isEqualTo(3);
+	}
+
+	@Test
+	void stockIsReadAgainInsteadOfTrustingTheLoadedSnapshot() {
+		Integer itemId = cartStore.addItem(userId, productId, 1).getItems().get(0).getOrderItemId();
+
+		// nhập thêm hàng sau khi giỏ đã load: không từ chối theo snapshot cũ (5)
+		setStock(8);
+		assertThat(cartStore.updateItemQuantity(userId, itemId, 7).getTotalQuantity()).isEqualTo(7);
+
+		// bán bớt ở nơi khác: lần ghi xuống DB cập nhật lại tồn kho trong giỏ
+		setStock(2);
+		cartStore.flushAndEvict();
+		assertThat(cartStore.getCart(userId).getItems()).singleElement()
+				.satisfies(item -> assertThat(item.getStockQuantity()).isEqualTo(2));
+		assertThatThrownBy(() -> cartStore.addItem(userId, productId, 1))
+				.isInstanceOf(InsufficientStockException.class);
+	}
+
+	private void setStock(int stock) {
+		Product product = productRepository.findById(productId).orElseThrow();
+		product.setStockQuantity(stock);
+		productRepository.save(product);
+	}
+}
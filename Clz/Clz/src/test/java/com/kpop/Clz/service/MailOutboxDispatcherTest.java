@@ -0,0 +1,108 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.model.MailOutboxMessage;
+import com.kpop.Clz.repository.MailOutboxRepository;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(showSql = false)
+@Import({MailOutboxDispatcher.class, EmailService.class, MailOutboxDispatcherTest.Config.class})
+@ActiveProfiles("test")
+@TestPropertySource(properties = {"app.mail.retry-base-delay-ms=0", "app.mail.max-attempts=3"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MailOutboxDispatcherTest {
+
+	private static final long SMTP_DELAY_MS = 200;
+
+	@Autowired
+	private EmailService emailService;
+
+	@Autowired
+	private MailOutboxDispatcher mailOutboxDispatcher;
+
+	@Autowired
+	private MailOutboxRepository mailOutboxRepository;
+
+	@Autowired
+	private FlakySmtpStub smtp;
+
+	@Test
+	void resetMailIsQueuedWithoutWaitingForSmtpAndRetriedUntilSent() throws Exception {
+		int mails = 6;
+		long start = System.nanoTime();
+		for (int i = 0; i < mails; i++) {
+			emailService.sendPasswordResetEmail("fan" + i + "@example.com", "Reset", "fan" + i, "http://localhost/reset?token=" + i);
+		}
+		long enqueueMillis = (System.nanoTime() - start) / 1_000_000;
+
+		// caller không bị chặn bởi SMTP chậm
+		assertThat(enqueueMillis).isLessThan(SMTP_DELAY_MS);
+
+		// lần gửi đầu tới mỗi người nhận đều lỗi, poller phải thử lại cho đến khi gửi được
+		long deadline = System.currentTimeMillis() + 20_000;
+		while (mailOutboxRepository.countByStatus(MailOutboxMessage.Status.SENT) < mails
+				&& System.currentTimeMillis() < deadline) {
+			mailOutboxDispatcher.pollOutbox();
+			Thread.sleep(50);
+		}
+
+		List<MailOutboxMessage> outbox = mailOutboxRepository.findAll();
+		assertThat(outbox).hasSize(mails);
+		assertThat(outbox).allSatisfy(message -> {
+			assertThat(message.getStatus()).isEqualTo(MailOutboxMessage.Status.SENT);
+			assertThat(message.getAttempts()).isEqualTo(2);
+		});
+		assertThat(smtp.delivered).hasSize(mails);
+
+		Map<String, Object> stats = mailOutboxDispatcher.getStats();
+		assertThat(stats.get("sent")).isEqualTo((long) mails);
+		assertThat(stats.get("failedAttempts")).isEqualTo((long) mails);
+	}
+
+	// SMTP giả: chậm, và từ chối lần gửi đầu tiên tới mỗi địa chỉ
+	static class FlakySmtpStub extends JavaMailSenderImpl {
+		final Set<String> rejectedOnce = ConcurrentHashMap.newKeySet();
+		final Set<String> delivered = ConcurrentHashMap.newKeySet();
+
+		@Override
+		public void send(MimeMessage mimeMessage) {
+			try {
+				Thread.sleep(SMTP_DELAY_MS);
+				String recipient = mimeMessage.getAllRecipients()[0].toString();
+				if (rejectedOnce.add(recipient)) {
+					throw new MailSendException("421 try again later");
+				}
+				delivered.add(recipient);
+			} catch (InterruptedException | MessagingException e) {
+				throw new MailSendException(e.getMessage(), e);
+			}
+		}
+	}
+
+	@TestConfiguration
+	static class Config {
+		@Bean
+		FlakySmtpStub javaMailSender() {
+			return new FlakySmtpStub();
+		}
+	}
+}
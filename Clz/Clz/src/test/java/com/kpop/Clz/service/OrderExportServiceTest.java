@@ -0,0 +1,157 @@
+package com.kpop.Clz.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.model.User;
+import com.kpop.Clz.repository.ProductRepository;
+import com.kpop.Clz.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(showSql = false, properties = "app.orders.export.fetch-size=500")
+@Import(OrderExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderExportServiceTest {
+
+	private static final int ORDERS = 5_000;
+	private static final int ITEMS_PER_ORDER = 4;
+	// mỗi test dùng 1 ngày riêng vì dữ liệu không được rollback
+	private static final AtomicInteger DAY_OFFSET = new AtomicInteger();
+
+	@Autowired
+	private OrderExportService orderExportService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private LocalDateTime day;
+	private String codePrefix;
+	private Long plainProduct;
+	private Long trickyProduct;
+
+	@BeforeEach
+	void insertSyntheticOrders() {
+		String name = "export-" + UUID.randomUUID();
+		User user = new User();
+		user.setUsername(name);
+		user.setEmail(name + "@example.com");
+		user.setPasswordHash("x");
+		user.setRole(User.Role.customer);
+		Integer userId = userRepository.save(user).getId();
+		plainProduct = saveProduct("Album card");
+		trickyProduct = saveProduct("=HYPERLINK(\"x\"), \"Lucky\" card");
+
+		day = LocalDateTime.of(2030, 3, 1, 0, 0).plusDays(7L * DAY_OFFSET.getAndIncrement());
+		codePrefix = UUID.randomUUID().toString().substring(0, 8);
+		List<Object[]> orders = new ArrayList<>();
+		for (int i = 0; i < ORDERS; i++) {
+			orders.add(new Object[]{userId, codePrefix + "-" + i, "PENDING", Timestamp.valueOf(day.plusSeconds(i))});
+		}
+		// ngoài khoảng xuất và giỏ hàng: không được xuất
+		orders.add(new Object[]{userId, codePrefix + "-late", "PENDING", Timestamp.valueOf(day.plusDays(2))});
+		orders.add(new Object[]{userId, codePrefix + "-cart", "CART", Timestamp.valueOf(day.plusHours(1))});
+		jdbcTemplate.batchUpdate("INSERT INTO orders (user_id, order_code, status, order_date, total_amount, total_quantity, " +
+				"shipping_fee, grand_total) VALUES (?, ?, ?, ?, 20.00, 4, 0, 20.00)", orders);
+
+		List<Integer> orderIds = jdbcTemplate.queryForList(
+				"SELECT id FROM orders WHERE order_code LIKE ?", Integer.class, codePrefix + "-%");
+		List<Object[]> items = new ArrayList<>();
+		for (Integer orderId : orderIds) {
+			for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+				items.add(new Object[]{orderId, j == 0 ? trickyProduct : plainProduct});
+			}
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO order_items (order_id, product_id, quantity, unit_price) VALUES (?, ?, 1, 5.00)", items);
+	}
+
+	@Test
+	void csvExportStreamsEveryItemRowOfTheRange() throws Exception {
+		LineCountingOutputStream out = new LineCountingOutputStream();
+		long rows = orderExportService.export(day, day.plusDays(1), OrderExportService.Format.CSV, out);
+
+		assertThat(rows).isEqualTo((long) ORDERS * ITEMS_PER_ORDER);
+		assertThat(out.lines).isEqualTo(rows + 1); // + header
+		assertThat(out.firstLines.toString(StandardCharsets.UTF_8))
+				.startsWith("order_id,order_code,order_date,status")
+				.contains("\"'=HYPERLINK(\"\"x\"\"), \"\"Lucky\"\" card\"");
+	}
+
+	@Test
+	void ndjsonExportWritesOneObjectPerLine() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long rows = orderExportService.export(day, day.plusSeconds(3), OrderExportService.Format.NDJSON, out);
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertThat(rows).isEqualTo(3L * ITEMS_PER_ORDER);
+		assertThat(lines).hasSize(3 * ITEMS_PER_ORDER);
+		JsonNode first = objectMapper.readTree(lines[0]);
+		assertThat(first.get("order_code").asText()).isEqualTo(codePrefix + "-0");
+		assertThat(first.get("product_id").asLong()).isEqualTo(trickyProduct);
+		assertThat(first.get("unit_price").decimalValue()).isEqualByComparingTo("5.00");
+	}
+
+	private Long saveProduct(String name) {
+		Product product = new Product();
+		product.setName(name);
+		product.setPrice(new BigDecimal("5.00"));
+		product.setStockQuantity(1);
+		return productRepository.save(product).getId();
+	}
+
+	// Chỉ đếm dòng (và giữ vài KB đầu để kiểm tra), không giữ toàn bộ output
+	private static final class LineCountingOutputStream extends OutputStream {
+		long lines;
+		final ByteArrayOutputStream firstLines = new ByteArrayOutputStream();
+
+		@Override
+		public void write(int b) {
+			if (b == '\n') {
+				lines++;
+			}
+			if (firstLines.size() < 4096) {
+				firstLines.write(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] buffer, int offset, int length) {
+			for (int i = offset; i < offset + length; i++) {
+				write(buffer[i]);
+			}
+		}
+	}
+}
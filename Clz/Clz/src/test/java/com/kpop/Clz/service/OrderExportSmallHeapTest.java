@@ -0,0 +1,117 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.model.User;
+import com.kpop.Clz.repository.ProductRepository;
+import com.kpop.Clz.repository.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Xuất 1 triệu dòng trong JVM heap nhỏ (execution "small-heap" của surefire, -Xmx128m):
+ * nếu export giữ các dòng trong bộ nhớ thì test chết vì OutOfMemoryError.
+ * H2 dạng file để dữ liệu test nằm trên đĩa chứ không chiếm heap.
+ */
+@Tag("small-heap")
+@DataJpaTest(showSql = false, properties = {
+		"spring.datasource.url=jdbc:h2:file:./target/small-heap/export;DB_CLOSE_ON_EXIT=FALSE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"app.orders.export.fetch-size=1000"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OrderExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderExportSmallHeapTest {
+
+	private static final int ORDERS = 250_000;
+	private static final int ITEMS_PER_ORDER = 4;
+	private static final long MAX_HEAP_BYTES = 160L * 1024 * 1024;
+
+	@Autowired
+	private OrderExportService orderExportService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Test
+	void millionRowExportRunsInASmallHeap() throws Exception {
+		// chạy trong execution mặc định (heap lớn) thì test không chứng minh được gì
+		assertThat(Runtime.getRuntime().maxMemory()).as("run with the small-heap surefire execution").isLessThanOrEqualTo(MAX_HEAP_BYTES);
+
+		LocalDateTime day = LocalDateTime.of(2031, 1, 1, 0, 0);
+		User user = new User();
+		user.setUsername("export-heap-" + UUID.randomUUID());
+		user.setEmail(user.getUsername() + "@example.com");
+		user.setPasswordHash("x");
+		user.setRole(User.Role.customer);
+		Integer userId = userRepository.save(user).getId();
+		Product product = new Product();
+		product.setName("Album card");
+		product.setPrice(new BigDecimal("5.00"));
+		product.setStockQuantity(1);
+		Long productId = productRepository.save(product).getId();
+
+		// sinh dữ liệu bằng SQL trong DB, không dựng list tham số trong heap
+		jdbcTemplate.update("INSERT INTO orders (user_id, order_code, status, order_date, total_amount, total_quantity, " +
+				"shipping_fee, grand_total) SELECT CAST(? AS INT), CONCAT('HEAP-', X), 'PENDING', " +
+				"DATEADD('SECOND', X, CAST(? AS TIMESTAMP)), 20.00, 4, 0, 20.00 FROM SYSTEM_RANGE(1, " + ORDERS + ")", userId, day);
+		jdbcTemplate.update("INSERT INTO order_items (order_id, product_id, quantity, unit_price) " +
+				"SELECT o.id, CAST(? AS BIGINT), 1, 5.00 FROM orders o CROSS JOIN SYSTEM_RANGE(1, " + ITEMS_PER_ORDER + ") " +
+				"WHERE o.order_code LIKE 'HEAP-%'", productId);
+
+		CountingOutputStream out = new CountingOutputStream();
+		long rows = orderExportService.export(day, day.plusDays(5), OrderExportService.Format.CSV, out);
+
+		assertThat(rows).isEqualTo((long) ORDERS * ITEMS_PER_ORDER);
+		assertThat(out.lines).isEqualTo(rows + 1);
+		assertThat(out.bytes).isGreaterThan(rows * 50);
+	}
+
+	private static final class CountingOutputStream extends OutputStream {
+		long lines;
+		long bytes;
+
+		@Override
+		public void write(int b) {
+			bytes++;
+			if (b == '\n') {
+				lines++;
+			}
+		}
+
+		@Override
+		public void write(byte[] buffer, int offset, int length) {
+			bytes += length;
+			for (int i = offset; i < offset + length; i++) {
+				if (buffer[i] == '\n') {
+					lines++;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.AddItemToCartRequestDTO;
+import com.kpop.Clz.dto.CartItemInputDTO;
+import com.kpop.Clz.dto.CreateOrderRequestDTO;
+import com.kpop.Clz.model.Order;
+import com.kpop.Clz.model.OrderOutboxEvent;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.model.User;
+import com.kpop.Clz.repository.MailOutboxRepository;
+import com.kpop.Clz.repository.OrderOutboxRepository;
+import com.kpop.Clz.repository.OrderRepository;
+import com.kpop.Clz.repository.ProductRepository;
+import com.kpop.Clz.repository.UserRepository;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(showSql = false, properties = "app.orders.outbox.poll-interval-ms=3600000")
+@Import({OrderService.class, CartService.class, StockReservationService.class, OrderOutboxDispatcher.class,
+		EmailService.class, MailOutboxDispatcher.class, OrderOutboxDispatcherTest.Config.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderOutboxDispatcherTest {
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private OrderOutboxDispatcher orderOutboxDispatcher;
+
+	@Autowired
+	private OrderOutboxRepository orderOutboxRepository;
+
+	@Autowired
+	private MailOutboxRepository mailOutboxRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void checkoutClearsCartAndLeavesMailToTheDispatcher() {
+		String name = "outbox-" + UUID.randomUUID();
+		User buyer = new User();
+		buyer.setUsername(name);
+		buyer.setEmail(name + "@example.com");
+		buyer.setPasswordHash("x");
+		buyer.setRole(User.Role.customer);
+		User savedBuyer = userRepository.save(buyer);
+
+		Product product = new Product();
+		product.setName("Card");
+		product.setPrice(new BigDecimal("6.00"));
+		product.setStockQuantity(10);
+		Long productId = productRepository.save(product).getId();
+
+		AddItemToCartRequestDTO cartItem = new AddItemToCartRequestDTO();
+		cartItem.setProductId(productId);
+		cartItem.setQuantity(2);
+		cartService.addItemToCart(savedBuyer.getId(), cartItem);
+
+		CartItemInputDTO item = new CartItemInputDTO();
+		item.setProductId(productId);
+		item.setQuantity(2);
+		Order order = orderService.createOrder(
+				new CreateOrderRequestDTO(List.of(item), "Somewhere", null, "0123", BigDecimal.ZERO), savedBuyer);
+
+		// giỏ bị xóa cùng transaction checkout; mail vẫn chờ dispatcher
+		assertThat(orderRepository.findWithItemsByUserIdAndStatus(savedBuyer.getId(), Order.OrderStatus.CART)).isEmpty();
+		assertThat(mailOutboxRepository.findAll())
+				.filteredOn(message -> message.getRecipient().equals(savedBuyer.getEmail()))
+				.isEmpty();
+		assertThat(orderOutboxRepository.findAll())
+				.filteredOn(event -> event.getOrderId().equals(order.getId()))
+				.singleElement()
+				.satisfies(event -> assertThat(event.getStatus()).isEqualTo(OrderOutboxEvent.Status.PENDING));
+
+		// giỏ mới tạo sau checkout không bị dispatcher đụng tới
+		cartService.addItemToCart(savedBuyer.getId(), cartItem);
+
+		assertThat(orderOutboxDispatcher.pollOutbox()).isGreaterThanOrEqualTo(1);
+		// lần poll sau không xử lý lại
+		assertThat(orderOutboxDispatcher.pollOutbox()).isZero();
+
+		assertThat(orderRepository.findWithItemsByUserIdAndStatus(savedBuyer.getId(), Order.OrderStatus.CART))
+				.hasValueSatisfying(cart -> assertThat(cart.getOrderItems()).hasSize(1));
+		assertThat(orderOutboxRepository.findAll())
+				.filteredOn(event -> event.getOrderId().equals(order.getId()))
+				.singleElement()
+				.satisfies(event -> {
+					assertThat(event.getStatus()).isEqualTo(OrderOutboxEvent.Status.DONE);
+					assertThat(event.getProcessedAt()).isNotNull();
+				});
+		assertThat(mailOutboxRepository.findAll())
+				.filteredOn(message -> message.getRecipient().equals(savedBuyer.getEmail()))
+				.singleElement()
+				.satisfies(message -> assertThat(message.getSubject()).contains(order.getOrderCode()));
+		assertThat(orderOutboxDispatcher.getStats().get("unitsSold")).isEqualTo(2L);
+	}
+
+	@TestConfiguration
+	static class Config {
+		@Bean
+		JavaMailSenderImpl javaMailSender() {
+			return new JavaMailSenderImpl() {
+				@Override
+				public void send(MimeMessage mimeMessage) {
+				}
+			};
+		}
+	}
+}
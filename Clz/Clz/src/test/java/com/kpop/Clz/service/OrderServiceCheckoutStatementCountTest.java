@@ -0,0 +1,72 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.CartItemInputDTO;
+import com.kpop.Clz.dto.CreateOrderRequestDTO;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.model.User;
+import com.kpop.Clz.repository.ProductRepository;
+import com.kpop.Clz.repository.UserRepository;
+import com.kpop.Clz.support.SqlStatementCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(showSql = false)
+@Import({OrderService.class, CartService.class, StockReservationService.class, SqlStatementCounter.Config.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderServiceCheckoutStatementCountTest {
+
+	private static final int CART_SIZE = 40;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private SqlStatementCounter sqlStatementCounter;
+
+	@Test
+	void largeCartLoadsAndDecrementsProductsInOneRoundTripEach() {
+		List<CartItemInputDTO> items = new ArrayList<>();
+		for (int i = 0; i < CART_SIZE; i++) {
+			Product product = new Product();
+			product.setName("Card " + i);
+			product.setPrice(new BigDecimal("3.00"));
+			product.setStockQuantity(5);
+			CartItemInputDTO item = new CartItemInputDTO();
+			item.setProductId(productRepository.save(product).getId());
+			item.setQuantity(2);
+			items.add(item);
+		}
+
+		User buyer = new User();
+		buyer.setUsername("collector");
+		buyer.setEmail("collector@example.com");
+		buyer.setPasswordHash("x");
+		buyer.setRole(User.Role.customer);
+		User savedBuyer = userRepository.save(buyer);
+
+		sqlStatementCounter.reset();
+		orderService.createOrder(new CreateOrderRequestDTO(items, "Somewhere", null, "0123", BigDecimal.ZERO), savedBuyer);
+
+		assertThat(sqlStatementCounter.count("select", "products")).isEqualTo(1);
+		assertThat(sqlStatementCounter.count("update", "products")).isEqualTo(1);
+		assertThat(productRepository.findAll()).allSatisfy(product -> assertThat(product.getStockQuantity()).isEqualTo(3));
+	}
+}
@@ -0,0 +1,98 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.AddItemToCartRequestDTO;
+import com.kpop.Clz.dto.CartItemInputDTO;
+import com.kpop.Clz.dto.CreateOrderRequestDTO;
+import com.kpop.Clz.dto.OrderDTO;
+import com.kpop.Clz.dto.OrderHistoryPageDTO;
+import com.kpop.Clz.model.Order;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.model.User;
+import com.kpop.Clz.repository.ProductRepository;
+import com.kpop.Clz.repository.UserRepository;
+import com.kpop.Clz.support.SqlStatementCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(showSql = false)
+@Import({OrderService.class, CartService.class, StockReservationService.class, SqlStatementCounter.Config.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderServiceHistoryTest {
+
+	private static final int ORDER_COUNT = 5;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private SqlStatementCounter sqlStatementCounter;
+
+	@Test
+	void pagesAreTwoProjectionQueriesAndSkipTheCart() {
+		String name = "history-user-" + UUID.randomUUID();
+		User buyer = new User();
+		buyer.setUsername(name);
+		buyer.setEmail(name + "@example.com");
+		buyer.setPasswordHash("x");
+		buyer.setRole(User.Role.customer);
+		User savedBuyer = userRepository.save(buyer);
+
+		Product product = new Product();
+		product.setName("Card");
+		product.setPrice(new BigDecimal("2.00"));
+		product.setStockQuantity(100);
+		Long productId = productRepository.save(product).getId();
+
+		for (int i = 1; i <= ORDER_COUNT; i++) {
+			CartItemInputDTO item = new CartItemInputDTO();
+			item.setProductId(productId);
+			item.setQuantity(i);
+			orderService.createOrder(new CreateOrderRequestDTO(List.of(item), "Somewhere", null, "0123", BigDecimal.ZERO), savedBuyer);
+		}
+		AddItemToCartRequestDTO cartItem = new AddItemToCartRequestDTO();
+		cartItem.setProductId(productId);
+		cartItem.setQuantity(1);
+		cartService.addItemToCart(savedBuyer.getId(), cartItem);
+
+		sqlStatementCounter.reset();
+		OrderHistoryPageDTO first = orderService.getOrderHistoryPage(savedBuyer.getId(), null, 2);
+
+		assertThat(sqlStatementCounter.total()).isEqualTo(2);
+		assertThat(sqlStatementCounter.count("select", "products")).isEqualTo(1);
+		assertThat(first.isHasMore()).isTrue();
+		assertThat(first.getItems()).extracting(order -> order.getItems().get(0).getQuantity()).containsExactly(5, 4);
+
+		List<OrderDTO> all = new ArrayList<>(first.getItems());
+		Integer before = first.getNextBefore();
+		while (before != null) {
+			OrderHistoryPageDTO page = orderService.getOrderHistoryPage(savedBuyer.getId(), before, 2);
+			all.addAll(page.getItems());
+			before = page.getNextBefore();
+		}
+		assertThat(all).hasSize(ORDER_COUNT);
+		assertThat(all).noneMatch(order -> order.getStatus() == Order.OrderStatus.CART);
+		assertThat(all.get(ORDER_COUNT - 1).getItems().get(0).getSubtotal()).isEqualByComparingTo("2.00");
+	}
+}
@@ -0,0 +1,104 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.CartItemInputDTO;
+import com.kpop.Clz.dto.CreateOrderRequestDTO;
+import com.kpop.Clz.exception.InsufficientStockException;
+import com.kpop.Clz.model.Order;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.model.User;
+import com.kpop.Clz.repository.OrderRepository;
+import com.kpop.Clz.repository.ProductRepository;
+import com.kpop.Clz.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(showSql = false)
+@Import({OrderService.class, CartService.class, StockReservationService.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderServiceStockConcurrencyTest {
+
+	private static final int INITIAL_STOCK = 100;
+	private static final int ORDER_ATTEMPTS = 2000;
+	private static final int THREADS = 32;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Test
+	void concurrentCheckoutsNeverOversellHotProduct() throws Exception {
+		Product product = new Product();
+		product.setName("Hot photocard");
+		product.setPrice(new BigDecimal("12.50"));
+		product.setStockQuantity(INITIAL_STOCK);
+		Long productId = productRepository.save(product).getId();
+
+		User buyer = new User();
+		buyer.setUsername("buyer");
+		buyer.setEmail("buyer@example.com");
+		buyer.setPasswordHash("x");
+		buyer.setRole(User.Role.customer);
+		User savedBuyer = userRepository.save(buyer);
+
+		AtomicInteger succeeded = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (int i = 0; i < ORDER_ATTEMPTS; i++) {
+			futures.add(pool.submit(() -> {
+				CartItemInputDTO item = new CartItemInputDTO();
+				item.setProductId(productId);
+				item.setQuantity(1);
+				CreateOrderRequestDTO request = new CreateOrderRequestDTO(List.of(item), "Somewhere", null, "0123", BigDecimal.ZERO);
+				start.await();
+				try {
+					orderService.createOrder(request, savedBuyer);
+					succeeded.incrementAndGet();
+				} catch (InsufficientStockException e) {
+					rejected.incrementAndGet();
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get(60, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+
+		assertThat(succeeded.get()).isEqualTo(INITIAL_STOCK);
+		assertThat(rejected.get()).isEqualTo(ORDER_ATTEMPTS - INITIAL_STOCK);
+		assertThat(productRepository.findById(productId).orElseThrow().getStockQuantity()).isZero();
+		assertThat(orderRepository.findAll())
+				.filteredOn(order -> order.getStatus() == Order.OrderStatus.PENDING)
+				.hasSize(INITIAL_STOCK);
+	}
+}
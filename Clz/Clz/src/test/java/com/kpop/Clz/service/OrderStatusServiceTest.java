@@ -0,0 +1,146 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.BulkOrderStatusResultDTO;
+import com.kpop.Clz.dto.CartItemInputDTO;
+import com.kpop.Clz.dto.CreateOrderRequestDTO;
+import com.kpop.Clz.dto.OrderTransitionFailureDTO;
+import com.kpop.Clz.model.Order;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.model.User;
+import com.kpop.Clz.repository.OrderRepository;
+import com.kpop.Clz.repository.ProductRepository;
+import com.kpop.Clz.repository.UserRepository;
+import com.kpop.Clz.support.SqlStatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest(showSql = false, properties = "app.orders.status.chunk-size=4")
+@Import({OrderStatusService.class, OrderService.class, CartService.class, StockReservationService.class,
+		SqlStatementCounter.Config.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderStatusServiceTest {
+
+	private static final int ORDER_COUNT = 10;
+
+	@Autowired
+	private OrderStatusService orderStatusService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private SqlStatementCounter sqlStatementCounter;
+
+	private User buyer;
+	private Long firstProduct;
+	private Long secondProduct;
+	private List<Integer> orderIds;
+
+	@BeforeEach
+	void placeOrders() {
+		String name = "status-" + UUID.randomUUID();
+		User user = new User();
+		user.setUsername(name);
+		user.setEmail(name + "@example.com");
+		user.setPasswordHash("x");
+		user.setRole(User.Role.customer);
+		buyer = userRepository.save(user);
+		firstProduct = saveProduct(100);
+		secondProduct = saveProduct(100);
+
+		orderIds = new ArrayList<>();
+		for (int i = 0; i < ORDER_COUNT; i++) {
+			CreateOrderRequestDTO request = new CreateOrderRequestDTO(
+					List.of(item(firstProduct, 2), item(secondProduct, 1)), "Somewhere", null, "0123", BigDecimal.ZERO);
+			orderIds.add(orderService.createOrder(request, buyer).getId());
+		}
+	}
+
+	@Test
+	void validTransitionsApplyAndInvalidOnesAreReported() {
+		orderStatusService.transition(orderIds.subList(0, 2), Order.OrderStatus.PAID);
+
+		List<Integer> requested = new ArrayList<>(orderIds.subList(0, 4));
+		requested.add(-1);
+		BulkOrderStatusResultDTO result = orderStatusService.transition(requested, Order.OrderStatus.SHIPPED);
+
+		assertThat(result.getRequested()).isEqualTo(5);
+		assertThat(result.getUpdated()).isEqualTo(2);
+		assertThat(result.getFailures())
+				.extracting(OrderTransitionFailureDTO::getOrderId, OrderTransitionFailureDTO::getError)
+				.containsExactlyInAnyOrder(
+						tuple(orderIds.get(2), OrderTransitionFailureDTO.INVALID_TRANSITION),
+						tuple(orderIds.get(3), OrderTransitionFailureDTO.INVALID_TRANSITION),
+						tuple(-1, OrderTransitionFailureDTO.NOT_FOUND));
+		assertThat(orderRepository.findById(orderIds.get(0)).orElseThrow().getStatus()).isEqualTo(Order.OrderStatus.SHIPPED);
+		assertThat(orderRepository.findById(orderIds.get(2)).orElseThrow().getStatus()).isEqualTo(Order.OrderStatus.PENDING);
+
+		// đơn đã giao cho vận chuyển thì không hủy được, không được cộng kho
+		BulkOrderStatusResultDTO cancel = orderStatusService.transition(orderIds.subList(0, 1), Order.OrderStatus.CANCELLED);
+		assertThat(cancel.getUpdated()).isZero();
+		assertThat(stock(firstProduct)).isEqualTo(100 - 2 * ORDER_COUNT);
+	}
+
+	@Test
+	void cancellingRestocksWithOneUpdatePerProductPerChunk() {
+		sqlStatementCounter.reset();
+		BulkOrderStatusResultDTO result = orderStatusService.transition(orderIds, Order.OrderStatus.CANCELLED);
+
+		assertThat(result.getUpdated()).isEqualTo(ORDER_COUNT);
+		assertThat(result.getFailures()).isEmpty();
+		assertThat(stock(firstProduct)).isEqualTo(100);
+		assertThat(stock(secondProduct)).isEqualTo(100);
+		// 10 đơn, chunk 4 => 3 chunk, mỗi chunk 1 UPDATE orders + 1 batch UPDATE products
+		assertThat(sqlStatementCounter.count("update", "orders")).isEqualTo(3);
+		assertThat(sqlStatementCounter.count("update", "products")).isEqualTo(3);
+
+		// hủy lần nữa không cộng kho lần 2
+		BulkOrderStatusResultDTO again = orderStatusService.transition(orderIds, Order.OrderStatus.CANCELLED);
+		assertThat(again.getUpdated()).isZero();
+		assertThat(again.getFailures()).hasSize(ORDER_COUNT);
+		assertThat(stock(firstProduct)).isEqualTo(100);
+	}
+
+	private Long saveProduct(int stock) {
+		Product product = new Product();
+		product.setName("Drop card");
+		product.setPrice(new BigDecimal("5.00"));
+		product.setStockQuantity(stock);
+		return productRepository.save(product).getId();
+	}
+
+	private int stock(Long productId) {
+		return productRepository.findById(productId).orElseThrow().getStockQuantity();
+	}
+
+	private static CartItemInputDTO item(Long productId, int quantity) {
+		CartItemInputDTO item = new CartItemInputDTO();
+		item.setProductId(productId);
+		item.setQuantity(quantity);
+		return item;
+	}
+}
@@ -0,0 +1,117 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.ProductPageDTO;
+import com.kpop.Clz.dto.ProductSummaryDTO;
+import com.kpop.Clz.model.Group;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.repository.GroupRepository;
+import com.kpop.Clz.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(showSql = false)
+@Import({ProductSearchService.class, ProductService.class, GroupService.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductCatalogPageTest {
+
+	// 3 giá, nhiều sản phẩm trùng giá / trùng tên để cursor phải phân định bằng id
+	private static final String[] PRICES = {"9.90", "4.50", "9.90", "4.50", "12.00", "9.90", "4.50", "9.90", "12.00", "9.90", "4.50"};
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private GroupRepository groupRepository;
+
+	private Group group;
+	private final List<Product> products = new ArrayList<>();
+
+	@BeforeEach
+	void createCatalog() {
+		group = new Group();
+		group.setName("catalog " + UUID.randomUUID());
+		group = groupRepository.save(group);
+		products.clear();
+		for (int i = 0; i < PRICES.length; i++) {
+			Product product = new Product();
+			// tên trùng theo cặp, có cả '|' là ký tự phân cách trong cursor
+			product.setName("Card | " + (char) ('A' + i / 2));
+			product.setGroup(group);
+			product.setPrice(new BigDecimal(PRICES[i]));
+			product.setStockQuantity(1);
+			products.add(productRepository.save(product));
+		}
+	}
+
+	@Test
+	void walkingEveryPageVisitsEachProductOnceInSortOrderDespiteTies() {
+		assertThat(walk(ProductService.CatalogSort.ID, 3)).containsExactlyElementsOf(expected(Comparator.comparing(Product::getId)));
+		assertThat(walk(ProductService.CatalogSort.PRICE, 3)).containsExactlyElementsOf(
+				expected(Comparator.comparing(Product::getPrice).thenComparing(Product::getId)));
+		assertThat(walk(ProductService.CatalogSort.NAME, 3)).containsExactlyElementsOf(
+				expected(Comparator.comparing(Product::getName).thenComparing(Product::getId)));
+		// trang cắt đúng giữa 2 dòng cùng giá
+		assertThat(walk(ProductService.CatalogSort.PRICE, 1)).containsExactlyElementsOf(
+				expected(Comparator.comparing(Product::getPrice).thenComparing(Product::getId)));
+	}
+
+	@Test
+	void cursorEncodesSortIdAndValue() {
+		ProductPageDTO first = productService.getProductPage(ProductService.CatalogSort.NAME, null, 2, group.getId());
+		ProductSummaryDTO last = first.getItems().get(1);
+
+		String raw = new String(Base64.getUrlDecoder().decode(first.getNextCursor()), StandardCharsets.UTF_8);
+		assertThat(raw).isEqualTo("NAME|" + last.getId() + "|" + last.getName());
+		assertThat(first.isHasMore()).isTrue();
+	}
+
+	@Test
+	void rejectsCursorsOfAnotherSortOrMalformed() {
+		String priceCursor = productService.getProductPage(ProductService.CatalogSort.PRICE, null, 2, group.getId()).getNextCursor();
+
+		assertThatThrownBy(() -> productService.getProductPage(ProductService.CatalogSort.NAME, priceCursor, 2, group.getId()))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> productService.getProductPage(ProductService.CatalogSort.ID, "not*base64", 2, group.getId()))
+				.isInstanceOf(IllegalArgumentException.class);
+		String badPrice = Base64.getUrlEncoder().encodeToString("PRICE|1|cheap".getBytes(StandardCharsets.UTF_8));
+		assertThatThrownBy(() -> productService.getProductPage(ProductService.CatalogSort.PRICE, badPrice, 2, group.getId()))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private List<Long> walk(ProductService.CatalogSort sort, int size) {
+		List<Long> ids = new ArrayList<>();
+		String cursor = null;
+		do {
+			ProductPageDTO page = productService.getProductPage(sort, cursor, size, group.getId());
+			page.getItems().forEach(item -> ids.add(item.getId()));
+			assertThat(page.isHasMore()).isEqualTo(page.getNextCursor() != null);
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		return ids;
+	}
+
+	private List<Long> expected(Comparator<Product> order) {
+		return products.stream().sorted(order).map(Product::getId).toList();
+	}
+}
@@ -0,0 +1,174 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.ProductImportErrorDTO;
+import com.kpop.Clz.dto.ProductImportResultDTO;
+import com.kpop.Clz.model.Group;
+import com.kpop.Clz.repository.GroupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest(showSql = false, properties = "app.products.import.batch-size=100")
+@Import({ProductImportService.class, ProductSearchService.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductImportServiceTest {
+
+	private static final int ROW_COUNT = 2500;
+
+	@Autowired
+	private ProductImportService productImportService;
+
+	@Autowired
+	private ProductSearchService productSearchService;
+
+	@Autowired
+	private GroupRepository groupRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private String tag;
+	private String groupName;
+	private Integer groupId;
+
+	@BeforeEach
+	void createGroup() {
+		tag = UUID.randomUUID().toString();
+		Group group = new Group();
+		group.setName("Import Group " + tag);
+		groupId = groupRepository.save(group).getId();
+		groupName = group.getName();
+	}
+
+	@Test
+	void csvImportInsertsValidRowsAndReportsInvalidOnes() {
+		StringBuilder csv = new StringBuilder("name,group_name,member,description,price,stock_quantity\r\n");
+		for (int i = 0; i < ROW_COUNT; i++) {
+			csv.append(tag).append(" card ").append(i).append(',')
+					.append(groupName.toUpperCase()).append(",Karina,")
+					.append("\"Line one, with comma\nand \"\"quotes\"\"\",")
+					.append("12.50,").append(i % 10).append("\r\n");
+		}
+		csv.append(",").append(groupName).append(",,,1.00,1\r\n");            // thiếu name
+		csv.append(tag).append(" bad price,,,,abc,1\r\n");                      // giá sai
+		csv.append(tag).append(" no group,Unknown ").append(tag).append(",,,1.00,-3\r\n"); // group lạ + kho âm
+
+		long started = System.nanoTime();
+		ProductImportResultDTO result = productImportService.importProducts(stream(csv.toString()),
+				ProductImportService.Format.CSV, false);
+		long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+		// H2 trong bộ nhớ, lô 100 dòng; ngưỡng rộng cho máy CI chậm
+		assertThat(elapsedMillis).as("import of %d rows took %d ms", ROW_COUNT, elapsedMillis).isLessThan(5_000L);
+		assertThat(result.getTotalRows()).isEqualTo(ROW_COUNT + 3);
+		assertThat(result.getValidRows()).isEqualTo(ROW_COUNT);
+		assertThat(result.getImportedRows()).isEqualTo(ROW_COUNT);
+		assertThat(result.getErrors())
+				.extracting(ProductImportErrorDTO::getRow, ProductImportErrorDTO::getField)
+				.containsExactly(
+						tuple(ROW_COUNT + 1, "name"),
+						tuple(ROW_COUNT + 2, "price"),
+						tuple(ROW_COUNT + 3, "groupName"),
+						tuple(ROW_COUNT + 3, "stockQuantity"));
+		assertThat(countProducts()).isEqualTo(ROW_COUNT);
+
+		Map<String, Object> row = jdbcTemplate.queryForMap(
+				"SELECT group_id, member, description, price, stock_quantity FROM products WHERE name = ?", tag + " card 7");
+		assertThat(((Number) row.get("group_id")).intValue()).isEqualTo(groupId);
+		assertThat(row.get("member")).isEqualTo("Karina");
+		assertThat(row.get("description")).isEqualTo("Line one, with comma\nand \"quotes\"");
+		assertThat((BigDecimal) row.get("price")).isEqualByComparingTo("12.50");
+		assertThat(((Number) row.get("stock_quantity")).intValue()).isEqualTo(7);
+		// sản phẩm import được đưa vào index tìm kiếm sau khi commit
+		assertThat(productSearchService.search(tag + " card", groupName, null, 0, 10).getTotalHits()).isEqualTo(ROW_COUNT);
+	}
+
+	@Test
+	void dryRunValidatesWithoutInserting() {
+		String csv = "Name,Price,Stock\n" + tag + " a,1.00,2\n" + tag + " b,1.999,2\n";
+
+		ProductImportResultDTO result = productImportService.importProducts(stream(csv),
+				ProductImportService.Format.CSV, true);
+
+		assertThat(result.isDryRun()).isTrue();
+		assertThat(result.getValidRows()).isEqualTo(1);
+		assertThat(result.getImportedRows()).isZero();
+		assertThat(result.getErrors()).singleElement()
+				.satisfies(error -> assertThat(error.getField()).isEqualTo("price"));
+		assertThat(countProducts()).isZero();
+		assertThat(productSearchService.search(tag, null, null, 0, 10).getTotalHits()).isZero();
+	}
+
+	@Test
+	void jsonArrayAndNdjsonAreAccepted() {
+		String array = "[{\"name\":\"" + tag + " j1\",\"groupName\":\"" + groupName + "\",\"price\":3.5,\"stockQuantity\":4}," +
+				"{\"name\":\"" + tag + " j2\",\"price\":\"2\"}]";
+		String ndjson = "{\"name\":\"" + tag + " n1\",\"price\":1}\n{\"name\":\"" + tag + " n2\",\"price\":1}\n";
+
+		assertThat(productImportService.importProducts(stream(array), ProductImportService.Format.JSON, false)
+				.getImportedRows()).isEqualTo(2);
+		assertThat(productImportService.importProducts(stream(ndjson), ProductImportService.Format.JSON, false)
+				.getImportedRows()).isEqualTo(2);
+		assertThat(countProducts()).isEqualTo(4);
+		assertThat(jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE name = ?", Integer.class, tag + " j1"))
+				.isEqualTo(4);
+
+		assertThatThrownBy(() -> productImportService.importProducts(stream("[{\"name\": "),
+				ProductImportService.Format.JSON, false))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void eachBatchCommitsOnItsOwnSoABrokenFileKeepsEarlierBatches() {
+		StringBuilder ndjson = new StringBuilder();
+		for (int i = 0; i < 250; i++) {
+			ndjson.append("{\"name\":\"").append(tag).append(" row ").append(i).append("\",\"price\":1}\n");
+		}
+		ndjson.append("{\"name\": ");
+
+		assertThatThrownBy(() -> productImportService.importProducts(stream(ndjson.toString()),
+				ProductImportService.Format.JSON, false))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("200 row(s) before this point were already imported");
+		// 2 lô 100 dòng đã commit; lô cuối (50 dòng) chưa kịp ghi khi gặp dòng hỏng
+		assertThat(countProducts()).isEqualTo(200);
+		assertThat(productSearchService.search(tag + " row", null, null, 0, 10).getTotalHits()).isEqualTo(200);
+	}
+
+	@Test
+	void csvHeaderMayStartWithAByteOrderMark() {
+		String csv = "\uFEFFname,price\n" + tag + " bom,1.00\n";
+
+		assertThat(productImportService.importProducts(stream(csv), ProductImportService.Format.CSV, false)
+				.getImportedRows()).isEqualTo(1);
+	}
+
+	private int countProducts() {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products WHERE name LIKE ?", Integer.class, tag + "%");
+	}
+
+	private static InputStream stream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,201 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.FacetCountDTO;
+import com.kpop.Clz.dto.ProductSearchResultDTO;
+import com.kpop.Clz.dto.ProductSummaryDTO;
+import com.kpop.Clz.model.Group;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.repository.GroupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest(showSql = false)
+@Import({ProductSearchService.class, ProductService.class, GroupService.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductSearchServiceTest {
+
+	private static final String[] MEMBERS = {"Karina", "Winter", "Giselle", "Ningning", "Jisoo", "Jennie", "Rose", "Lisa"};
+
+	@Autowired
+	private ProductSearchService productSearchService;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private GroupService groupService;
+
+	@Autowired
+	private GroupRepository groupRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	// mỗi test 1 từ khóa riêng vì index và DB dùng chung giữa các test
+	private String tag;
+	private Group aespa;
+	private Group blackpink;
+
+	@BeforeEach
+	void createGroups() {
+		tag = "t" + UUID.randomUUID().toString().replace("-", "");
+		aespa = saveGroup("aespa " + tag);
+		blackpink = saveGroup("BLACKPINK " + tag);
+	}
+
+	@Test
+	void prefixFuzzyAndFacetedQueries() {
+		Long karina = saveProduct("Karina photocard " + tag, aespa, "Karina", "Armageddon era, mirror version");
+		saveProduct("Winter photocard " + tag, aespa, "Winter", null);
+		saveProduct("Lightstick " + tag, blackpink, "Jisoo", "Official lightstick ver. 2");
+
+		// gõ dở tên member
+		assertThat(ids(productService.searchProducts(tag + " kari", null, null, null, null))).containsExactly(karina);
+		// sai chính tả 1 ký tự, không dấu / hoa thường
+		assertThat(names(productService.searchProducts(tag + " wintr", null, null, null, null)))
+				.containsExactly("Winter photocard " + tag);
+		// khớp trong description
+		assertThat(ids(productService.searchProducts(tag + " ARMAGEDDON", null, null, null, null))).containsExactly(karina);
+
+		ProductSearchResultDTO all = productService.searchProducts(tag, null, null, null, null);
+		assertThat(all.getTotalHits()).isEqualTo(3);
+		assertThat(all.getFacets().get(ProductSearchService.FACET_GROUP))
+				.extracting(FacetCountDTO::getValue, FacetCountDTO::getCount)
+				.containsExactlyInAnyOrder(tuple(aespa.getName(), 2), tuple(blackpink.getName(), 1));
+
+		// lọc theo group: facet group vẫn đếm các group khác để UI đổi bộ lọc
+		ProductSearchResultDTO filtered = productService.searchProducts(tag, aespa.getName(), null, null, null);
+		assertThat(filtered.getTotalHits()).isEqualTo(2);
+		assertThat(filtered.getFacets().get(ProductSearchService.FACET_GROUP))
+				.extracting(FacetCountDTO::getValue)
+				.contains(blackpink.getName());
+		assertThat(filtered.getFacets().get(ProductSearchService.FACET_MEMBER))
+				.extracting(FacetCountDTO::getValue, FacetCountDTO::getCount)
+				.containsExactlyInAnyOrder(tuple("Karina", 1), tuple("Winter", 1));
+		assertThat(productService.searchProducts(tag, aespa.getName(), "Winter", null, null).getItems())
+				.singleElement()
+				.satisfies(item -> assertThat(item.getMember()).isEqualTo("Winter"));
+	}
+
+	@Test
+	void indexFollowsProductAndGroupChanges() {
+		Long id = saveProduct("Album " + tag, blackpink, "Lisa", null);
+		assertThat(ids(productService.searchProducts(tag + " album", null, null, null, null))).containsExactly(id);
+
+		Product product = productService.getProductById(id).orElseThrow();
+		product.setName("Season greetings " + tag);
+		productService.saveProduct(product);
+		assertThat(ids(productService.searchProducts(tag + " album", null, null, null, null))).isEmpty();
+		assertThat(ids(productService.searchProducts(tag + " greetings", null, null, null, null))).containsExactly(id);
+
+		Group renamed = new Group();
+		renamed.setName("BLINK " + tag);
+		groupService.updateGroup(blackpink.getId(), renamed);
+		assertThat(ids(productService.searchProducts(tag + " blink", null, null, null, null))).containsExactly(id);
+		assertThat(productService.searchProducts(tag, "BLINK " + tag, null, null, null).getTotalHits()).isEqualTo(1);
+
+		productService.deleteProduct(id);
+		assertThat(productService.searchProducts(tag, null, null, null, null).getTotalHits()).isZero();
+	}
+
+	@Test
+	void facetFiltersIgnoreCaseAndSpacing() {
+		Long winter = saveProduct("Winter photocard " + tag, aespa, "Winter", null);
+		saveProduct("Winter slogan " + tag, aespa, " WINTER ", null);
+		saveProduct("Jisoo photocard " + tag, blackpink, "Jisoo", null);
+
+		ProductSearchResultDTO result = productService.searchProducts(tag + " photocard",
+				"  " + aespa.getName().toUpperCase() + " ", "winter", null, null);
+		assertThat(ids(result)).containsExactly(winter);
+		// "Winter" và " WINTER " là 1 giá trị facet
+		assertThat(productService.searchProducts(tag, null, null, null, null).getFacets().get(ProductSearchService.FACET_MEMBER))
+				.extracting(FacetCountDTO::getCount)
+				.containsExactlyInAnyOrder(2, 1);
+	}
+
+	@Test
+	void failedRebuildKeepsThePreviousIndex() {
+		Long id = saveProduct("Lightstick " + tag, blackpink, "Rose", null);
+
+		jdbcTemplate.execute("ALTER TABLE products RENAME TO products_offline");
+		try {
+			assertThatThrownBy(() -> productSearchService.rebuildIndex()).isInstanceOf(IllegalStateException.class);
+		} finally {
+			jdbcTemplate.execute("ALTER TABLE products_offline RENAME TO products");
+		}
+
+		// writer mở lại được sau rollback; lần refresh sau không làm lộ index đã bị xóa dở
+		Long next = saveProduct("Lightstick case " + tag, blackpink, "Rose", null);
+		assertThat(ids(productService.searchProducts(tag + " lightstick", null, null, null, null)))
+				.containsExactlyInAnyOrder(id, next);
+	}
+
+	@Test
+	void rebuildIndexesRowsWrittenOutsideTheService() {
+		int count = 300;
+		List<Object[]> rows = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			String member = MEMBERS[i % MEMBERS.length];
+			rows.add(new Object[]{member + " photocard " + i + " " + tag, i % 3 == 0 ? aespa.getId() : blackpink.getId(),
+					member, "Comeback era " + (i % 12) + " limited pressing", new BigDecimal("9.90"), 10});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO products (name, group_id, member, description, price, stock_quantity) " +
+				"VALUES (?, ?, ?, ?, ?, ?)", rows);
+
+		// ghi thẳng bằng SQL thì index chưa biết, rebuild mới thấy
+		assertThat(productService.searchProducts(tag, null, null, null, null).getTotalHits()).isZero();
+		assertThat(productSearchService.rebuildIndex()).isGreaterThanOrEqualTo(count);
+		assertThat(productService.searchProducts(tag, null, null, null, null).getTotalHits()).isEqualTo(count);
+
+		// độ trễ tìm kiếm đo bằng ProductSearchBenchmark (src/jmh), ở đây chỉ kiểm tra kết quả và stats
+		long before = (Long) productSearchService.getStats().get("queries");
+		ProductSearchResultDTO page = productService.searchProducts(tag + " ningnig limited", aespa.getName(), null, 0, 5);
+		// Ningning của aespa: i = 3, 27, ..., 291
+		assertThat(page.getTotalHits()).isEqualTo(13);
+		assertThat(page.getItems()).hasSize(5)
+				.allSatisfy(item -> assertThat(item.getMember()).isEqualTo("Ningning"));
+		assertThat((Long) productSearchService.getStats().get("queries") - before).isEqualTo(1);
+	}
+
+	private Group saveGroup(String name) {
+		Group group = new Group();
+		group.setName(name);
+		return groupRepository.save(group);
+	}
+
+	private Long saveProduct(String name, Group group, String member, String description) {
+		Product product = new Product();
+		product.setName(name);
+		product.setGroup(group);
+		product.setMember(member);
+		product.setDescription(description);
+		product.setPrice(new BigDecimal("15.00"));
+		product.setStockQuantity(5);
+		return productService.saveProduct(product).getId();
+	}
+
+	private static List<Long> ids(ProductSearchResultDTO result) {
+		return result.getItems().stream().map(ProductSummaryDTO::getId).toList();
+	}
+
+	private static List<String> names(ProductSearchResultDTO result) {
+		return result.getItems().stream().map(ProductSummaryDTO::getName).toList();
+	}
+}
@@ -0,0 +1,196 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.AddItemToCartRequestDTO;
+import com.kpop.Clz.dto.CartDTO;
+import com.kpop.Clz.dto.CartItemInputDTO;
+import com.kpop.Clz.dto.CartOperationDTO;
+import com.kpop.Clz.dto.CreateOrderRequestDTO;
+import com.kpop.Clz.model.Order;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.model.User;
+import com.kpop.Clz.repository.OrderRepository;
+import com.kpop.Clz.repository.ProductRepository;
+import com.kpop.Clz.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query budget of each endpoint's service call, counted with Hibernate statistics.
+ * Budgets do not depend on cart/order size, except checkout: order_items uses IDENTITY keys,
+ * which Hibernate cannot JDBC-batch, so it sends one INSERT per item. Raising a budget needs a reason in the commit.
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CartService.class, OrderService.class, StockReservationService.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class QueryBudgetTest {
+
+	private static final int CART_SIZE = 12;
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private Statistics statistics;
+	private User buyer;
+	private final List<Long> productIds = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		String name = "budget-user-" + UUID.randomUUID();
+		User user = new User();
+		user.setUsername(name);
+		user.setEmail(name + "@example.com");
+		user.setPasswordHash("x");
+		user.setRole(User.Role.customer);
+		buyer = userRepository.save(user);
+
+		productIds.clear();
+		for (int i = 0; i < CART_SIZE; i++) {
+			Product product = new Product();
+			product.setName("Card " + i);
+			product.setDescription("A very long description ".repeat(50));
+			product.setPrice(new BigDecimal("2.50"));
+			product.setStockQuantity(100);
+			Long productId = productRepository.save(product).getId();
+			productIds.add(productId);
+			cartService.addItemToCart(buyer.getId(), addRequest(productId, 1));
+		}
+	}
+
+	@Test
+	void cartView() {
+		assertBudget(1, () -> cartService.getCartByUserId(buyer.getId()));
+	}
+
+	@Test
+	void cartAddUpdateRemove() {
+		CartDTO cart = cartService.getCartByUserId(buyer.getId());
+		Integer firstItem = cart.getItems().get(0).getOrderItemId();
+		Integer lastItem = cart.getItems().get(CART_SIZE - 1).getOrderItemId();
+
+		// SELECT giỏ + UPDATE item + UPDATE tổng của order
+		assertBudget(3, () -> cartService.addItemToCart(buyer.getId(), addRequest(productIds.get(1), 1)));
+		assertBudget(3, () -> cartService.updateItemQuantityInCart(buyer.getId(), firstItem, 3));
+		// SELECT giỏ + DELETE item + UPDATE tổng của order
+		assertBudget(3, () -> cartService.removeItemFromCart(buyer.getId(), lastItem));
+	}
+
+	@Test
+	void cartBatch() {
+		CartDTO cart = cartService.getCartByUserId(buyer.getId());
+		List<CartOperationDTO> operations = new ArrayList<>();
+		for (int i = 0; i < CART_SIZE; i++) {
+			CartOperationDTO operation = new CartOperationDTO();
+			operation.setType(CartOperationDTO.Type.UPDATE);
+			operation.setItemId(cart.getItems().get(i).getOrderItemId());
+			operation.setQuantity(2);
+			operations.add(operation);
+		}
+		// SELECT giỏ + 1 UPDATE order_items (JDBC batch) + UPDATE tổng của order
+		assertBudget(3, () -> cartService.applyBatch(buyer.getId(), operations));
+	}
+
+	@Test
+	void orderHistoryPage() {
+		checkout();
+		checkout();
+		assertBudget(2, () -> orderService.getOrderHistoryPage(buyer.getId(), null, 20));
+	}
+
+	@Test
+	void checkoutDoesNotReloadCartOrProducts() {
+		statistics.clear();
+		checkout();
+		// SELECT products + kiểm tra trùng order code + UPDATE products (batch) + INSERT order + 2 DELETE giỏ + INSERT outbox,
+		// cộng 1 INSERT cho mỗi item (IDENTITY)
+		assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(7 + CART_SIZE);
+		assertThat(statistics.getEntityLoadCount()).isEqualTo(CART_SIZE);
+	}
+
+	@Test
+	void orderHeaderLoadsWithoutItemsUnlessGraphRequested() {
+		Integer cartId = cartService.getCartByUserId(buyer.getId()).getOrderId();
+
+		Order plain = transactionTemplate.execute(status -> {
+			statistics.clear();
+			Order order = orderRepository.findById(cartId).orElseThrow();
+			assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+			return order;
+		});
+		assertThat(Hibernate.isInitialized(plain.getOrderItems())).isFalse();
+
+		Order withGraph = transactionTemplate.execute(status -> {
+			statistics.clear();
+			Order order = orderRepository.findWithItemsByUserIdAndStatus(buyer.getId(), Order.OrderStatus.CART).orElseThrow();
+			assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+			return order;
+		});
+		assertThat(Hibernate.isInitialized(withGraph.getOrderItems())).isTrue();
+		assertThat(withGraph.getOrderItems()).allSatisfy(item -> assertThat(Hibernate.isInitialized(item.getProduct())).isTrue());
+	}
+
+	private void checkout() {
+		List<CartItemInputDTO> items = new ArrayList<>();
+		for (Long productId : productIds) {
+			CartItemInputDTO item = new CartItemInputDTO();
+			item.setProductId(productId);
+			item.setQuantity(1);
+			items.add(item);
+		}
+		orderService.createOrder(new CreateOrderRequestDTO(items, "Somewhere", null, "0123", BigDecimal.ZERO), buyer);
+	}
+
+	private void assertBudget(long maxStatements, Supplier<?> call) {
+		statistics.clear();
+		call.get();
+		assertThat(statistics.getPrepareStatementCount())
+				.as("JDBC statements, budget %d", maxStatements)
+				.isLessThanOrEqualTo(maxStatements);
+	}
+
+	private static AddItemToCartRequestDTO addRequest(Long productId, int quantity) {
+		AddItemToCartRequestDTO request = new AddItemToCartRequestDTO();
+		request.setProductId(productId);
+		request.setQuantity(quantity);
+		return request;
+	}
+}
@@ -0,0 +1,219 @@
+package com.kpop.Clz.service;
+
+import com.kpop.Clz.dto.CartItemInputDTO;
+import com.kpop.Clz.dto.CreateOrderRequestDTO;
+import com.kpop.Clz.dto.StockReservationDTO;
+import com.kpop.Clz.exception.InsufficientStockException;
+import com.kpop.Clz.model.Order;
+import com.kpop.Clz.model.Product;
+import com.kpop.Clz.model.User;
+import com.kpop.Clz.repository.ProductRepository;
+import com.kpop.Clz.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(showSql = false)
+@Import({StockReservationService.class, OrderService.class, CartService.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReservationServiceTest {
+
+	private static final int INITIAL_STOCK = 50;
+	private static final int RESERVE_ATTEMPTS = 1000;
+	private static final int THREADS = 32;
+
+	@Autowired
+	private StockReservationService stockReservationService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void reserveHoldsStockUntilReleased() {
+		Long productId = saveProduct(3);
+
+		StockReservationDTO reservation = stockReservationService.reserve(1, List.of(item(productId, 2)));
+		assertThat(stock(productId)).isEqualTo(1);
+		assertThatThrownBy(() -> stockReservationService.reserve(2, List.of(item(productId, 2))))
+				.isInstanceOf(InsufficientStockException.class);
+
+		// user khác không nhả được hold của người khác
+		assertThat(stockReservationService.release(reservation.getReservationId(), 2)).isFalse();
+		assertThat(stockReservationService.release(reservation.getReservationId(), 1)).isTrue();
+		assertThat(stockReservationService.release(reservation.getReservationId(), 1)).isFalse();
+		assertThat(stock(productId)).isEqualTo(3);
+	}
+
+	@Test
+	void reReservingAppliesOnlyTheNetChangeInOnePass() {
+		Long first = saveProduct(3);
+		Long second = saveProduct(3);
+
+		stockReservationService.reserve(3, List.of(item(first, 3), item(second, 1)));
+		assertThat(stock(first)).isZero();
+
+		// giữ lại: sp đầu không đổi (hết kho vẫn giữ được vì đã giữ sẵn), sp sau trả bớt 1 và giữ thêm sp mới
+		Long third = saveProduct(2);
+		stockReservationService.reserve(3, List.of(item(first, 3), item(third, 2)));
+		assertThat(stock(first)).isZero();
+		assertThat(stock(second)).isEqualTo(3);
+		assertThat(stock(third)).isZero();
+
+		// thiếu hàng ở sp mới: rollback cả lượt, hold cũ còn nguyên
+		assertThatThrownBy(() -> stockReservationService.reserve(3, List.of(item(first, 1), item(second, 4))))
+				.isInstanceOf(InsufficientStockException.class);
+		assertThat(stock(first)).isZero();
+		assertThat(stock(second)).isEqualTo(3);
+		assertThat(stock(third)).isZero();
+	}
+
+	@Test
+	void concurrentReservationsOnOneProductNeverOversell() throws Exception {
+		Long productId = saveProduct(INITIAL_STOCK);
+
+		AtomicInteger succeeded = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+		int firstUserId = 100_000;
+		for (int i = 0; i < RESERVE_ATTEMPTS; i++) {
+			int userId = firstUserId + i;
+			futures.add(pool.submit(() -> {
+				start.await();
+				try {
+					stockReservationService.reserve(userId, List.of(item(productId, 1)));
+					succeeded.incrementAndGet();
+				} catch (InsufficientStockException e) {
+					rejected.incrementAndGet();
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get(60, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+
+		assertThat(succeeded.get()).isEqualTo(INITIAL_STOCK);
+		assertThat(rejected.get()).isEqualTo(RESERVE_ATTEMPTS - INITIAL_STOCK);
+		assertThat(stock(productId)).isZero();
+		assertThat(jdbcTemplate.queryForObject(
+				"SELECT COALESCE(SUM(quantity), 0) FROM stock_reservations WHERE product_id = ?", Integer.class, productId))
+				.isEqualTo(INITIAL_STOCK);
+	}
+
+	@Test
+	void expiredHoldsAreReleasedByTheWheelAndTheSweep() throws Exception {
+		// TTL 1s, tick 50ms; không phải bean nên chỉ chạy khi test gọi advanceWheel()
+		StockReservationService shortLived = new StockReservationService(
+				jdbcTemplate, productRepository, transactionTemplate, 1, 50, 64, 2000, 500);
+		Long productId = saveProduct(4);
+
+		shortLived.reserve(7, List.of(item(productId, 3)));
+		shortLived.advanceWheel();
+		assertThat(stock(productId)).isEqualTo(1);
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (stock(productId) != 4 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+			shortLived.advanceWheel();
+		}
+		assertThat(stock(productId)).isEqualTo(4);
+		assertThat(shortLived.getStats()).containsEntry("activeHolds", 0);
+
+		// hold không còn trong bộ nhớ (vd. sau restart): job quét DB nhả hàng
+		StockReservationDTO orphan = stockReservationService.reserve(8, List.of(item(productId, 2)));
+		jdbcTemplate.update("UPDATE stock_reservations SET expires_at = ? WHERE reservation_id = ?",
+				Timestamp.valueOf(orphan.getExpiresAt().minusHours(1)), orphan.getReservationId());
+		assertThat(shortLived.sweepExpired()).isEqualTo(1);
+		assertThat(stock(productId)).isEqualTo(4);
+	}
+
+	@Test
+	void checkoutConsumesReservationAndAdjustsDifference() {
+		String name = "reserve-" + UUID.randomUUID();
+		User buyer = new User();
+		buyer.setUsername(name);
+		buyer.setEmail(name + "@example.com");
+		buyer.setPasswordHash("x");
+		buyer.setRole(User.Role.customer);
+		User savedBuyer = userRepository.save(buyer);
+		Long reservedProduct = saveProduct(5);
+		Long droppedProduct = saveProduct(5);
+
+		StockReservationDTO reservation = stockReservationService.reserve(savedBuyer.getId(),
+				List.of(item(reservedProduct, 2), item(droppedProduct, 1)));
+
+		// chỉ còn 3 sp ngoài kho nhưng 2 sp đã giữ => đặt được 4
+		CreateOrderRequestDTO request = new CreateOrderRequestDTO(
+				List.of(item(reservedProduct, 4)), "Somewhere", null, "0123", BigDecimal.ZERO);
+		request.setReservationId(reservation.getReservationId());
+		Order order = orderService.createOrder(request, savedBuyer);
+
+		assertThat(order.getTotalQuantity()).isEqualTo(4);
+		assertThat(stock(reservedProduct)).isEqualTo(1);
+		assertThat(stock(droppedProduct)).isEqualTo(5);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_reservations WHERE reservation_id = ?",
+				Integer.class, reservation.getReservationId())).isZero();
+
+		// reservation đã dùng thì không dùng lại được
+		assertThatThrownBy(() -> orderService.createOrder(request, savedBuyer))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThat(stock(reservedProduct)).isEqualTo(1);
+	}
+
+	private Long saveProduct(int stock) {
+		Product product = new Product();
+		product.setName("Limited card");
+		product.setPrice(new BigDecimal("9.00"));
+		product.setStockQuantity(stock);
+		return productRepository.save(product).getId();
+	}
+
+	private int stock(Long productId) {
+		return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+	}
+
+	private static CartItemInputDTO item(Long productId, int quantity) {
+		CartItemInputDTO item = new CartItemInputDTO();
+		item.setProductId(productId);
+		item.setQuantity(quantity);
+		return item;
+	}
+}
@@ -0,0 +1,110 @@
+package com.kpop.Clz.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+/**
+ * Records every SQL statement prepared or executed through the application DataSource,
+ * so tests can assert round-trip budgets. Import it with {@code @Import(SqlStatementCounter.Config.class)}.
+ */
+public class SqlStatementCounter {
+
+	private final List<String> statements = new CopyOnWriteArrayList<>();
+
+	public void reset() {
+		statements.clear();
+	}
+
+	public List<String> statements() {
+		return List.copyOf(statements);
+	}
+
+	public long count(Predicate<String> filter) {
+		return statements.stream().filter(filter).count();
+	}
+
+	public long count(String verb, String table) {
+		String prefix = verb.toLowerCase(Locale.ROOT);
+		String tableToken = " " + table.toLowerCase(Locale.ROOT) + " ";
+		return count(sql -> {
+			String normalized = sql.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim() + " ";
+			return normalized.startsWith(prefix) && normalized.contains(tableToken);
+		});
+	}
+
+	public long total() {
+		return statements.size();
+	}
+
+	private void record(String sql) {
+		statements.add(sql);
+	}
+
+	private Object wrap(Object target, Class<?> iface) {
+		return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{iface}, (proxy, method, args) -> {
+			if (target instanceof Connection && method.getName().startsWith("prepare") && args != null && args[0] instanceof String sql) {
+				record(sql);
+			}
+			if (target instanceof Statement && !(target instanceof java.sql.PreparedStatement)
+					&& method.getName().startsWith("execute") && args != null && args.length > 0 && args[0] instanceof String sql) {
+				record(sql);
+			}
+			Object result = invoke(target, method, args);
+			if (target instanceof Connection && "createStatement".equals(method.getName())) {
+				return wrap(result, Statement.class);
+			}
+			return result;
+		});
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+	}
+
+	@TestConfiguration
+	public static class Config {
+
+		@Bean
+		public SqlStatementCounter sqlStatementCounter() {
+			return new SqlStatementCounter();
+		}
+
+		@Bean
+		public static BeanPostProcessor sqlStatementCountingDataSourcePostProcessor(org.springframework.beans.factory.ObjectProvider<SqlStatementCounter> counter) {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					if (!(bean instanceof DataSource dataSource)) {
+						return bean;
+					}
+					SqlStatementCounter statementCounter = counter.getObject();
+					return Proxy.newProxyInstance(SqlStatementCounter.class.getClassLoader(),
+							ClassUtils.getAllInterfaces(bean), (proxy, method, args) -> {
+								Object result = invoke(dataSource, method, args);
+								if ("getConnection".equals(method.getName())) {
+									return statementCounter.wrap(result, Connection.class);
+								}
+								return result;
+							});
+				}
+			};
+		}
+	}
+}
@@ -53,12 +53,19 @@ const MyOrdersPage = () => {
     const [loading, setLoading] = useState(true); 
     const [error, setError] = useState('');
     const [expandedOrderId, setExpandedOrderId] = useState(null);
+    const [nextBefore, setNextBefore] = useState(null);
+    const [loadingMore, setLoadingMore] = useState(false);
 
     const [statusFilter, setStatusFilter] = useState('');
     const [searchTerm, setSearchTerm] = useState('');
 
-    const fetchOrders = useCallback(async () => {
-        setLoading(true);
+    // Server trả từng trang (mới nhất trước); before = nextBefore của trang trước, null = trang đầu
+    const fetchOrders = useCallback(async (before = null) => {
+        if (before) {
+            setLoadingMore(true);
+        } else {
+            setLoading(true);
+        }
         setError('');
         try {
             const token = await getToken();
@@ -66,13 +73,15 @@ const MyOrdersPage = () => {
                 throw new Error("Không thể lấy token xác thực. Vui lòng đăng nhập lại.");
             }
 
-            const response = await fetch('/api/orders/my-orders', {
+            const url = before ? `/api/orders/my-orders?before=${before}` : '/api/orders/my-orders';
+            const response = await fetch(url, {
                 headers: { 'Authorization': `Bearer ${token}` },
             });
             
             if (response.status === 204) {
                 setAllOrders([]);
                 setFilteredOrders([]);
+                setNextBefore(null);
                 return; 
             }
 
@@ -89,22 +98,15 @@ const MyOrdersPage = () => {
             }
             
             const data = await response.json();
-            const ordersData = data || [];
-            const sortedOrders = ordersData.sort((a, b) => {
-                const dateA = new Date(a.orderDate);
-                const dateB = new Date(b.orderDate);
-                if (isNaN(dateA) && isNaN(dateB)) return 0;
-                if (isNaN(dateA)) return 1; 
-                if (isNaN(dateB)) return -1;
-                return dateB - dateA;
-            });
-            setAllOrders(sortedOrders);
-            setFilteredOrders(sortedOrders);
+            const ordersData = data?.items || [];
+            setAllOrders(prev => before ? [...prev, ...ordersData] : ordersData);
+            setNextBefore(data?.hasMore ? data.nextBefore : null);
         } catch (err) {
             setError(err.message || 'Đã xảy ra lỗi không mong muốn khi tải đơn hàng.');
             console.error("Fetch orders error:", err);
         } finally {
             setLoading(false);
+            setLoadingMore(false);
         }
     }, [getToken]); 
 
@@ -155,7 +157,7 @@ const MyOrdersPage = () => {
                 <p className="text-xl text-red-700 mb-2">Lỗi!</p>
                 <p className="text-md text-gray-600 mb-6">{error}</p>
                 <button
-                    onClick={fetchOrders}
+                    onClick={() => fetchOrders()}
                     className="px-6 py-2 bg-sky-600 text-white rounded-lg hover:bg-sky-700 transition-colors flex items-center"
                 >
                     <FaRedo className="mr-2" /> Thử lại
@@ -192,7 +194,7 @@ const MyOrdersPage = () => {
                         </div>
                         {allOrders.length > 0 && (
                             <p className="text-md sm:text-lg text-gray-500">
-                                Bạn có tổng cộng {allOrders.length} đơn hàng.
+                                {nextBefore ? `Đang hiển thị ${allOrders.length} đơn hàng gần nhất.` : `Bạn có tổng cộng ${allOrders.length} đơn hàng.`}
                             </p>
                         )}
                     </div>
@@ -339,6 +341,17 @@ const MyOrdersPage = () => {
                             <p className="text-gray-500">Vui lòng thử lại với bộ lọc hoặc từ khóa tìm kiếm khác.</p>
                         </div>
                     )}
+                    {nextBefore && (
+                        <div className="mt-8 text-center">
+                            <button
+                                onClick={() => fetchOrders(nextBefore)}
+                                disabled={loadingMore}
+                                className="px-6 py-2 bg-sky-600 text-white rounded-lg hover:bg-sky-700 transition-colors disabled:opacity-60"
+                            >
+                                {loadingMore ? 'Đang tải...' : 'Xem thêm đơn hàng'}
+                            </button>
+                        </div>
+                    )}
                 </main>
             </div>
         </div>